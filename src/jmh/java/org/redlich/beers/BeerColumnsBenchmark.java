@@ -0,0 +1,97 @@
+package org.redlich.beers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Analytic filters over the columnar beer snapshot, sequential and split
+ * across cores, against the same filter over a list of entities. The
+ * snapshot's bytes per beer are printed at setup; the same search run by
+ * MongoDB is the <code>BeerSearch.searchDatabase</code> scenario of
+ * {@link org.redlich.beers.PersistenceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class BeerColumnsBenchmark {
+
+    private static final int BREWERS = 5000;
+
+    @Param({"100000", "1000000", "10000000"})
+    public int beers;
+
+    private BeerColumns columns;
+
+    private List<Beer> entities;
+
+    private BeerFilter filter;
+
+    private Set<Integer> brewerIds;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        BeerType[] types = BeerType.values();
+        columns = new BeerColumns();
+        entities = new ArrayList<>(beers);
+        for (int id = 1; id <= beers; id++) {
+            Beer beer = Beer.builder()
+                    .id(id)
+                    .name("Beer " + id)
+                    .type(types[random.nextInt(types.length)])
+                    .brewerId(1 + random.nextInt(BREWERS))
+                    .abv(random.nextDouble(0.5, 15.0))
+                    .build();
+            columns.put(beer.getId(), beer.getBrewerId(), beer.getType(), beer.getAbv());
+            entities.add(beer);
+        }
+        // "IPAs and APAs between 6 and 8% from the brewers of one state", about 2% of the brewers
+        filter = new BeerFilter(EnumSet.of(BeerType.IPA, BeerType.APA), 6.0, 8.0,
+                IntStream.rangeClosed(1, BREWERS / 50).map(i -> i * 50).boxed().toList());
+        brewerIds = Set.copyOf(filter.brewerIds());
+        System.out.printf("%nColumnar snapshot: %.1f bytes per beer%n", (double) columns.estimatedBytes() / beers);
+    }
+
+    @Benchmark
+    public BeerColumns.Matches columnarScan() {
+        return columns.scan(filter, 20, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public BeerColumns.Matches columnarParallelScan() {
+        return columns.scan(filter, 20, 0);
+    }
+
+    @Benchmark
+    public long entityScan() {
+        long count = 0;
+        for (Beer beer : entities) {
+            if (filter.types().contains(beer.getType())
+                    && beer.getAbv() >= filter.minAbv() && beer.getAbv() <= filter.maxAbv()
+                    && brewerIds.contains(beer.getBrewerId())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
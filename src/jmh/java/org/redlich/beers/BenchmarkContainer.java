@@ -0,0 +1,46 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.inject.spi.Extension;
+import org.eclipse.jnosql.databases.mongodb.communication.MongoDBDocumentConfigurations;
+import org.eclipse.jnosql.mapping.Convert;
+import org.eclipse.jnosql.mapping.core.Converters;
+import org.eclipse.jnosql.mapping.core.spi.EntityMetadataExtension;
+import org.eclipse.jnosql.mapping.document.DocumentEntityConverter;
+import org.eclipse.jnosql.mapping.document.spi.DocumentExtension;
+import org.eclipse.jnosql.mapping.reflection.Reflections;
+import org.eclipse.jnosql.mapping.validation.MappingValidator;
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+
+/**
+ * Boots the same CDI container as {@link org.redlich.beers.BaseTest} for code
+ * that runs outside JUnit.
+ */
+final class BenchmarkContainer {
+
+    private BenchmarkContainer() {
+    }
+
+    /**
+     * @param mongoHost <code>host:port</code> of the database; nothing connects
+     *                  to it until a repository is used
+     * @param provisionIndexes whether to create the declared indexes at startup
+     * @param extensions further portable extensions, discovery is off so
+     *                   they are not loaded from the class path
+     */
+    static WeldContainer start(String mongoHost, boolean provisionIndexes, Extension... extensions) {
+        System.setProperty(MongoDBDocumentConfigurations.HOST.get(), mongoHost);
+        System.setProperty("beers.indexes.provision", Boolean.toString(provisionIndexes));
+        return new Weld()
+                .disableDiscovery()
+                .addPackages(MappingValidator.class,
+                        BeerApplication.class,
+                        Reflections.class,
+                        Converters.class,
+                        Convert.class,
+                        DocumentEntityConverter.class)
+                .addExtensions(new EntityMetadataExtension(), new DocumentExtension())
+                .addExtensions(extensions)
+                .initialize();
+    }
+}
@@ -0,0 +1,77 @@
+package org.redlich.beers;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.jersey.ext.cdi1x.internal.CdiComponentProvider;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.jboss.weld.environment.se.WeldContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+
+/**
+ * Serves the resources and providers of the application over HTTP with
+ * Jersey on Grizzly, for load tests that should go through the same filters,
+ * interceptors and writers as production requests. Jersey takes the
+ * resources and providers from the CDI container of
+ * {@link org.redlich.beers.BenchmarkContainer}, so they are the same
+ * instances the test code sees.
+ */
+final class BenchmarkServer implements AutoCloseable {
+
+    private final WeldContainer container;
+
+    private final HttpServer server;
+
+    private final URI uri;
+
+    private BenchmarkServer(WeldContainer container, HttpServer server, URI uri) {
+        this.container = container;
+        this.server = server;
+        this.uri = uri;
+    }
+
+    /**
+     * @param mongoHost     <code>host:port</code> of the database
+     * @param port          the HTTP port
+     * @param workerThreads the Grizzly worker threads, which play the part of
+     *                      the container's request pool
+     */
+    static BenchmarkServer start(String mongoHost, int port, int workerThreads) {
+        WeldContainer container = BenchmarkContainer.start(mongoHost, true, new CdiComponentProvider());
+        URI uri = URI.create("http://localhost:" + port + "/db/");
+        ResourceConfig config = new ResourceConfig().packages(false, BeerApplication.class.getPackageName());
+        HttpServer server = GrizzlyHttpServerFactory.createHttpServer(uri, config, false);
+        server.getListeners().forEach(listener -> listener.getTransport()
+                .setWorkerThreadPoolConfig(ThreadPoolConfig.defaultConfig()
+                        .setPoolName("beer-http")
+                        .setCorePoolSize(workerThreads)
+                        .setMaxPoolSize(workerThreads)));
+        try {
+            server.start();
+        } catch (IOException e) {
+            container.shutdown();
+            throw new UncheckedIOException(e);
+        }
+        return new BenchmarkServer(container, server, uri);
+    }
+
+    WeldContainer container() {
+        return container;
+    }
+
+    /**
+     * @param path relative to the application path, e.g. <code>beer/1</code>
+     */
+    URI uri(String path) {
+        return uri.resolve(path);
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+        container.shutdown();
+    }
+}
@@ -0,0 +1,114 @@
+package org.redlich.beers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out of one change to every subscriber of the
+ * {@link org.redlich.beers.CatalogChangeFeed}, timed until every reading
+ * subscriber has been sent the change. A share of the subscribers never
+ * completes a send, like clients that stopped reading. They are disconnected
+ * once their buffer fills, and must hold up neither the writer nor the others.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeFeedBenchmark {
+
+    private static final CompletableFuture<Void> SENT = CompletableFuture.completedFuture(null);
+
+    @Param({"1000", "10000"})
+    public int subscribers;
+
+    @Param({"1", "4", "8"})
+    public int senders;
+
+    @Param({"0", "10"})
+    public int stalledPercent;
+
+    private CatalogChangeFeed feed;
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    private int reading;
+
+    private Beer beer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        feed = new CatalogChangeFeed();
+        feed.catalogMetrics = new CatalogMetrics();
+        feed.replaySize = 10_000;
+        feed.bufferSize = 256;
+        feed.overflow = "disconnect";
+        feed.senders = senders;
+        feed.heartbeatSeconds = 0;
+        feed.start();
+        int stalled = subscribers * stalledPercent / 100;
+        reading = subscribers - stalled;
+        for (int i = 0; i < subscribers; i++) {
+            feed.subscribe(null, i < stalled ? new StalledSink() : new CountingSink(delivered));
+        }
+        beer = Beer.builder().id(1).name("Lunch").type(BeerType.IPA).brewerId(1).abv(7.0).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        feed.stop();
+    }
+
+    @Benchmark
+    public long fanOut() {
+        long target = delivered.get() + reading;
+        feed.beerSaved(beer);
+        long seen;
+        while ((seen = delivered.get()) < target) {
+            Thread.onSpinWait();
+        }
+        return seen;
+    }
+
+    private record CountingSink(AtomicLong delivered) implements ChangeSink {
+
+        @Override
+        public CompletionStage<?> send(FeedEvent change) {
+            delivered.incrementAndGet();
+            return SENT;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class StalledSink implements ChangeSink {
+
+        @Override
+        public CompletionStage<?> send(FeedEvent change) {
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.redlich.beers;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-entity hot paths: response mapping, request mapping, hashing and
+ * driver document conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityBenchmark {
+
+    private Beer beer;
+
+    private BeerRequest request;
+
+    private Document document;
+
+    private Brewer brewer;
+
+    private Document brewerDocument;
+
+    @Setup
+    public void setUp() {
+        beer = Beer.builder()
+                .id(42)
+                .name("Lunch")
+                .type(BeerType.IPA)
+                .brewerId(7)
+                .abv(7.0)
+                .build();
+        request = new BeerRequest("Lunch", BeerType.IPA, 7, 7.0);
+        document = BeerDocuments.toDocument(beer);
+        brewer = DataGenerator.createBrewer();
+        brewerDocument = BrewerDocuments.toDocument(brewer);
+    }
+
+    @Benchmark
+    public BeerResponse beerResponseOf() {
+        return BeerResponse.of(beer);
+    }
+
+    @Benchmark
+    public Beer createBeer() {
+        return request.createBeer(42);
+    }
+
+    @Benchmark
+    public int beerHashCode() {
+        return beer.hashCode();
+    }
+
+    /**
+     * The same fields hashed without the varargs array and boxing of
+     * <code>Objects.hash</code>, as a baseline for {@link #beerHashCode()}.
+     */
+    @Benchmark
+    public int beerHashCodeUnboxed() {
+        int result = Integer.hashCode(beer.getId());
+        result = 31 * result + beer.getName().hashCode();
+        result = 31 * result + beer.getType().hashCode();
+        result = 31 * result + Integer.hashCode(beer.getBrewerId());
+        return 31 * result + Double.hashCode(beer.getAbv());
+    }
+
+    @Benchmark
+    public Document beerToDocument() {
+        return BeerDocuments.toDocument(beer);
+    }
+
+    @Benchmark
+    public Beer documentToBeer() {
+        return BeerDocuments.toBeer(document);
+    }
+
+    @Benchmark
+    public Document brewerToDocument() {
+        return BrewerDocuments.toDocument(brewer);
+    }
+
+    @Benchmark
+    public Brewer documentToBrewer() {
+        return BrewerDocuments.toBrewer(brewerDocument);
+    }
+}
@@ -0,0 +1,36 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoClient;
+import org.bson.Document;
+
+import java.util.List;
+
+/**
+ * Slows down the embedded mongod of the tests with the <code>failCommand</code>
+ * fail point, which needs <code>enableTestCommands</code>.
+ */
+final class FailPoints {
+
+    private FailPoints() {
+    }
+
+    /**
+     * Holds the connection of every query for the given time, so the
+     * connection pool fills and requests queue.
+     *
+     * @param admin       a client connected directly to the mongod
+     * @param blockMillis how long mongod holds every query, 0 to stop
+     */
+    static void blockQueries(MongoClient admin, long blockMillis) {
+        Document command = new Document("configureFailPoint", "failCommand");
+        if (blockMillis == 0) {
+            command.append("mode", "off");
+        } else {
+            command.append("mode", "alwaysOn")
+                    .append("data", new Document("failCommands", List.of("find", "aggregate", "getMore"))
+                            .append("blockConnection", true)
+                            .append("blockTimeMS", blockMillis));
+        }
+        admin.getDatabase("admin").runCommand(command);
+    }
+}
@@ -0,0 +1,147 @@
+package org.redlich.beers;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Closed-loop HTTP clients for the load simulations. Each client sends its
+ * next request once the previous response has been read, or after a pause
+ * when it was answered with 503. Requests are sent asynchronously, so
+ * thousands of clients do not need a thread each, but every one of them
+ * holds a connection; raise <code>ulimit -n</code> accordingly.
+ */
+final class HttpLoad {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final long shedPauseMillis;
+
+    /**
+     * @param shedPauseMillis how long a client waits after a 503 or an error
+     */
+    HttpLoad(long shedPauseMillis) {
+        this.shedPauseMillis = shedPauseMillis;
+    }
+
+    /**
+     * Runs one phase and waits for the requests still in flight at its end.
+     *
+     * @param clients     the group of every client
+     * @param nextRequest the GET request a client of a group sends next
+     */
+    List<PhaseResult> run(String phase, int seconds, List<OperationCost> clients,
+                          Function<OperationCost, URI> nextRequest) throws InterruptedException {
+        Map<OperationCost, Counters> counters = new EnumMap<>(OperationCost.class);
+        clients.forEach(cost -> counters.computeIfAbsent(cost, ignored -> new Counters()));
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(clients.size());
+        long start = System.nanoTime();
+        clients.forEach(cost -> send(cost, counters.get(cost), nextRequest, running, done));
+        TimeUnit.SECONDS.sleep(seconds);
+        running.set(false);
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        List<PhaseResult> results = new ArrayList<>();
+        counters.forEach((cost, phaseCounters) -> results.add(PhaseResult.of(phase, cost, phaseCounters, elapsed)));
+        return results;
+    }
+
+    private void send(OperationCost cost, Counters counters, Function<OperationCost, URI> nextRequest,
+                      AtomicBoolean running, CountDownLatch done) {
+        if (!running.get()) {
+            done.countDown();
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(nextRequest.apply(cost))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        long begin = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            long latency = Math.min(System.nanoTime() - begin, MAX_LATENCY_NANOS);
+            boolean pause = true;
+            if (failure != null || response.statusCode() >= 400 && response.statusCode() != 503) {
+                counters.errors.increment();
+            } else if (response.statusCode() == 503) {
+                counters.shed.increment();
+            } else {
+                counters.latencies.recordValue(latency);
+                pause = false;
+            }
+            if (pause) {
+                // also keeps a client whose requests fail at once off the stack
+                CompletableFuture.delayedExecutor(shedPauseMillis, TimeUnit.MILLISECONDS)
+                        .execute(() -> send(cost, counters, nextRequest, running, done));
+            } else {
+                send(cost, counters, nextRequest, running, done);
+            }
+        });
+    }
+
+    private static final class Counters {
+
+        final Recorder latencies = new Recorder(MAX_LATENCY_NANOS, 3);
+
+        final LongAdder shed = new LongAdder();
+
+        final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * Latencies are in milliseconds, of successful responses only, the body
+     * read to its end.
+     */
+    record PhaseResult(String phase,
+                       OperationCost cost,
+                       double completedPerSecond,
+                       double shedPerSecond,
+                       long errors,
+                       double p50Millis,
+                       double p99Millis,
+                       double p999Millis,
+                       double maxMillis) {
+
+        static PhaseResult of(String phase, OperationCost cost, Counters counters, long elapsedNanos) {
+            Histogram histogram = counters.latencies.getIntervalHistogram();
+            double seconds = elapsedNanos / 1e9;
+            return new PhaseResult(phase,
+                    cost,
+                    histogram.getTotalCount() / seconds,
+                    counters.shed.sum() / seconds,
+                    counters.errors.sum(),
+                    histogram.getValueAtPercentile(50) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getValueAtPercentile(99.9) / 1e6,
+                    histogram.getMaxValue() / 1e6);
+        }
+
+        String summary() {
+            return "%-10s %-9s ok %9.1f/s  503 %9.1f/s  p50 %8.1f ms  p99 %8.1f ms  p99.9 %8.1f ms  max %8.1f ms  errors %d"
+                    .formatted(phase, cost.label(), completedPerSecond, shedPerSecond,
+                            p50Millis, p99Millis, p999Millis, maxMillis, errors);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.redlich.beers;
+
+import org.bson.Document;
+import org.eclipse.jnosql.communication.document.DocumentEntity;
+import org.eclipse.jnosql.mapping.document.DocumentEntityConverter;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JNoSQL entity/document conversion, the mapping every repository call pays
+ * on top of the driver. Boots the same CDI container as the tests, but never
+ * opens a database connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JNoSqlConversionBenchmark {
+
+    private WeldContainer container;
+
+    private DocumentEntityConverter converter;
+
+    private Beer beer;
+
+    private DocumentEntity beerEntity;
+
+    private Document beerDocument;
+
+    private Brewer brewer;
+
+    private DocumentEntity brewerEntity;
+
+    @Setup
+    public void setUp() {
+        // nothing below connects, but the configuration must resolve
+        container = BenchmarkContainer.start("localhost:27017", false);
+        converter = container.select(DocumentEntityConverter.class).get();
+
+        List<Brewer> brewers = DataGenerator.createBrewers(1);
+        brewer = brewers.get(0);
+        beer = DataGenerator.createBeer(brewers);
+        beerEntity = converter.toDocument(beer);
+        beerDocument = BeerDocuments.toDocument(beer);
+        brewerEntity = converter.toDocument(brewer);
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.shutdown();
+    }
+
+    @Benchmark
+    public DocumentEntity beerToEntity() {
+        return converter.toDocument(beer);
+    }
+
+    @Benchmark
+    public Beer entityToBeer() {
+        return converter.toEntity(beerEntity);
+    }
+
+    /**
+     * What the list endpoints did per row before they projected straight
+     * into responses.
+     */
+    @Benchmark
+    public BeerResponse entityToResponse() {
+        return BeerResponse.of(converter.toEntity(beerEntity));
+    }
+
+    @Benchmark
+    public BeerResponse documentToResponse() {
+        return BeerDocuments.toResponse(beerDocument);
+    }
+
+    @Benchmark
+    public DocumentEntity brewerToEntity() {
+        return converter.toDocument(brewer);
+    }
+
+    @Benchmark
+    public Brewer entityToBrewer() {
+        return converter.toEntity(brewerEntity);
+    }
+}
@@ -0,0 +1,157 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.jboss.weld.environment.se.WeldContainer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Closed-loop HTTP clients against the beer resources, served by
+ * {@link org.redlich.beers.BenchmarkServer} over the embedded mongod of the
+ * tests, and admitted by {@link org.redlich.beers.LoadSheddingFilter}. The
+ * database is healthy, then throttled, then healthy again. While throttled,
+ * every query is held for <code>--block-millis</code> by the
+ * <code>failCommand</code> fail point, so the connection pool fills and
+ * requests queue.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=org.redlich.beers.LoadSheddingSimulation \
+ *     -Djmh.args="--clients 200 --seconds 20 --block-millis 200"
+ * </pre>
+ *
+ * Options: <code>--beers</code>, <code>--brewers</code>, <code>--clients</code>,
+ * <code>--expensive-percent</code> (the share of clients reading a page of
+ * the beers of ten brewers, the rest look up beers by id),
+ * <code>--seconds</code> per phase, <code>--block-millis</code>,
+ * <code>--worker-threads</code>, <code>--port</code>,
+ * <code>--shed-pause-millis</code> (how long a client waits after a 503) and
+ * <code>--no-limit</code>, which admits everything for a baseline.
+ *
+ * The entity cache is off, so that every lookup reaches the database.
+ */
+public final class LoadSheddingSimulation {
+
+    private final Options options;
+
+    private final BenchmarkServer server;
+
+    private final List<Brewer> brewers;
+
+    private LoadSheddingSimulation(Options options, BenchmarkServer server) {
+        this.options = options;
+        this.server = server;
+        this.brewers = DataGenerator.createBrewers(options.brewers());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        System.setProperty("beers.limiter.enabled", Boolean.toString(options.limited()));
+        System.setProperty("beers.entity-cache.maximum-size", "0");
+        String host = Database.INSTANCE.getConnectionString();
+        try (BenchmarkServer server = BenchmarkServer.start(host, options.port(), options.workerThreads());
+             MongoClient admin = MongoClients.create("mongodb://" + host + "/?directConnection=true")) {
+            LoadSheddingSimulation simulation = new LoadSheddingSimulation(options, server);
+            simulation.load();
+            ConcurrencyLimits concurrencyLimits = server.container().select(ConcurrencyLimits.class).get();
+            HttpLoad load = new HttpLoad(options.shedPauseMillis());
+            List<OperationCost> clients = simulation.clients();
+            for (String phase : List.of("healthy", "throttled", "recovered")) {
+                FailPoints.blockQueries(admin, "throttled".equals(phase) ? options.blockMillis() : 0);
+                load.run(phase, options.seconds(), clients, simulation::nextRequest)
+                        .forEach(result -> System.out.printf("%s  limit %5d%n", result.summary(),
+                                concurrencyLimits.limiter(result.cost()).limit()));
+            }
+        }
+    }
+
+    private void load() {
+        WeldContainer container = server.container();
+        BeerService beerService = container.select(BeerService.class).get();
+        BrewerService brewerService = container.select(BrewerService.class).get();
+        beerService.removeAll();
+        brewerService.removeAll();
+        brewerService.addAll(brewers);
+        List<Beer> beers = DataGenerator.createBeers(options.beers(), brewers);
+        for (int from = 0; from < beers.size(); from += 10_000) {
+            beerService.addAll(beers.subList(from, Math.min(from + 10_000, beers.size())));
+        }
+        System.out.printf("Loaded %d brewers and %d beers, %d clients, %s%n", brewers.size(), beers.size(),
+                options.clients(), options.limited() ? "limited" : "not limited");
+    }
+
+    private List<OperationCost> clients() {
+        int expensiveClients = options.clients() * options.expensivePercent() / 100;
+        List<OperationCost> clients = new ArrayList<>(options.clients());
+        for (int c = 0; c < options.clients(); c++) {
+            clients.add(c < expensiveClients ? OperationCost.EXPENSIVE : OperationCost.CHEAP);
+        }
+        return clients;
+    }
+
+    private URI nextRequest(OperationCost cost) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (cost == OperationCost.CHEAP) {
+            return server.uri("beer/" + (1 + random.nextInt(options.beers())));
+        }
+        String brewerIds = Stream.generate(() -> brewers.get(random.nextInt(brewers.size())).getId())
+                .limit(10)
+                .map(id -> "brewerId=" + id)
+                .collect(Collectors.joining("&"));
+        return server.uri("beer?" + brewerIds + "&size=20");
+    }
+
+    record Options(int beers,
+                   int brewers,
+                   int clients,
+                   int expensivePercent,
+                   int seconds,
+                   long blockMillis,
+                   int workerThreads,
+                   int port,
+                   long shedPauseMillis,
+                   boolean limited) {
+
+        static Options parse(String[] args) {
+            int beers = 10_000;
+            int brewers = 1_000;
+            int clients = 200;
+            int expensivePercent = 20;
+            int seconds = 20;
+            long blockMillis = 200;
+            int workerThreads = 200;
+            int port = 8181;
+            long shedPauseMillis = 50;
+            boolean limited = true;
+            for (int i = 0; i < args.length; i++) {
+                if ("--no-limit".equals(args[i])) {
+                    limited = false;
+                    continue;
+                }
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                switch (args[i++]) {
+                    case "--beers" -> beers = Integer.parseInt(value);
+                    case "--brewers" -> brewers = Integer.parseInt(value);
+                    case "--clients" -> clients = Integer.parseInt(value);
+                    case "--expensive-percent" -> expensivePercent = Integer.parseInt(value);
+                    case "--seconds" -> seconds = Integer.parseInt(value);
+                    case "--block-millis" -> blockMillis = Long.parseLong(value);
+                    case "--worker-threads" -> workerThreads = Integer.parseInt(value);
+                    case "--port" -> port = Integer.parseInt(value);
+                    case "--shed-pause-millis" -> shedPauseMillis = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+                }
+            }
+            return new Options(beers, brewers, clients, expensivePercent, seconds, blockMillis, workerThreads,
+                    port, shedPauseMillis, limited);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.redlich.beers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link org.redlich.beers.Instrumented} repository proxy over a
+ * repository that answers immediately, single-threaded and under contention.
+ * The plain proxy isolates the reflection cost from the recording cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    private BeerRepository stub;
+
+    private BeerRepository proxied;
+
+    private BeerRepository instrumented;
+
+    private LatencyHistogram histogram;
+
+    @Setup
+    public void setUp() {
+        Optional<Beer> beer = Optional.of(Beer.builder().id(1).name("Lunch").type(BeerType.IPA).brewerId(1).abv(7.0).build());
+        stub = (BeerRepository) Proxy.newProxyInstance(BeerRepository.class.getClassLoader(),
+                new Class<?>[]{BeerRepository.class}, (proxy, method, args) -> beer);
+        proxied = (BeerRepository) Proxy.newProxyInstance(BeerRepository.class.getClassLoader(),
+                new Class<?>[]{BeerRepository.class}, (proxy, method, args) -> method.invoke(stub, args));
+        instrumented = InstrumentedRepositories.instrument(BeerRepository.class, stub, new CatalogMetrics());
+        histogram = new LatencyHistogram();
+    }
+
+    @Benchmark
+    public Optional<Beer> direct() {
+        return stub.findById(1);
+    }
+
+    @Benchmark
+    public Optional<Beer> proxied() {
+        return proxied.findById(1);
+    }
+
+    @Benchmark
+    public Optional<Beer> instrumented() {
+        return instrumented.findById(1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<Beer> instrumentedContended() {
+        return instrumented.findById(1);
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(1_700_000);
+    }
+}
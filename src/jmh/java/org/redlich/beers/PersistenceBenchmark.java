@@ -0,0 +1,641 @@
+package org.redlich.beers;
+
+import jakarta.data.Sort;
+import jakarta.data.page.Pageable;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbConfig;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.jboss.weld.environment.se.WeldContainer;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end throughput and latency of every repository method and of the
+ * composite service operations, against the embedded mongod of the tests.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=org.redlich.beers.PersistenceBenchmark \
+ *     -Djmh.args="--beers 100000 --brewers 5000 --threads 1,8,32 --seconds 20"
+ * </pre>
+ *
+ * Options: <code>--beers</code>, <code>--brewers</code>, <code>--threads</code>
+ * (comma separated), <code>--warmup</code> and <code>--seconds</code> per run,
+ * <code>--scenarios</code> (a regex over scenario names), <code>--depths</code>
+ * (comma separated page numbers for the pagination sweep) and <code>--out</code>
+ * (JSON results, <code>target/persistence-benchmark.json</code> by default).
+ *
+ * The sweep reads the beers of every brewer, in name order, with offset and
+ * keyset pagination at each depth. Page 10000 needs at least 200000 beers;
+ * depths past the end of the catalog are skipped.
+ *
+ * Each scenario is split into an untimed preparation, which picks arguments
+ * or creates the data a destructive operation consumes, and the timed call.
+ *
+ * Lookups by id draw uniform ids, and Zipfian ids
+ * ({@link org.redlich.beers.ZipfianKeys}) both through the entity cache and
+ * straight from the repository, which is the same lookup with the cache
+ * disabled.
+ *
+ * The in-memory beer snapshot is enabled, so the <code>BeerSearch</code>
+ * scenarios compare it with the same search run by MongoDB, and the write
+ * scenarios include the cost of keeping it in sync.
+ */
+public final class PersistenceBenchmark {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * Matches every brewer, so the pagination sweep pages through the catalog.
+     */
+    private static final String ANY_BREWER = "%";
+
+    /**
+     * Batch sizes of the bulk write scenarios, each compared with as many
+     * single saves.
+     */
+    private static final List<Integer> BATCH_SIZES = List.of(1, 100, 1000);
+
+    private final Options options;
+
+    private final BeerRepository beerRepository;
+
+    private final BrewerRepository brewerRepository;
+
+    private final ReactiveBeerRepository reactiveBeerRepository;
+
+    private final BeerService beerService;
+
+    private final BrewerService brewerService;
+
+    private final BeersByBrewerAggregation beersByBrewerAggregation;
+
+    private final BeerSearch beerSearch;
+
+    private final List<Brewer> brewers;
+
+    private final AtomicInteger nextBeerId;
+
+    private final AtomicInteger nextBrewerId;
+
+    private PersistenceBenchmark(Options options, WeldContainer container) {
+        this.options = options;
+        this.beerRepository = container.select(BeerRepository.class).get();
+        this.brewerRepository = container.select(BrewerRepository.class).get();
+        this.reactiveBeerRepository = container.select(ReactiveBeerRepository.class).get();
+        this.beerService = container.select(BeerService.class).get();
+        this.brewerService = container.select(BrewerService.class).get();
+        this.beersByBrewerAggregation = container.select(BeersByBrewerAggregation.class).get();
+        this.beerSearch = container.select(BeerSearch.class).get();
+        this.brewers = DataGenerator.createBrewers(options.brewers());
+        // ids above the dataset, for scenarios that insert
+        this.nextBeerId = new AtomicInteger(options.beers() + 1_000_000);
+        this.nextBrewerId = new AtomicInteger(options.brewers() + 1_000_000);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        System.setProperty("beers.snapshot.enabled", "true");
+        // only the reactive repositories go through the DatabaseExecutor here
+        System.setProperty("beers.async.enabled", "true");
+        WeldContainer container = BenchmarkContainer.start(Database.INSTANCE.getConnectionString(), true);
+        try {
+            PersistenceBenchmark benchmark = new PersistenceBenchmark(options, container);
+            benchmark.load();
+            List<ScenarioResult> results = benchmark.run();
+            benchmark.write(results);
+        } finally {
+            container.shutdown();
+        }
+    }
+
+    private void load() {
+        beerService.removeAll();
+        brewerService.removeAll();
+        brewerService.addAll(brewers);
+        List<Beer> beers = DataGenerator.createBeers(options.beers(), brewers);
+        for (int from = 0; from < beers.size(); from += 10_000) {
+            beerService.addAll(beers.subList(from, Math.min(from + 10_000, beers.size())));
+        }
+        System.out.printf("Loaded %d brewers and %d beers%n", brewers.size(), beers.size());
+    }
+
+    private List<Scenario> scenarios() {
+        List<Scenario> scenarios = new ArrayList<>();
+
+        // BeerRepository
+        scenarios.add(new Scenario("BeerRepository.findAll",
+                random -> () -> consume(beerRepository.findAll())));
+        scenarios.add(new Scenario("BeerRepository.findById", random -> {
+            int id = 1 + random.nextInt(options.beers());
+            return () -> beerRepository.findById(id);
+        }));
+        scenarios.add(new Scenario("BeerRepository.findByBrewerIdIn", random -> {
+            List<Integer> ids = brewerIds(random, 10);
+            return () -> consume(beerRepository.findByBrewerIdIn(ids));
+        }));
+        scenarios.add(new Scenario("BeerRepository.findByBrewerIdIn(Pageable)", random -> {
+            List<Integer> ids = brewerIds(random, 10);
+            Pageable pageable = Pageable.ofSize(PAGE_SIZE).page(1 + random.nextInt(3))
+                    .sortBy(Sort.asc("name"), Sort.asc("id"));
+            return () -> beerRepository.findByBrewerIdIn(ids, pageable);
+        }));
+        scenarios.add(new Scenario("BeerRepository.findByBrewerIdInAndNameGreaterThan", random -> {
+            List<Integer> ids = brewerIds(random, 10);
+            String after = letter(random);
+            return () -> consume(beerRepository.findByBrewerIdInAndNameGreaterThan(ids, after,
+                    KeysetCursor.pageable(PAGE_SIZE)));
+        }));
+        scenarios.add(new Scenario("BeerRepository.findByBrewerIdInAndNameAndIdGreaterThan", random -> {
+            List<Integer> ids = brewerIds(random, 10);
+            String name = letter(random);
+            return () -> consume(beerRepository.findByBrewerIdInAndNameAndIdGreaterThan(ids, name, 0,
+                    KeysetCursor.pageable(PAGE_SIZE)));
+        }));
+        scenarios.add(new Scenario("BeerRepository.findByAbvBetween", random -> {
+            double minAbv = random.nextDouble(0, 95);
+            return () -> beerRepository.findByAbvBetween(minAbv, minAbv + 5, abvPage());
+        }));
+        scenarios.add(new Scenario("BeerRepository.findByTypeInAndAbvBetween", random -> {
+            List<BeerType> types = types(random);
+            double minAbv = random.nextDouble(0, 80);
+            return () -> beerRepository.findByTypeInAndAbvBetween(types, minAbv, minAbv + 20, abvPage());
+        }));
+        scenarios.add(new Scenario("BeerRepository.findByBrewerIdInAndTypeInAndAbvBetween", random -> {
+            List<Integer> ids = brewerIds(random, 10);
+            List<BeerType> types = types(random);
+            double minAbv = random.nextDouble(0, 80);
+            return () -> beerRepository.findByBrewerIdInAndTypeInAndAbvBetween(ids, types, minAbv, minAbv + 20,
+                    abvPage());
+        }));
+        scenarios.add(new Scenario("BeerRepository.query", random -> {
+            String name = beerRepository.findById(1 + random.nextInt(options.beers()))
+                    .map(Beer::getName).orElse("Stout");
+            return () -> beerRepository.query(name);
+        }));
+        scenarios.add(new Scenario("BeerRepository.save", random -> {
+            Beer beer = newBeer(random);
+            return () -> beerRepository.save(beer);
+        }));
+        scenarios.add(new Scenario("BeerRepository.remove", random -> {
+            Beer beer = beerRepository.save(newBeer(random));
+            return () -> beerRepository.remove(beer);
+        }));
+        scenarios.add(new Scenario("BeerRepository.deleteByBrewerId", random -> {
+            int brewerId = nextBrewerId.incrementAndGet();
+            IntStream.range(0, 10).forEach(i -> beerRepository.save(newBeer(random, brewerId)));
+            return () -> beerRepository.deleteByBrewerId(brewerId);
+        }));
+        // deleteAll empties the dataset, so it is timed once
+        scenarios.add(new Scenario("BeerRepository.deleteAll", null));
+
+        // BrewerRepository
+        scenarios.add(new Scenario("BrewerRepository.findAll",
+                random -> () -> consume(brewerRepository.findAll())));
+        scenarios.add(new Scenario("BrewerRepository.findById", random -> {
+            int id = brewer(random).getId();
+            return () -> brewerRepository.findById(id);
+        }));
+        scenarios.add(new Scenario("BrewerRepository.findByNameLike", random -> {
+            String pattern = namePattern(random);
+            return () -> consume(brewerRepository.findByNameLike(pattern));
+        }));
+        scenarios.add(new Scenario("BrewerRepository.findByNameLike(Pageable)", random -> {
+            String pattern = namePattern(random);
+            Pageable pageable = Pageable.ofSize(PAGE_SIZE).sortBy(Sort.asc("name"), Sort.asc("id"));
+            return () -> brewerRepository.findByNameLike(pattern, pageable);
+        }));
+        scenarios.add(new Scenario("BrewerRepository.findByNameLikeAndNameGreaterThan", random -> {
+            String pattern = namePattern(random);
+            return () -> consume(brewerRepository.findByNameLikeAndNameGreaterThan(pattern, "",
+                    KeysetCursor.pageable(PAGE_SIZE)));
+        }));
+        scenarios.add(new Scenario("BrewerRepository.findByNameLikeAndNameAndIdGreaterThan", random -> {
+            Brewer brewer = brewer(random);
+            return () -> consume(brewerRepository.findByNameLikeAndNameAndIdGreaterThan("%", brewer.getName(),
+                    brewer.getId(), KeysetCursor.pageable(PAGE_SIZE)));
+        }));
+        scenarios.add(new Scenario("BrewerRepository.save", random -> {
+            Brewer brewer = newBrewer();
+            return () -> brewerRepository.save(brewer);
+        }));
+        scenarios.add(new Scenario("BrewerRepository.remove", random -> {
+            Brewer brewer = brewerRepository.save(newBrewer());
+            return () -> brewerRepository.remove(brewer);
+        }));
+        scenarios.add(new Scenario("BrewerRepository.deleteAll", null));
+
+        // composite service operations
+        scenarios.add(new Scenario("BeerService.listBeers", random -> () -> consume(beerService.listBeers())));
+        Fieldset<BeerResponse> allFields = Fieldset.parse(null, BeerDocuments.RESPONSE_FIELDS, BeerDocuments::fieldOf);
+        Fieldset<BeerResponse> nameAndAbv = Fieldset.parse("name,abv", BeerDocuments.RESPONSE_FIELDS,
+                BeerDocuments::fieldOf);
+        scenarios.add(new Scenario("BeerService.listBeerResponses",
+                random -> () -> consume(beerService.listBeerResponses(allFields))));
+        scenarios.add(new Scenario("BeerService.listBeerResponses(name,abv)",
+                random -> () -> consume(beerService.listBeerResponses(nameAndAbv).map(nameAndAbv::select))));
+        scenarios.add(new Scenario("BeerService.findById", random -> {
+            int id = 1 + random.nextInt(options.beers());
+            return () -> beerService.findById(id);
+        }));
+        // skewed reads, through the entity cache and past it on the repository
+        ZipfianKeys popularBeers = new ZipfianKeys(options.beers(), ZipfianKeys.DEFAULT_THETA);
+        scenarios.add(new Scenario("BeerService.findById zipfian (cache enabled)", random -> {
+            int id = popularBeers.next(random);
+            return () -> beerService.findById(id);
+        }));
+        scenarios.add(new Scenario("BeerRepository.findById zipfian (cache disabled)", random -> {
+            int id = popularBeers.next(random);
+            return () -> beerRepository.findById(id);
+        }));
+        scenarios.add(new Scenario("BeerService.listBeersByBrewer", random -> {
+            String pattern = namePattern(random);
+            return () -> consume(beerService.listBeersByBrewer(pattern));
+        }));
+        scenarios.add(new Scenario("BeerService.listBeersByBrewer(Pageable)", random -> {
+            String pattern = namePattern(random);
+            Pageable pageable = Pageable.ofSize(PAGE_SIZE).sortBy(Sort.asc("name"), Sort.asc("id"));
+            return () -> beerService.listBeersByBrewer(pattern, pageable);
+        }));
+        scenarios.add(new Scenario("BeerService.listBeersByBrewer(KeysetCursor)", random -> {
+            String pattern = namePattern(random);
+            return () -> beerService.listBeersByBrewer(pattern, null, PAGE_SIZE);
+        }));
+        for (int depth : options.depths()) {
+            if ((long) (depth - 1) * PAGE_SIZE >= options.beers()) {
+                System.out.printf("Skipping page %d, %d beers fill %d pages%n", depth, options.beers(),
+                        (options.beers() + PAGE_SIZE - 1) / PAGE_SIZE);
+                continue;
+            }
+            Pageable offsetPage = Pageable.ofSize(PAGE_SIZE).page(depth).sortBy(Sort.asc("name"), Sort.asc("id"));
+            KeysetCursor cursor = cursorBefore(depth);
+            scenarios.add(new Scenario("BeerService.listBeersByBrewer(Pageable) page " + depth,
+                    random -> () -> beerService.listBeersByBrewer(ANY_BREWER, offsetPage)));
+            scenarios.add(new Scenario("BeerService.listBeersByBrewer(KeysetCursor) page " + depth,
+                    random -> () -> beerService.listBeersByBrewer(ANY_BREWER, cursor, PAGE_SIZE)));
+        }
+        scenarios.add(new Scenario("BeersByBrewerAggregation.find", random -> {
+            String pattern = namePattern(random);
+            return () -> consume(beersByBrewerAggregation.find(pattern));
+        }));
+        // what the aggregation replaces: two round trips, without the caches and the name index
+        scenarios.add(new Scenario("BrewerRepository.findByNameLike + BeerRepository.findByBrewerIdIn", random -> {
+            String pattern = namePattern(random);
+            return () -> {
+                List<Integer> ids;
+                try (Stream<Brewer> matching = brewerRepository.findByNameLike(pattern)) {
+                    ids = matching.map(Brewer::getId).toList();
+                }
+                consume(beerRepository.findByBrewerIdIn(ids));
+            };
+        }));
+        scenarios.add(new Scenario("BeerSearch.search", random -> {
+            BeerFilter filter = searchFilter(random);
+            return () -> beerSearch.search(filter, PAGE_SIZE);
+        }));
+        scenarios.add(new Scenario("BeerSearch.searchDatabase", random -> {
+            BeerFilter filter = searchFilter(random);
+            return () -> beerSearch.searchDatabase(filter, PAGE_SIZE);
+        }));
+        scenarios.add(new Scenario("ReactiveBeerRepository.findAll",
+                random -> () -> consume(reactiveBeerRepository.findAll())));
+        for (int batchSize : BATCH_SIZES) {
+            scenarios.add(new Scenario("BeerService.addAll(" + batchSize + ")", random -> {
+                List<Beer> beers = Stream.generate(() -> newBeer(random)).limit(batchSize).toList();
+                return () -> beerService.addAll(beers);
+            }));
+            scenarios.add(new Scenario("BeerRepository.save x" + batchSize, random -> {
+                List<Beer> beers = Stream.generate(() -> newBeer(random)).limit(batchSize).toList();
+                return () -> beers.forEach(beerRepository::save);
+            }));
+        }
+        scenarios.add(new Scenario("BrewerService.remove", random -> {
+            Brewer brewer = brewerService.add(newBrewer());
+            beerService.addAll(Stream.generate(() -> newBeer(random, brewer.getId())).limit(10).toList());
+            return () -> brewerService.remove(brewer.getId());
+        }));
+        return scenarios;
+    }
+
+    private List<ScenarioResult> run() throws InterruptedException {
+        List<ScenarioResult> results = new ArrayList<>();
+        List<Scenario> destructive = new ArrayList<>();
+        for (Scenario scenario : scenarios()) {
+            if (!options.scenarios().matcher(scenario.name()).find()) {
+                continue;
+            }
+            if (scenario.prepare() == null) {
+                destructive.add(scenario);
+                continue;
+            }
+            for (int threads : options.threads()) {
+                measure(scenario, threads, options.warmupSeconds());
+                ScenarioResult result = measure(scenario, threads, options.seconds());
+                System.out.println(result.summary());
+                results.add(result);
+            }
+        }
+        for (Scenario scenario : destructive) {
+            Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+            long start = System.nanoTime();
+            if (scenario.name().startsWith("Beer")) {
+                beerRepository.deleteAll();
+            } else {
+                brewerRepository.deleteAll();
+            }
+            long elapsed = System.nanoTime() - start;
+            recorder.recordValue(Math.min(elapsed, MAX_LATENCY_NANOS));
+            ScenarioResult result = ScenarioResult.of(scenario.name(), 1, recorder.getIntervalHistogram(), 0, elapsed);
+            System.out.println(result.summary());
+            results.add(result);
+        }
+        return results;
+    }
+
+    private ScenarioResult measure(Scenario scenario, int threads, int seconds) throws InterruptedException {
+        Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+        LongAdder errors = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (running.get()) {
+                        Runnable call = scenario.prepare().apply(random);
+                        long begin = System.nanoTime();
+                        try {
+                            call.run();
+                            recorder.recordValue(Math.min(System.nanoTime() - begin, MAX_LATENCY_NANOS));
+                        } catch (RuntimeException e) {
+                            errors.increment();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "persistence-benchmark-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        TimeUnit.SECONDS.sleep(seconds);
+        running.set(false);
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        return ScenarioResult.of(scenario.name(), threads, recorder.getIntervalHistogram(), errors.sum(), elapsed);
+    }
+
+    private void write(List<ScenarioResult> results) throws Exception {
+        Results document = new Results(Instant.now().toString(), Runtime.version().toString(),
+                options.beers(), options.brewers(), options.seconds(), results);
+        Path out = options.out();
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        try (Jsonb jsonb = JsonbBuilder.create(new JsonbConfig().withFormatting(true));
+             Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            jsonb.toJson(document, writer);
+        }
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    private Beer newBeer(ThreadLocalRandom random) {
+        return newBeer(random, brewer(random).getId());
+    }
+
+    private Beer newBeer(ThreadLocalRandom random, int brewerId) {
+        return Beer.builder()
+                .id(nextBeerId.incrementAndGet())
+                .name("Benchmark " + letter(random) + random.nextInt(1_000_000))
+                .type(BeerType.values()[random.nextInt(BeerType.values().length)])
+                .brewerId(brewerId)
+                .abv(random.nextDouble(0.5, 15.0))
+                .build();
+    }
+
+    private Brewer newBrewer() {
+        int id = nextBrewerId.incrementAndGet();
+        return Brewer.builder()
+                .id(id)
+                .name("Benchmark Brewer " + id)
+                .city("Portland")
+                .state("Maine")
+                .build();
+    }
+
+    /**
+     * The position a client reaches after reading the pages before
+     * <code>page</code> with keyset pagination, found untimed by offset.
+     */
+    private KeysetCursor cursorBefore(int page) {
+        if (page == 1) {
+            return null;
+        }
+        Pageable previous = Pageable.ofSize(PAGE_SIZE).page(page - 1).sortBy(Sort.asc("name"), Sort.asc("id"));
+        List<Beer> beers = beerService.listBeersByBrewer(ANY_BREWER, previous).content();
+        Beer last = beers.get(beers.size() - 1);
+        return new KeysetCursor(last.getName(), last.getId());
+    }
+
+    private Brewer brewer(ThreadLocalRandom random) {
+        return brewers.get(random.nextInt(brewers.size()));
+    }
+
+    private List<Integer> brewerIds(ThreadLocalRandom random, int count) {
+        return IntStream.range(0, count).mapToObj(i -> brewer(random).getId()).toList();
+    }
+
+    /**
+     * The first page of the filtered beer endpoint, in its abv and id order.
+     */
+    private static Pageable abvPage() {
+        return Pageable.ofSize(PAGE_SIZE).sortBy(Sort.asc("abv"), Sort.asc("id"));
+    }
+
+    private static List<BeerType> types(ThreadLocalRandom random) {
+        BeerType[] types = BeerType.values();
+        return List.copyOf(EnumSet.of(types[random.nextInt(types.length)], types[random.nextInt(types.length)]));
+    }
+
+    /**
+     * Two types, a 20% abv window and the brewers of one state, resolved
+     * untimed like the brewer ids of the other scenarios.
+     */
+    private BeerFilter searchFilter(ThreadLocalRandom random) {
+        double minAbv = random.nextDouble(0, 80);
+        String state = brewer(random).getState();
+        List<Integer> brewerIds = brewers.stream()
+                .filter(brewer -> state.equals(brewer.getState()))
+                .map(Brewer::getId)
+                .toList();
+        return new BeerFilter(EnumSet.copyOf(types(random)), minAbv, minAbv + 20, brewerIds);
+    }
+
+    /**
+     * A prefix of an existing brewer name, so patterns match a handful of brewers.
+     */
+    private String namePattern(ThreadLocalRandom random) {
+        String name = brewer(random).getName();
+        return name.substring(0, Math.min(name.length(), 4)) + "%";
+    }
+
+    private static String letter(ThreadLocalRandom random) {
+        return String.valueOf((char) ('A' + random.nextInt(26)));
+    }
+
+    private static long consume(Stream<?> stream) {
+        try (stream) {
+            return stream.count();
+        }
+    }
+
+    /**
+     * Requests in batches and waits until the publisher completes.
+     */
+    private static long consume(Flow.Publisher<?> publisher) {
+        int batch = 256;
+        CompletableFuture<Long> count = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<Object>() {
+
+            private Flow.Subscription subscription;
+
+            private long received;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(batch);
+            }
+
+            @Override
+            public void onNext(Object item) {
+                if (++received % batch == 0) {
+                    subscription.request(batch);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                count.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                count.complete(received);
+            }
+        });
+        return count.join();
+    }
+
+    record Scenario(String name, Function<ThreadLocalRandom, Runnable> prepare) {
+    }
+
+    /**
+     * Latencies are in microseconds.
+     */
+    public record ScenarioResult(String scenario,
+                                 int threads,
+                                 long operations,
+                                 long errors,
+                                 double throughputPerSecond,
+                                 double meanMicros,
+                                 double p50Micros,
+                                 double p90Micros,
+                                 double p99Micros,
+                                 double p999Micros,
+                                 double maxMicros) {
+
+        static ScenarioResult of(String scenario, int threads, Histogram histogram, long errors, long elapsedNanos) {
+            long operations = histogram.getTotalCount();
+            return new ScenarioResult(scenario,
+                    threads,
+                    operations,
+                    errors,
+                    operations / (elapsedNanos / 1e9),
+                    histogram.getMean() / 1e3,
+                    histogram.getValueAtPercentile(50) / 1e3,
+                    histogram.getValueAtPercentile(90) / 1e3,
+                    histogram.getValueAtPercentile(99) / 1e3,
+                    histogram.getValueAtPercentile(99.9) / 1e3,
+                    histogram.getMaxValue() / 1e3);
+        }
+
+        String summary() {
+            return "%-60s %3d threads %10.1f ops/s  p50 %9.1f us  p99 %9.1f us  p99.9 %9.1f us  errors %d"
+                    .formatted(scenario, threads, throughputPerSecond, p50Micros, p99Micros, p999Micros, errors);
+        }
+    }
+
+    public record Results(String startedAt,
+                          String javaVersion,
+                          int beers,
+                          int brewers,
+                          int secondsPerRun,
+                          List<ScenarioResult> results) {
+    }
+
+    record Options(int beers,
+                   int brewers,
+                   List<Integer> threads,
+                   int warmupSeconds,
+                   int seconds,
+                   Pattern scenarios,
+                   List<Integer> depths,
+                   Path out) {
+
+        static Options parse(String[] args) {
+            int beers = 10_000;
+            int brewers = 1_000;
+            List<Integer> threads = List.of(1, 8);
+            int warmupSeconds = 3;
+            int seconds = 10;
+            Pattern scenarios = Pattern.compile("");
+            List<Integer> depths = List.of(1, 100, 10_000);
+            Path out = Path.of("target", "persistence-benchmark.json");
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                switch (args[i++]) {
+                    case "--beers" -> beers = Integer.parseInt(value);
+                    case "--brewers" -> brewers = Integer.parseInt(value);
+                    case "--threads" -> threads = Arrays.stream(value.split(",")).map(String::trim)
+                            .map(Integer::valueOf).toList();
+                    case "--warmup" -> warmupSeconds = Integer.parseInt(value);
+                    case "--seconds" -> seconds = Integer.parseInt(value);
+                    case "--scenarios" -> scenarios = Pattern.compile(value);
+                    case "--depths" -> depths = Arrays.stream(value.split(",")).map(String::trim)
+                            .map(Integer::valueOf).toList();
+                    case "--out" -> out = Path.of(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+                }
+            }
+            return new Options(beers, brewers, threads, warmupSeconds, seconds, scenarios, depths, out);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.redlich.beers;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost of writing a list response body: JSON-B, the binary record format,
+ * gzip on top of JSON, and a <code>?fields=name,abv</code> sparse fieldset.
+ * The encoded sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Jsonb jsonb;
+
+    private List<BeerResponse> beers;
+
+    private Fieldset<BeerResponse> nameAndAbv;
+
+    @Setup
+    public void setUp() throws IOException {
+        jsonb = JsonbBuilder.create();
+        beers = DataGenerator.createBeers(size, DataGenerator.createBrewers(10)).stream()
+                .map(BeerResponse::of)
+                .toList();
+        nameAndAbv = Fieldset.parse("name,abv", BeerDocuments.RESPONSE_FIELDS, BeerDocuments::fieldOf);
+        System.out.printf("%n%d beers: json %d bytes, binary %d bytes, gzipped json %d bytes, sparse json %d bytes%n",
+                size, json().length, binary().length, gzippedJson().length, sparseJson().length);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public byte[] json() {
+        return jsonb.toJson(beers).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] sparseJson() {
+        return jsonb.toJson(beers.stream().map(nameAndAbv::select).toList()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] binary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        for (BeerResponse beer : beers) {
+            BinaryRecords.write(out, beer, buffer);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] gzippedJson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            jsonb.toJson(beers, gzip);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,77 @@
+package org.redlich.beers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Brewer name LIKE lookups through the trigram index, against a regex scan
+ * over every name, which is what the database does without a usable index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TrigramIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "Maine", "Allagash", "Ommegang", "Hill", "Farmstead", "Tree", "House", "Other", "Half",
+            "Acre", "Stone", "Russian", "River", "Bell", "Founders", "Cellar", "Creek", "Harbor"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    public int brewers;
+
+    @Param({"%Brewing 4242%", "Maine%", "%River Cellar%"})
+    public String pattern;
+
+    private TrigramIndex index;
+
+    private List<String> names;
+
+    private Pattern regex;
+
+    @Setup
+    public void setUp() {
+        index = new TrigramIndex();
+        names = new ArrayList<>(brewers);
+        for (int i = 0; i < brewers; i++) {
+            String name = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length]
+                    + " Brewing " + i;
+            names.add(name);
+            index.put(i, name);
+        }
+        regex = LikePattern.toRegex(pattern);
+    }
+
+    @Benchmark
+    public List<Integer> trigramSearch() {
+        return index.search(pattern);
+    }
+
+    @Benchmark
+    public List<Integer> regexScan() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (regex.matcher(names.get(i)).matches()) {
+                ids.add(i);
+            }
+        }
+        return ids;
+    }
+}
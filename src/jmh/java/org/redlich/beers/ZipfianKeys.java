@@ -0,0 +1,77 @@
+package org.redlich.beers;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws ids from 1 to n with a Zipfian distribution, so a few ids are read
+ * most of the time, as with popular beers. Uses the method of Gray et al.,
+ * <i>Quickly Generating Billion-Record Synthetic Databases</i>, as YCSB does.
+ * Ranks are mapped to ids through a fixed random permutation, so the popular
+ * ids are spread over the collection instead of being 1, 2, 3.
+ */
+final class ZipfianKeys {
+
+    /**
+     * The skew YCSB uses by default: of a million ids, fewer than a thousand
+     * draw half of the reads.
+     */
+    static final double DEFAULT_THETA = 0.99;
+
+    private final int[] idsByRank;
+
+    private final double theta;
+
+    private final double alpha;
+
+    private final double zetaN;
+
+    private final double eta;
+
+    ZipfianKeys(int n, double theta) {
+        if (n < 2) {
+            throw new IllegalArgumentException("n must be at least 2, was " + n);
+        }
+        this.theta = theta;
+        this.idsByRank = shuffledIds(n);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetaN = zeta(n, theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+    }
+
+    int next(ThreadLocalRandom random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        int rank;
+        if (uz < 1.0) {
+            rank = 0;
+        } else if (uz < 1.0 + Math.pow(0.5, theta)) {
+            rank = 1;
+        } else {
+            rank = (int) (idsByRank.length * Math.pow(eta * u - eta + 1, alpha));
+        }
+        return idsByRank[Math.min(rank, idsByRank.length - 1)];
+    }
+
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    private static int[] shuffledIds(int n) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,170 @@
+package org.redlich.beers;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>AdaptiveLimiter class.</p>
+ *
+ * A concurrency limit that follows the observed latency, in the style of a
+ * gradient limiter. A long-term average of the round-trip time is compared
+ * with each new sample. While samples stay within {@value #TOLERANCE} times
+ * the average, the limit grows by its square root. When they rise above it,
+ * the limit shrinks in proportion, down to half per sample. Failed calls cut
+ * the limit by {@value #BACKOFF_RATIO} like the decrease of AIMD. Changes are
+ * smoothed and kept between the configured minimum and maximum.
+ *
+ * The limit only grows while at least half of it is in use, since latency
+ * under light load says nothing about capacity. A permit that is never
+ * released is reclaimed as failed after the lease timeout, so a lost
+ * response cannot shrink capacity for good.
+ */
+final class AdaptiveLimiter {
+
+    private static final double TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /**
+     * Samples averaged by the long-term round-trip time.
+     */
+    private static final int LONG_WINDOW = 600;
+
+    /**
+     * A permit to run one call, released with its outcome.
+     */
+    static final class Permit {
+
+        private final long startNanos;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+            }
+        }
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long leaseTimeoutNanos;
+
+    /**
+     * Permits in flight, oldest first.
+     */
+    private final Set<Permit> leases = new LinkedHashSet<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private double limit;
+
+    private double longRttNanos;
+
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, long leaseTimeoutNanos) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.leaseTimeoutNanos = leaseTimeoutNanos;
+        this.limit = clamp(initialLimit);
+        }
+
+    /**
+     * <p>tryAcquire.</p>
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return a permit, or empty when the limit is reached
+     */
+    synchronized Optional<Permit> tryAcquire(long nowNanos) {
+        if (leases.size() >= (int) limit) {
+            reapExpired(nowNanos);
+            if (leases.size() >= (int) limit) {
+                rejected.increment();
+                return Optional.empty();
+                }
+            }
+        Permit permit = new Permit(nowNanos);
+        leases.add(permit);
+        return Optional.of(permit);
+        }
+
+    /**
+     * <p>release.</p>
+     *
+     * @param permit a permit of this limiter
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @param failed whether the call failed in a way that signals overload
+     */
+    synchronized void release(Permit permit, long nowNanos, boolean failed) {
+        int inFlight = leases.size();
+        if (!leases.remove(permit)) {
+            // reclaimed after the lease timeout already
+            return;
+            }
+        if (failed) {
+            backOff();
+            return;
+            }
+        long rtt = Math.max(1, nowNanos - permit.startNanos);
+        longRttNanos = longRttNanos == 0 ? rtt : longRttNanos + (rtt - longRttNanos) / LONG_WINDOW;
+        if (longRttNanos > 2 * rtt) {
+            // latency dropped for good, let the average catch up faster
+            longRttNanos *= 0.95;
+            }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / rtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        if (target > limit && inFlight < limit / 2) {
+            return;
+            }
+        limit = clamp(limit * (1 - SMOOTHING) + target * SMOOTHING);
+        }
+
+    /**
+     * <p>limit.</p>
+     *
+     * @return the current limit
+     */
+    synchronized int limit() {
+        return (int) limit;
+        }
+
+    /**
+     * <p>inFlight.</p>
+     *
+     * @return the number of permits held
+     */
+    synchronized int inFlight() {
+        return leases.size();
+        }
+
+    /**
+     * <p>rejected.</p>
+     *
+     * @return the number of calls rejected so far
+     */
+    long rejected() {
+        return rejected.sum();
+        }
+
+    private void reapExpired(long nowNanos) {
+        Iterator<Permit> oldest = leases.iterator();
+        while (oldest.hasNext()) {
+            Permit permit = oldest.next();
+            if (nowNanos - permit.startNanos < leaseTimeoutNanos) {
+                return;
+                }
+            oldest.remove();
+            backOff();
+            }
+        }
+
+    private void backOff() {
+        limit = clamp(limit * BACKOFF_RATIO);
+        }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+        }
+    }
@@ -0,0 +1,49 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.List;
+
+/**
+ * <p>AdminResources class.</p>
+ *
+ * Operational views of the database access layer.
+ */
+@Path("admin")
+@ApplicationScoped
+@Produces(MediaType.APPLICATION_JSON)
+public class AdminResources {
+
+    @Inject
+    QueryPlanReport queryPlanReport;
+
+    @Inject
+    SlowQueryLog slowQueryLog;
+
+    /**
+     * <p>listQueryPlans.</p>
+     *
+     * @return a {@link java.util.List} object
+     */
+    @GET
+    @Path("/query-plans")
+    public List<QueryPlanResponse> listQueryPlans() {
+        return queryPlanReport.explainAll();
+        }
+
+    /**
+     * <p>listSlowQueries.</p>
+     *
+     * @return the slowest repository methods since startup, with sampled plans
+     */
+    @GET
+    @Path("/slow-queries")
+    public List<SlowQueryResponse> listSlowQueries() {
+        return slowQueryLog.slowest();
+        }
+    }
@@ -0,0 +1,15 @@
+package org.redlich.beers;
+
+import java.util.List;
+
+public record BatchItemResponse(int id, boolean success, List<String> messages) {
+
+    static BatchItemResponse ok(int id) {
+        return new BatchItemResponse(id, true, List.of());
+        }
+
+    static BatchItemResponse failed(int id, List<String> messages) {
+        return new BatchItemResponse(id, false, messages);
+        }
+
+    }
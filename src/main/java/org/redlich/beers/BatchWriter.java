@@ -0,0 +1,274 @@
+package org.redlich.beers;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * <p>BatchWriter class.</p>
+ *
+ * Validates a batch of entities and writes the valid ones as unordered bulk
+ * upserts, so one failing document does not stop the rest. Like
+ * <code>save</code>, an entity replaces any document with the same id.
+ *
+ * The variant taking <code>previousFields</code> also returns the documents
+ * it replaced, read by the writes themselves, so a concurrent write cannot
+ * slip in between the read and the write.
+ *
+ * Every entity written is announced to the {@link org.redlich.beers.LocalWrites},
+ * and withdrawn again when it was not written.
+ */
+@ApplicationScoped
+public class BatchWriter {
+
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    LocalWrites localWrites;
+
+    @Inject
+    @ConfigProperty(name = "beers.batch.size", defaultValue = "1000")
+    int batchSize;
+
+    private ValidatorFactory validatorFactory;
+
+    private Validator validator;
+
+    @PostConstruct
+    void start() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        }
+
+    @PreDestroy
+    void stop() {
+        validatorFactory.close();
+        }
+
+    /**
+     * <p>write.</p>
+     *
+     * @param collection the name of the collection to write to
+     * @param entities the entities to write
+     * @param idOf the id of an entity
+     * @param toDocument the document of an entity
+     * @param <T> the entity type
+     * @return one result per entity, in the order of the entities
+     */
+    public <T> List<BatchItemResponse> write(String collection, List<T> entities,
+                                             ToIntFunction<T> idOf, Function<T, Document> toDocument) {
+        BatchItemResponse[] results = new BatchItemResponse[entities.size()];
+        List<Integer> valid = validate(entities, idOf, results);
+        MongoCollection<Document> documents = database.getCollection(collection);
+        for (int from = 0; from < valid.size(); from += batchSize) {
+            List<Integer> batch = valid.subList(from, Math.min(valid.size(), from + batchSize));
+            List<WriteModel<Document>> models = new ArrayList<>(batch.size());
+            for (int index : batch) {
+                T entity = entities.get(index);
+                int id = idOf.applyAsInt(entity);
+                localWrites.saving(collection, id, entity);
+                models.add(new ReplaceOneModel<>(
+                        Filters.eq("_id", id),
+                        toDocument.apply(entity),
+                        new ReplaceOptions().upsert(true)));
+                }
+            write(documents, models, batch, entities, idOf, results);
+            settle(collection, batch, entities, idOf, results);
+            }
+        return Arrays.asList(results);
+        }
+
+    /**
+     * <p>write.</p>
+     *
+     * Inserts the entities whose ids are new in one unordered bulk write, then
+     * replaces the others one by one, each returning the document it replaced.
+     * A batch of new entities costs what {@link #write(String, List, ToIntFunction, Function)}
+     * does; every replacement costs a round trip of its own.
+     *
+     * @param collection the name of the collection to write to
+     * @param entities the entities to write
+     * @param idOf the id of an entity
+     * @param toDocument the document of an entity
+     * @param previousFields the projection of the replaced documents
+     * @param <T> the entity type
+     * @return one result per entity, and the replaced documents by id
+     */
+    public <T> Written write(String collection, List<T> entities, ToIntFunction<T> idOf,
+                             Function<T, Document> toDocument, Bson previousFields) {
+        BatchItemResponse[] results = new BatchItemResponse[entities.size()];
+        List<Integer> valid = validate(entities, idOf, results);
+        Map<Integer, Document> replaced = new HashMap<>();
+        MongoCollection<Document> documents = database.getCollection(collection);
+        for (int from = 0; from < valid.size(); from += batchSize) {
+            List<Integer> batch = valid.subList(from, Math.min(valid.size(), from + batchSize));
+            List<WriteModel<Document>> models = new ArrayList<>(batch.size());
+            for (int index : batch) {
+                T entity = entities.get(index);
+                int id = idOf.applyAsInt(entity);
+                localWrites.saving(collection, id, entity);
+                Document document = new Document(toDocument.apply(entity));
+                document.remove("_id");
+                models.add(new UpdateOneModel<>(
+                        Filters.eq("_id", id),
+                        new Document("$setOnInsert", document),
+                        new UpdateOptions().upsert(true)));
+                }
+            List<Integer> existing = insertAbsent(documents, models, batch, entities, idOf, results);
+            // an upsert that found its document changed nothing
+            settle(collection, batch, entities, idOf, results);
+            for (int index : existing) {
+                T entity = entities.get(index);
+                int id = idOf.applyAsInt(entity);
+                try {
+                    Document previous = replace(collection, documents, entity, id, toDocument.apply(entity),
+                            previousFields);
+                    if (previous != null) {
+                        replaced.put(id, previous);
+                        }
+                    results[index] = BatchItemResponse.ok(id);
+                    } catch (MongoException e) {
+                    results[index] = BatchItemResponse.failed(id, List.of(e.getMessage()));
+                    }
+                }
+            }
+        return new Written(Arrays.asList(results), replaced);
+        }
+
+    private <T> Document replace(String collection, MongoCollection<Document> documents, T entity, int id,
+                                 Document document, Bson previousFields) {
+        localWrites.saving(collection, id, entity);
+        try {
+            return documents.findOneAndReplace(Filters.eq("_id", id), document,
+                    new FindOneAndReplaceOptions()
+                            .upsert(true)
+                            .returnDocument(ReturnDocument.BEFORE)
+                            .projection(previousFields));
+            } catch (RuntimeException e) {
+            localWrites.saveFailed(collection, id, entity);
+            throw e;
+            }
+        }
+
+    private <T> void settle(String collection, List<Integer> batch, List<T> entities, ToIntFunction<T> idOf,
+                            BatchItemResponse[] results) {
+        for (int index : batch) {
+            BatchItemResponse result = results[index];
+            if (result == null || !result.success()) {
+                T entity = entities.get(index);
+                localWrites.saveFailed(collection, idOf.applyAsInt(entity), entity);
+                }
+            }
+        }
+
+    private <T> List<Integer> validate(List<T> entities, ToIntFunction<T> idOf, BatchItemResponse[] results) {
+        List<Integer> valid = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            T entity = entities.get(i);
+            Set<ConstraintViolation<T>> violations = validator.validate(entity);
+            if (violations.isEmpty()) {
+                valid.add(i);
+                } else {
+                results[i] = BatchItemResponse.failed(idOf.applyAsInt(entity),
+                        ConstraintViolationExceptionMapper.messagesOf(violations));
+                }
+            }
+        return valid;
+        }
+
+    /**
+     * @return the entities of the batch that were neither inserted nor failed,
+     * because a document with their id exists
+     */
+    private static <T> List<Integer> insertAbsent(MongoCollection<Document> documents,
+                                                 List<WriteModel<Document>> models, List<Integer> batch,
+                                                 List<T> entities, ToIntFunction<T> idOf,
+                                                 BatchItemResponse[] results) {
+        BulkWriteResult result;
+        try {
+            result = documents.bulkWrite(models, new BulkWriteOptions().ordered(false));
+            } catch (MongoBulkWriteException e) {
+            result = e.getWriteResult();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                int index = batch.get(error.getIndex());
+                results[index] = BatchItemResponse.failed(idOf.applyAsInt(entities.get(index)), List.of(error.getMessage()));
+                }
+            } catch (MongoException e) {
+            batch.forEach(index -> results[index] = BatchItemResponse.failed(
+                    idOf.applyAsInt(entities.get(index)), List.of(e.getMessage())));
+            return List.of();
+            }
+        for (BulkWriteUpsert upsert : result.getUpserts()) {
+            int index = batch.get(upsert.getIndex());
+            results[index] = BatchItemResponse.ok(idOf.applyAsInt(entities.get(index)));
+            }
+        List<Integer> existing = new ArrayList<>();
+        for (int index : batch) {
+            if (results[index] == null) {
+                existing.add(index);
+                }
+            }
+        return existing;
+        }
+
+    private <T> void write(MongoCollection<Document> documents, List<WriteModel<Document>> models,
+                           List<Integer> batch, List<T> entities, ToIntFunction<T> idOf,
+                           BatchItemResponse[] results) {
+        try {
+            documents.bulkWrite(models, new BulkWriteOptions().ordered(false));
+            batch.forEach(index -> results[index] = BatchItemResponse.ok(idOf.applyAsInt(entities.get(index))));
+            } catch (MongoBulkWriteException e) {
+            batch.forEach(index -> results[index] = BatchItemResponse.ok(idOf.applyAsInt(entities.get(index))));
+            for (BulkWriteError error : e.getWriteErrors()) {
+                int index = batch.get(error.getIndex());
+                results[index] = BatchItemResponse.failed(idOf.applyAsInt(entities.get(index)), List.of(error.getMessage()));
+                }
+            } catch (MongoException e) {
+            batch.forEach(index -> results[index] = BatchItemResponse.failed(
+                    idOf.applyAsInt(entities.get(index)), List.of(e.getMessage())));
+            }
+        }
+
+    /**
+     * <p>Written record.</p>
+     *
+     * @param results one result per entity, in the order of the entities
+     * @param replaced the documents the batch replaced, by id
+     */
+    public record Written(List<BatchItemResponse> results, Map<Integer, Document> replaced) {
+        }
+    }
@@ -15,6 +15,11 @@ import java.util.Objects;
  * @version $Id: $Id
  */
 @Entity
+@MongoIndex({"brewer_id", "name", "_id"})
+@MongoIndex({"name", "_id"})
+@MongoIndex({"abv", "_id"})
+@MongoIndex({"type", "abv", "_id"})
+@MongoIndex({"brewer_id", "type", "abv", "_id"})
 public class Beer {
     /**
      *
@@ -0,0 +1,9 @@
+package org.redlich.beers;
+
+public record BeerBatchRequest(int id, String name, BeerType type, int brewerId, double abv) {
+
+    public Beer createBeer() {
+        return new BeerRequest(name, type, brewerId, abv).createBeer(id);
+        }
+
+    }
@@ -0,0 +1,296 @@
+package org.redlich.beers;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * <p>BeerColumns class.</p>
+ *
+ * A columnar copy of the analytic fields of the beer catalog: one primitive
+ * array per field, indexed by slot, at 17 bytes per beer plus the id lookup
+ * table. Filters run as tight loops over the arrays, and large scans are
+ * split across the common fork-join pool.
+ *
+ * A removed beer leaves a tombstone in its slot, which a later put of the same
+ * id reuses. The arrays are compacted once tombstones outnumber live beers.
+ * Not thread-safe: scans may run concurrently with each other, but not with
+ * writes.
+ */
+final class BeerColumns {
+
+    private static final byte NO_TYPE = -1;
+
+    private static final byte TOMBSTONE = Byte.MIN_VALUE;
+
+    private static final int MIN_COMPACTION = 1024;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+
+    private int[] brewerIds = new int[INITIAL_CAPACITY];
+
+    private double[] abvs = new double[INITIAL_CAPACITY];
+
+    private byte[] types = new byte[INITIAL_CAPACITY];
+
+    private IdSlots slots = new IdSlots(INITIAL_CAPACITY);
+
+    private int size;
+
+    private int dead;
+
+    /**
+     * The matches of a scan.
+     *
+     * @param ids up to the requested limit of matching ids, in slot order
+     */
+    record Matches(long count, double abvSum, double minAbv, double maxAbv, int[] ids) {
+
+        private static final Matches NONE = new Matches(0, 0, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, new int[0]);
+
+        Matches merge(Matches other, int limit) {
+            int[] merged = ids;
+            if (ids.length < limit && other.ids.length > 0) {
+                int taken = Math.min(limit - ids.length, other.ids.length);
+                merged = Arrays.copyOf(ids, ids.length + taken);
+                System.arraycopy(other.ids, 0, merged, ids.length, taken);
+                }
+            return new Matches(count + other.count, abvSum + other.abvSum,
+                    Math.min(minAbv, other.minAbv), Math.max(maxAbv, other.maxAbv), merged);
+            }
+        }
+
+    void put(int id, int brewerId, BeerType type, double abv) {
+        int slot = slots.get(id);
+        if (slot < 0) {
+            if (size == ids.length) {
+                grow();
+                }
+            slot = size++;
+            ids[slot] = id;
+            slots.put(id, slot);
+            } else if (types[slot] == TOMBSTONE) {
+            dead--;
+            }
+        brewerIds[slot] = brewerId;
+        abvs[slot] = abv;
+        types[slot] = type == null ? NO_TYPE : (byte) type.ordinal();
+        }
+
+    boolean remove(int id) {
+        int slot = slots.get(id);
+        if (slot < 0 || types[slot] == TOMBSTONE) {
+            return false;
+            }
+        types[slot] = TOMBSTONE;
+        dead++;
+        compactIfSparse();
+        return true;
+        }
+
+    int removeBrewer(int brewerId) {
+        int removed = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (brewerIds[slot] == brewerId && types[slot] != TOMBSTONE) {
+                types[slot] = TOMBSTONE;
+                removed++;
+                }
+            }
+        dead += removed;
+        compactIfSparse();
+        return removed;
+        }
+
+    void clear() {
+        ids = new int[INITIAL_CAPACITY];
+        brewerIds = new int[INITIAL_CAPACITY];
+        abvs = new double[INITIAL_CAPACITY];
+        types = new byte[INITIAL_CAPACITY];
+        slots = new IdSlots(INITIAL_CAPACITY);
+        size = 0;
+        dead = 0;
+        }
+
+    int size() {
+        return size - dead;
+        }
+
+    /**
+     * <p>estimatedBytes.</p>
+     *
+     * @return the bytes held by the arrays, excluding object headers
+     */
+    long estimatedBytes() {
+        return (long) ids.length * (Integer.BYTES + Integer.BYTES + Double.BYTES + Byte.BYTES)
+                + slots.estimatedBytes();
+        }
+
+    /**
+     * <p>scan.</p>
+     *
+     * @param filter a {@link org.redlich.beers.BeerFilter} object
+     * @param limit the most ids to return
+     * @param parallelThreshold the slot count from which the scan is split across cores
+     * @return a {@link org.redlich.beers.BeerColumns.Matches} object
+     */
+    Matches scan(BeerFilter filter, int limit, int parallelThreshold) {
+        long typeMask = filter.typeMask();
+        boolean anyType = typeMask == -1L;
+        double min = filter.minAbv() == null ? Double.NEGATIVE_INFINITY : filter.minAbv();
+        double max = filter.maxAbv() == null ? Double.POSITIVE_INFINITY : filter.maxAbv();
+        int[] brewers = filter.sortedBrewerIds();
+        if (brewers != null && brewers.length == 0) {
+            return Matches.NONE;
+            }
+        int end = size;
+        if (end < parallelThreshold) {
+            return scan(0, end, anyType, typeMask, min, max, brewers, limit);
+            }
+        int chunks = Math.max(1, Runtime.getRuntime().availableProcessors() * 4);
+        int chunkSize = (end + chunks - 1) / chunks;
+        // the chunks are merged in order, so the ids are the same as a sequential scan's
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> scan(Math.min(end, chunk * chunkSize), Math.min(end, (chunk + 1) * chunkSize),
+                        anyType, typeMask, min, max, brewers, limit))
+                .reduce(Matches.NONE, (left, right) -> left.merge(right, limit));
+        }
+
+    private Matches scan(int from, int to, boolean anyType, long typeMask, double min, double max,
+                         int[] brewers, int limit) {
+        int[] matched = new int[Math.min(limit, Math.max(0, to - from))];
+        int taken = 0;
+        long count = 0;
+        double sum = 0;
+        double lowest = Double.POSITIVE_INFINITY;
+        double highest = Double.NEGATIVE_INFINITY;
+        for (int slot = from; slot < to; slot++) {
+            byte type = types[slot];
+            if (type == TOMBSTONE) {
+                continue;
+                }
+            if (!anyType && (type == NO_TYPE || (typeMask & (1L << type)) == 0)) {
+                continue;
+                }
+            double abv = abvs[slot];
+            if (abv < min || abv > max) {
+                continue;
+                }
+            if (brewers != null && Arrays.binarySearch(brewers, brewerIds[slot]) < 0) {
+                continue;
+                }
+            count++;
+            sum += abv;
+            lowest = Math.min(lowest, abv);
+            highest = Math.max(highest, abv);
+            if (taken < matched.length) {
+                matched[taken++] = ids[slot];
+                }
+            }
+        return new Matches(count, sum, lowest, highest, taken == matched.length ? matched : Arrays.copyOf(matched, taken));
+        }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        brewerIds = Arrays.copyOf(brewerIds, capacity);
+        abvs = Arrays.copyOf(abvs, capacity);
+        types = Arrays.copyOf(types, capacity);
+        }
+
+    private void compactIfSparse() {
+        if (dead < MIN_COMPACTION || dead < size - dead) {
+            return;
+            }
+        int live = 0;
+        IdSlots compacted = new IdSlots(Math.max(INITIAL_CAPACITY, size - dead));
+        for (int slot = 0; slot < size; slot++) {
+            if (types[slot] != TOMBSTONE) {
+                ids[live] = ids[slot];
+                brewerIds[live] = brewerIds[slot];
+                abvs[live] = abvs[slot];
+                types[live] = types[slot];
+                compacted.put(ids[live], live);
+                live++;
+                }
+            }
+        size = live;
+        dead = 0;
+        slots = compacted;
+        }
+
+    /**
+     * Maps beer ids to slots with open addressing, so a lookup allocates
+     * nothing and an entry costs two ints. Entries are never removed: a
+     * removed beer keeps its slot until the columns are compacted.
+     */
+    private static final class IdSlots {
+
+        private static final int EMPTY = -1;
+
+        private int[] keys;
+
+        private int[] values;
+
+        private int entries;
+
+        IdSlots(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) * 2;
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, EMPTY);
+            }
+
+        int get(int key) {
+            int mask = keys.length - 1;
+            for (int index = mix(key) & mask; ; index = (index + 1) & mask) {
+                if (values[index] == EMPTY) {
+                    return EMPTY;
+                    }
+                if (keys[index] == key) {
+                    return values[index];
+                    }
+                }
+            }
+
+        void put(int key, int value) {
+            if ((entries + 1) * 2 > keys.length) {
+                rehash();
+                }
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+            while (values[index] != EMPTY && keys[index] != key) {
+                index = (index + 1) & mask;
+                }
+            if (values[index] == EMPTY) {
+                entries++;
+                }
+            keys[index] = key;
+            values[index] = value;
+            }
+
+        long estimatedBytes() {
+            return (long) keys.length * (Integer.BYTES + Integer.BYTES);
+            }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(values, EMPTY);
+            entries = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+
+        private static int mix(int key) {
+            int hash = key * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+            }
+        }
+    }
@@ -0,0 +1,103 @@
+package org.redlich.beers;
+
+import com.mongodb.client.model.Sorts;
+import jakarta.data.Sort;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <p>BeerDocuments class.</p>
+ *
+ * Maps between {@link org.redlich.beers.Beer} and the document layout JNoSQL
+ * writes to the Beer collection.
+ */
+final class BeerDocuments {
+
+    static final String COLLECTION = "Beer";
+
+    static final String ID = "_id";
+    static final String NAME = "name";
+    static final String TYPE = "type";
+    static final String BREWER_ID = "brewer_id";
+    static final String ABV = "abv";
+
+    /**
+     * The {@link org.redlich.beers.BeerResponse} properties, in output order.
+     */
+    static final Map<String, Function<BeerResponse, Object>> RESPONSE_FIELDS = responseFields();
+
+    private BeerDocuments() {
+        }
+
+    static Beer toBeer(Document document) {
+        String type = document.getString(TYPE);
+        return Beer.builder()
+                .id(intValue(document, ID))
+                .name(document.getString(NAME))
+                .type(type == null ? null : BeerType.valueOf(type))
+                .brewerId(intValue(document, BREWER_ID))
+                .abv(doubleValue(document, ABV))
+                .build();
+        }
+
+    /**
+     * Maps straight to the response, without the entity in between. Fields
+     * left out by a projection are returned as null or 0.
+     */
+    static BeerResponse toResponse(Document document) {
+        String type = document.getString(TYPE);
+        return new BeerResponse(intValue(document, ID), document.getString(NAME),
+                type == null ? null : BeerType.valueOf(type), intValue(document, BREWER_ID),
+                doubleValue(document, ABV));
+        }
+
+    static Document toDocument(Beer beer) {
+        return new Document(ID, beer.getId())
+                .append(NAME, beer.getName())
+                .append(TYPE, beer.getType() == null ? null : beer.getType().name())
+                .append(BREWER_ID, beer.getBrewerId())
+                .append(ABV, beer.getAbv());
+        }
+
+    static Bson sortOf(List<Sort> sorts) {
+        return Sorts.orderBy(sorts.stream()
+                .map(sort -> sort.isAscending()
+                        ? Sorts.ascending(fieldOf(sort.property()))
+                        : Sorts.descending(fieldOf(sort.property())))
+                .toList());
+        }
+
+    static String fieldOf(String property) {
+        return switch (property) {
+            case "id" -> ID;
+            case "brewerId" -> BREWER_ID;
+            default -> property;
+            };
+        }
+
+    private static Map<String, Function<BeerResponse, Object>> responseFields() {
+        Map<String, Function<BeerResponse, Object>> fields = new LinkedHashMap<>();
+        fields.put("id", BeerResponse::id);
+        fields.put("name", BeerResponse::name);
+        fields.put("type", BeerResponse::type);
+        fields.put("brewerId", BeerResponse::brewerId);
+        fields.put("abv", BeerResponse::abv);
+        return Collections.unmodifiableMap(fields);
+        }
+
+    private static int intValue(Document document, String field) {
+        Number value = document.get(field, Number.class);
+        return value == null ? 0 : value.intValue();
+        }
+
+    private static double doubleValue(Document document, String field) {
+        Number value = document.get(field, Number.class);
+        return value == null ? 0.0 : value.doubleValue();
+        }
+    }
@@ -0,0 +1,75 @@
+package org.redlich.beers;
+
+import com.mongodb.client.model.Filters;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>BeerFilter record.</p>
+ *
+ * An analytic filter over the beer catalog. A null or empty criterion
+ * matches every beer; the criteria are combined with AND.
+ *
+ * @param types the accepted types, null for any
+ * @param minAbv the inclusive lower abv bound, null for none
+ * @param maxAbv the inclusive upper abv bound, null for none
+ * @param brewerIds the accepted brewers, null for any
+ */
+public record BeerFilter(Set<BeerType> types, Double minAbv, Double maxAbv, List<Integer> brewerIds) {
+
+    /**
+     * <p>typeMask.</p>
+     *
+     * @return a bit per accepted type ordinal, all bits when any type is accepted
+     */
+    long typeMask() {
+        if (types == null || types.isEmpty()) {
+            return -1L;
+            }
+        long mask = 0;
+        for (BeerType type : types) {
+            mask |= 1L << type.ordinal();
+            }
+        return mask;
+        }
+
+    /**
+     * <p>sortedBrewerIds.</p>
+     *
+     * @return the accepted brewer ids in ascending order, or null for any
+     */
+    int[] sortedBrewerIds() {
+        if (brewerIds == null) {
+            return null;
+            }
+        int[] ids = brewerIds.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(ids);
+        return ids;
+        }
+
+    /**
+     * <p>toBson.</p>
+     *
+     * @return the equivalent MongoDB filter
+     */
+    Bson toBson() {
+        List<Bson> filters = new ArrayList<>();
+        if (types != null && !types.isEmpty()) {
+            filters.add(Filters.in(BeerDocuments.TYPE, types.stream().map(BeerType::name).toList()));
+            }
+        if (minAbv != null) {
+            filters.add(Filters.gte(BeerDocuments.ABV, minAbv));
+            }
+        if (maxAbv != null) {
+            filters.add(Filters.lte(BeerDocuments.ABV, maxAbv));
+            }
+        if (brewerIds != null) {
+            filters.add(Filters.in(BeerDocuments.BREWER_ID, brewerIds));
+            }
+        return filters.isEmpty() ? Filters.empty() : Filters.and(filters);
+        }
+    }
@@ -56,6 +56,65 @@ public interface BeerRepository extends DataRepository<Beer, Integer> {
      */
     Page<Beer> findByBrewerIdIn(List<Integer> brewerIds, Pageable pageable);
 
+    /**
+     * <p>findByBrewerIdInAndNameGreaterThan.</p>
+     *
+     * Seeks past all beers named up to and including <code>name</code>.
+     *
+     * @param brewerIds a {@link java.util.List} object
+     * @param name a {@link java.lang.String} object
+     * @param pageable a {@link jakarta.data.page.Pageable} object
+     * @return a {@link java.util.stream.Stream} object
+     */
+    Stream<Beer> findByBrewerIdInAndNameGreaterThan(List<Integer> brewerIds, String name, Pageable pageable);
+
+    /**
+     * <p>findByBrewerIdInAndNameAndIdGreaterThan.</p>
+     *
+     * Seeks past the beers named <code>name</code> up to and including <code>id</code>.
+     *
+     * @param brewerIds a {@link java.util.List} object
+     * @param name a {@link java.lang.String} object
+     * @param id a int
+     * @param pageable a {@link jakarta.data.page.Pageable} object
+     * @return a {@link java.util.stream.Stream} object
+     */
+    Stream<Beer> findByBrewerIdInAndNameAndIdGreaterThan(List<Integer> brewerIds, String name, int id, Pageable pageable);
+
+    /**
+     * <p>findByAbvBetween.</p>
+     *
+     * @param minAbv the inclusive lower bound
+     * @param maxAbv the inclusive upper bound
+     * @param pageable a {@link jakarta.data.page.Pageable} object, sorted by abv and id to use the index
+     * @return a {@link jakarta.data.page.Page} object
+     */
+    Page<Beer> findByAbvBetween(double minAbv, double maxAbv, Pageable pageable);
+
+    /**
+     * <p>findByTypeInAndAbvBetween.</p>
+     *
+     * @param types a {@link java.util.List} object
+     * @param minAbv the inclusive lower bound
+     * @param maxAbv the inclusive upper bound
+     * @param pageable a {@link jakarta.data.page.Pageable} object, sorted by abv and id to use the index
+     * @return a {@link jakarta.data.page.Page} object
+     */
+    Page<Beer> findByTypeInAndAbvBetween(List<BeerType> types, double minAbv, double maxAbv, Pageable pageable);
+
+    /**
+     * <p>findByBrewerIdInAndTypeInAndAbvBetween.</p>
+     *
+     * @param brewerIds a {@link java.util.List} object
+     * @param types a {@link java.util.List} object
+     * @param minAbv the inclusive lower bound
+     * @param maxAbv the inclusive upper bound
+     * @param pageable a {@link jakarta.data.page.Pageable} object, sorted by abv and id to use the index
+     * @return a {@link jakarta.data.page.Page} object
+     */
+    Page<Beer> findByBrewerIdInAndTypeInAndAbvBetween(List<Integer> brewerIds, List<BeerType> types,
+                                                      double minAbv, double maxAbv, Pageable pageable);
+
     /**
      * <p>save.</p>
      *
@@ -5,9 +5,18 @@ import jakarta.data.page.Pageable;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Variant;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
 
 /**
  * <p>BeerResources class.</p>
@@ -21,62 +30,215 @@ import java.util.List;
 @Produces(MediaType.APPLICATION_JSON)
 public class BeerResources {
 
+    private static final int PAGE_SIZE = 5;
+
+    private static final int MAX_SEARCH_LIMIT = 1000;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Inject
     BeerService beerService;
 
+    @Inject
+    CatalogVersions catalogVersions;
+
+    @Inject
+    DatabaseExecutor databaseExecutor;
+
+    @Inject
+    CatalogChangeFeed catalogChangeFeed;
+
     /**
      * <p>findById.</p>
      *
+     * Answers 304 without reading the beer when <code>If-None-Match</code> is the
+     * tag this node last returned for it, and the beer has not changed since.
+     *
      * @param id a int
-     * @return a {@link org.redlich.beers.BeerResponse} object
+     * @param request a {@link jakarta.ws.rs.core.Request} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link jakarta.ws.rs.core.Response} with a {@link org.redlich.beers.BeerResponse}
      */
+    @Limited(OperationCost.CHEAP)
     @GET
     @Path("/{id}")
-    public BeerResponse findById(@PathParam("id") int id) {
-        return beerService.findById(id)
+    public CompletionStage<Response> findById(@PathParam("id") int id, @Context Request request) {
+        return ConditionalResponses.of(request, catalogVersions.beer(id), databaseExecutor, () -> beerService.findById(id)
                 .map(BeerResponse::of)
-                .orElseThrow(() -> new NotFoundException());
+                .orElseThrow(() -> new NotFoundException()));
         }
 
     /**
      * <p>listBeers.</p>
      *
-     * @return a {@link java.util.List} object
+     * Without filters, every beer is written to the response as it is read
+     * from the cursor.
+     *
+     * With any of <code>type</code> (repeatable), <code>minAbv</code>,
+     * <code>maxAbv</code>, <code>brewerId</code> (repeatable), <code>page</code>
+     * or <code>size</code>, one page of <code>size</code> matching beers is
+     * returned instead, ordered by abv and id.
+     *
+     * With <code>fields</code>, for example <code>?fields=name,abv</code>, only
+     * those properties are read from the database and returned, as JSON only;
+     * a request that does not accept JSON gets 406.
+     *
+     * @param types a {@link java.util.Set} of types, empty for any
+     * @param minAbv the inclusive lower abv bound, absent for none
+     * @param maxAbv the inclusive upper abv bound, absent for none
+     * @param brewerIds a {@link java.util.List} of brewer ids, empty for any
+     * @param page the 1-based page number, absent for 1
+     * @param size the page size, absent for 20
+     * @param fields a comma-separated list of beer properties, absent for all
+     * @param request a {@link jakarta.ws.rs.core.Request} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link jakarta.ws.rs.core.Response} with a {@link java.util.stream.Stream}
      */
+    @Limited(OperationCost.EXPENSIVE)
     @GET
-    public List<BeerResponse> listBeers(){
-        return beerService.listBeers().map(BeerResponse::of).toList();
+    @Produces({MediaType.APPLICATION_JSON, CatalogMediaTypes.BEERS_BINARY_QS})
+    public CompletionStage<Response> listBeers(@QueryParam("type") Set<BeerType> types,
+                                               @QueryParam("minAbv") Double minAbv,
+                                               @QueryParam("maxAbv") Double maxAbv,
+                                               @QueryParam("brewerId") List<Integer> brewerIds,
+                                               @QueryParam("page") Long page,
+                                               @QueryParam("size") Integer size,
+                                               @QueryParam("fields") String fields,
+                                               @Context Request request){
+        Fieldset<BeerResponse> fieldset = fieldsetOf(fields);
+        Variant variant = fieldset.variantOf(request);
+        if (!types.isEmpty() || minAbv != null || maxAbv != null || !brewerIds.isEmpty()
+                || page != null || size != null) {
+            long pageNumber = page == null ? 1 : page;
+            int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+            if (pageNumber < 1 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new BadRequestException("page must be at least 1 and size between 1 and " + MAX_PAGE_SIZE);
+                }
+            Pageable pageRequest = Pageable.ofSize(pageSize)
+                    .page(pageNumber)
+                    .sortBy(Sort.asc("abv"), Sort.asc("id"));
+            return databaseExecutor.submit(() -> fieldset.toResponse(
+                    beerService.listBeers(types, minAbv, maxAbv, brewerIds, pageRequest)
+                            .stream()
+                            .map(BeerResponse::of), variant));
+            }
+        return databaseExecutor.submitStream(() -> beerService.listBeerResponses(fieldset))
+                .thenApply(responses -> fieldset.toResponse(responses, variant));
         }
 
     /**
      * <p>listBeersByBrewer.</p>
      *
+     * Answers 304 without querying when <code>If-None-Match</code> is the tag
+     * this node last returned for the list, and no beer or brewer has changed since.
+     * Concurrent requests for the same brewer share one query.
+     *
      * @param brewerName a {@link java.lang.String} object
-     * @return a {@link java.util.List} object
+     * @param request a {@link jakarta.ws.rs.core.Request} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link jakarta.ws.rs.core.Response} with a {@link java.util.List}
      */
+    @Limited(OperationCost.EXPENSIVE)
     @GET
+    @Produces({MediaType.APPLICATION_JSON, CatalogMediaTypes.BEERS_BINARY_QS})
     @Path("/brewer/{brewer}")
-    public List<BeerResponse> listBeersByBrewer(@PathParam("brewer") String brewerName){
-        return beerService.listBeersByBrewer(brewerName)
-                .map(BeerResponse::of).toList();
+    public CompletionStage<Response> listBeersByBrewer(@PathParam("brewer") String brewerName, @Context Request request){
+        return ConditionalResponses.of(request, CatalogMediaTypes.listVariants(), catalogVersions.beers("brewer", brewerName), databaseExecutor, () -> beerService.findBeersByBrewer(brewerName)
+                .stream().map(BeerResponse::of).toList());
         }
 
     /**
      * <p>listBeersByBrewer.</p>
      *
+     * Answers 304 without querying when <code>If-None-Match</code> is the tag
+     * this node last returned for the list, and no beer or brewer has changed since.
+     *
      * @param brewerName a {@link java.lang.String} object
      * @param pageNum a long
-     * @return a {@link java.util.List} object
+     * @param request a {@link jakarta.ws.rs.core.Request} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link jakarta.ws.rs.core.Response} with a {@link java.util.List}
      */
+    @Limited(OperationCost.EXPENSIVE)
     @GET
+    @Produces({MediaType.APPLICATION_JSON, CatalogMediaTypes.BEERS_BINARY_QS})
     @Path("/brewer/{brewer}/page/{pageNum}")
-    public List<BeerResponse> listBeersByBrewer(@PathParam("brewer") String brewerName,
-                                                @PathParam("pageNum") long pageNum) {
-        Pageable pageRequest = Pageable.ofSize(5)
+    public CompletionStage<Response> listBeersByBrewer(@PathParam("brewer") String brewerName,
+                                                       @PathParam("pageNum") long pageNum,
+                                                       @Context Request request) {
+        Pageable pageRequest = Pageable.ofSize(PAGE_SIZE)
                 .page(pageNum)
                 .sortBy(Sort.asc("name"), Sort.asc("id"));
-        return beerService.listBeersByBrewer(brewerName, pageRequest).stream()
-                .map(BeerResponse::of).toList();
+        return ConditionalResponses.of(request, CatalogMediaTypes.listVariants(), catalogVersions.beers("brewer", brewerName, pageNum), databaseExecutor, () -> beerService.listBeersByBrewer(brewerName, pageRequest).stream()
+                .map(BeerResponse::of).toList());
+        }
+
+    /**
+     * <p>listBeersByBrewer.</p>
+     *
+     * Keyset variant of the paged endpoint: pass the <code>next</code> token of
+     * the previous page as <code>cursor</code> to fetch the following page.
+     *
+     * @param brewerName a {@link java.lang.String} object
+     * @param cursor a {@link java.lang.String} object, absent for the first page
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link org.redlich.beers.KeysetPage}
+     */
+    @Limited(OperationCost.EXPENSIVE)
+    @GET
+    @Path("/brewer/{brewer}/page")
+    public CompletionStage<KeysetPage<BeerResponse>> listBeersByBrewer(@PathParam("brewer") String brewerName,
+                                                                       @QueryParam("cursor") String cursor) {
+        KeysetCursor after = cursorOf(cursor);
+        return databaseExecutor.submit(() -> KeysetPage.of(beerService.listBeersByBrewer(brewerName, after, PAGE_SIZE),
+                PAGE_SIZE,
+                beer -> new KeysetCursor(beer.getName(), beer.getId()),
+                BeerResponse::of));
+        }
+
+    /**
+     * <p>search.</p>
+     *
+     * Analytic filter over the whole catalog, for example
+     * <code>?type=IPA&amp;minAbv=6&amp;maxAbv=8&amp;state=ME</code>. Answered from the
+     * in-memory snapshot when <code>beers.snapshot.enabled</code> is set.
+     *
+     * @param types a {@link java.util.Set} of types, empty for any
+     * @param minAbv the inclusive lower abv bound, absent for none
+     * @param maxAbv the inclusive upper abv bound, absent for none
+     * @param state the brewers' state, absent for any
+     * @param limit the most beers to return
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link org.redlich.beers.BeerSearchResponse}
+     */
+    @Limited(OperationCost.EXPENSIVE)
+    @GET
+    @Path("/search")
+    public CompletionStage<BeerSearchResponse> search(@QueryParam("type") Set<BeerType> types,
+                                                      @QueryParam("minAbv") Double minAbv,
+                                                      @QueryParam("maxAbv") Double maxAbv,
+                                                      @QueryParam("state") String state,
+                                                      @QueryParam("limit") @DefaultValue("20") int limit) {
+        if (limit < 0 || limit > MAX_SEARCH_LIMIT) {
+            throw new BadRequestException("limit must be between 0 and " + MAX_SEARCH_LIMIT);
+            }
+        return databaseExecutor.submit(() -> beerService.search(types, minAbv, maxAbv, state, limit));
+        }
+
+    /**
+     * <p>changes.</p>
+     *
+     * Streams beer and brewer writes as server-sent events, instead of
+     * polling the list. A client that reconnects sends the id of the last
+     * event it received as <code>Last-Event-ID</code> and gets the changes it
+     * missed first, or a <code>reset</code> event when they are no longer kept.
+     *
+     * @param sink a {@link jakarta.ws.rs.sse.SseEventSink} object
+     * @param sse a {@link jakarta.ws.rs.sse.Sse} object
+     * @param lastEventId the id of the last event received, absent on the first connection
+     */
+    @GET
+    @Path("/changes")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void changes(@Context SseEventSink sink, @Context Sse sse,
+                        @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+        catalogChangeFeed.subscribe(lastEventId, new SseChangeSink(sink, sse));
         }
 
     /**
@@ -84,30 +246,74 @@ public class BeerResources {
      *
      * @param id a int
      * @param request a {@link org.redlich.beers.BeerRequest} object
-     * @return a {@link org.redlich.beers.BeerResponse} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link org.redlich.beers.BeerResponse}
      */
+    @Limited(OperationCost.CHEAP)
     @POST
     @Path("/{id}")
-    public BeerResponse add(@PathParam("id") int id, BeerRequest request) {
-        return BeerResponse.of(beerService.add(request.createBeer(id)));
+    public CompletionStage<BeerResponse> add(@PathParam("id") int id, BeerRequest request) {
+        return databaseExecutor.submit(() -> BeerResponse.of(beerService.add(request.createBeer(id))));
+        }
+
+    /**
+     * <p>addAll.</p>
+     *
+     * Each beer is validated and written independently; the response reports
+     * the outcome per item, in request order.
+     *
+     * @param requests a {@link java.util.List} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link java.util.List}
+     */
+    @Limited(OperationCost.EXPENSIVE)
+    @POST
+    @Path("/batch")
+    public CompletionStage<List<BatchItemResponse>> addAll(List<BeerBatchRequest> requests) {
+        return databaseExecutor.submit(() -> beerService.addAll(requests.stream().map(BeerBatchRequest::createBeer).toList()));
         }
 
     /**
      * <p>remove.</p>
      *
      * @param id a int
+     * @return a {@link java.util.concurrent.CompletionStage} object
      */
+    @Limited(OperationCost.CHEAP)
     @DELETE
     @Path("/{id}")
-    public void remove(@PathParam("id") int id){
-        beerService.remove(id);
+    public CompletionStage<Void> remove(@PathParam("id") int id){
+        return databaseExecutor.submit(() -> {
+            beerService.remove(id);
+            return null;
+            });
         }
 
     /**
      * <p>removeAll.</p>
+     *
+     * @return a {@link java.util.concurrent.CompletionStage} object
      */
+    @Limited(OperationCost.EXPENSIVE)
     @DELETE
-    public void removeAll(){
-        beerService.removeAll();
+    public CompletionStage<Void> removeAll(){
+        return databaseExecutor.submit(() -> {
+            beerService.removeAll();
+            return null;
+            });
+        }
+
+    private static Fieldset<BeerResponse> fieldsetOf(String fields) {
+        try {
+            return Fieldset.parse(fields, BeerDocuments.RESPONSE_FIELDS, BeerDocuments::fieldOf);
+            } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+            }
+        }
+
+    private static KeysetCursor cursorOf(String cursor) {
+        try {
+            return KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor", e);
+            }
         }
     }
@@ -0,0 +1,124 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Facet;
+import com.mongodb.client.model.Filters;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>BeerSearch class.</p>
+ *
+ * Runs {@link org.redlich.beers.BeerFilter} searches: from the
+ * {@link org.redlich.beers.BeerSnapshot} when it is enabled, otherwise with a
+ * single aggregation whose <code>$facet</code> stage computes the sample and
+ * the abv figures together.
+ */
+@ApplicationScoped
+public class BeerSearch {
+
+    private static final String SAMPLE = "sample";
+    private static final String SUMMARY = "summary";
+
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    BeerSnapshot beerSnapshot;
+
+    /**
+     * <p>search.</p>
+     *
+     * @param filter a {@link org.redlich.beers.BeerFilter} object
+     * @param limit the most beers to return
+     * @return a {@link org.redlich.beers.BeerSearchResponse} object
+     */
+    public BeerSearchResponse search(BeerFilter filter, int limit) {
+        return beerSnapshot.search(filter, limit)
+                .map(this::toResponse)
+                .orElseGet(() -> searchDatabase(filter, limit));
+        }
+
+    /**
+     * <p>searchDatabase.</p>
+     *
+     * The same search run by MongoDB, whether or not the snapshot is enabled.
+     *
+     * @param filter a {@link org.redlich.beers.BeerFilter} object
+     * @param limit the most beers to return
+     * @return a {@link org.redlich.beers.BeerSearchResponse} object
+     */
+    public BeerSearchResponse searchDatabase(BeerFilter filter, int limit) {
+        Document result = beers().aggregate(List.of(
+                        Aggregates.match(filter.toBson()),
+                        Aggregates.facet(
+                                new Facet(SAMPLE, Aggregates.limit(Math.max(1, limit))),
+                                new Facet(SUMMARY, Aggregates.group(null,
+                                        Accumulators.sum("count", 1),
+                                        Accumulators.avg("avg", "$" + BeerDocuments.ABV),
+                                        Accumulators.min("min", "$" + BeerDocuments.ABV),
+                                        Accumulators.max("max", "$" + BeerDocuments.ABV))))))
+                .allowDiskUse(true)
+                .first();
+        List<BeerResponse> sample = result.getList(SAMPLE, Document.class).stream()
+                .limit(limit)
+                .map(BeerDocuments::toBeer)
+                .map(BeerResponse::of)
+                .toList();
+        List<Document> summary = result.getList(SUMMARY, Document.class);
+        if (summary.isEmpty()) {
+            return new BeerSearchResponse(0, null, null, null, sample);
+            }
+        Document figures = summary.get(0);
+        return new BeerSearchResponse(figures.get("count", Number.class).longValue(),
+                doubleOf(figures, "avg"), doubleOf(figures, "min"), doubleOf(figures, "max"), sample);
+        }
+
+    private BeerSearchResponse toResponse(BeerColumns.Matches matches) {
+        if (matches.count() == 0) {
+            return new BeerSearchResponse(0, null, null, null, List.of());
+            }
+        return new BeerSearchResponse(matches.count(), matches.abvSum() / matches.count(),
+                matches.minAbv(), matches.maxAbv(), findByIds(matches.ids()));
+        }
+
+    /**
+     * The snapshot holds no names, so the sample is read back by id, in the
+     * snapshot's order.
+     */
+    private List<BeerResponse> findByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+            }
+        Map<Integer, Beer> found = new HashMap<>();
+        beers().find(Filters.in(BeerDocuments.ID, Arrays.stream(ids).boxed().toList()))
+                .forEach(document -> {
+                    Beer beer = BeerDocuments.toBeer(document);
+                    found.put(beer.getId(), beer);
+                    });
+        return Arrays.stream(ids)
+                .mapToObj(found::get)
+                .filter(Objects::nonNull)
+                .map(BeerResponse::of)
+                .toList();
+        }
+
+    private MongoCollection<Document> beers() {
+        return database.getCollection(BeerDocuments.COLLECTION);
+        }
+
+    private static Double doubleOf(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number number ? number.doubleValue() : null;
+        }
+    }
@@ -0,0 +1,15 @@
+package org.redlich.beers;
+
+import java.util.List;
+
+/**
+ * <p>BeerSearchResponse record.</p>
+ *
+ * The abv figures are null when nothing matched.
+ *
+ * @param matches the number of matching beers
+ * @param beers up to the requested limit of the matching beers
+ */
+public record BeerSearchResponse(long matches, Double averageAbv, Double minAbv, Double maxAbv,
+                                 List<BeerResponse> beers) {
+    }
@@ -1,11 +1,20 @@
 package org.redlich.beers;
 
+import com.mongodb.client.MongoDatabase;
 import jakarta.data.page.Page;
 import jakarta.data.page.Pageable;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Flow;
 import java.util.stream.Stream;
 
 /**
@@ -18,11 +27,50 @@ import java.util.stream.Stream;
 public class BeerService {
 
     @Inject
+    @Instrumented
     BeerRepository beerRepository;
 
     @Inject
+    @Instrumented
     BrewerRepository brewerRepository;
 
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    ReactiveBeerRepository reactiveBeerRepository;
+
+    @Inject
+    BeersByBrewerAggregation beersByBrewerAggregation;
+
+    @Inject
+    BrewerIdFanOut brewerIdFanOut;
+
+    @Inject
+    BrewerIdCache brewerIdCache;
+
+    @Inject
+    BrewerNameIndex brewerNameIndex;
+
+    @Inject
+    EntityCaches entityCaches;
+
+    @Inject
+    BatchWriter batchWriter;
+
+    @Inject
+    LocalWrites localWrites;
+
+    @Inject
+    Event<CatalogChange> catalogChanges;
+
+    @Inject
+    BeerSearch beerSearch;
+
+    @Inject
+    @ConfigProperty(name = "beers.brewer-query.aggregate", defaultValue = "false")
+    boolean aggregateBrewerQuery;
+
     /**
      * <p>findById.</p>
      *
@@ -30,29 +78,97 @@ public class BeerService {
      * @return a {@link java.util.Optional} object
      */
     public Optional<Beer> findById(int id) {
-        return beerRepository.findById(id);
+        return entityCaches.beers().findById(id, beerRepository::findById);
         }
 
     /**
      * <p>listBeers.</p>
      *
+     * The returned stream is backed by an open cursor and must be closed
+     * when the caller does not consume it fully.
+     *
      * @return a {@link java.util.stream.Stream} object
      */
     public Stream<Beer> listBeers() {
-        return beerRepository.findAll();
+        return MongoCursors.stream(
+                database.getCollection(BeerDocuments.COLLECTION).find().cursor(),
+                BeerDocuments::toBeer);
+        }
+
+    /**
+     * <p>listBeerResponses.</p>
+     *
+     * Like {@link #listBeers()}, but only the fields of <code>fields</code> are
+     * read, and documents are mapped straight to responses.
+     *
+     * @param fields a {@link org.redlich.beers.Fieldset} object
+     * @return a {@link java.util.stream.Stream} object
+     */
+    public Stream<BeerResponse> listBeerResponses(Fieldset<BeerResponse> fields) {
+        return MongoCursors.stream(
+                database.getCollection(BeerDocuments.COLLECTION).find().projection(fields.projection()).cursor(),
+                BeerDocuments::toResponse);
+        }
+
+    /**
+     * <p>publishBeers.</p>
+     *
+     * Non-blocking variant of {@link #listBeers()}: documents are fetched as
+     * the subscriber requests them.
+     *
+     * @return a {@link java.util.concurrent.Flow.Publisher} object
+     */
+    public Flow.Publisher<Beer> publishBeers() {
+        return reactiveBeerRepository.findAll();
+        }
+
+    /**
+     * <p>publishBeersByBrewer.</p>
+     *
+     * Non-blocking variant of {@link #listBeersByBrewer(String)}. The brewer ids
+     * are still resolved up front, usually from the in-process caches.
+     *
+     * @param brewerName a {@link java.lang.String} object
+     * @return a {@link java.util.concurrent.Flow.Publisher} object
+     */
+    public Flow.Publisher<Beer> publishBeersByBrewer(String brewerName) {
+        return reactiveBeerRepository.findByBrewerIdIn(brewerIdsOf(brewerName));
         }
 
     /**
      * <p>listBeersByBrewer.</p>
      *
+     * With <code>beers.brewer-query.aggregate</code> enabled the brewers are
+     * matched and their beers fetched in one aggregation; otherwise the brewer
+     * ids are resolved first and the beers fetched in a second query, split
+     * into parallel chunks when there are many ids.
+     *
      * @param brewerName a {@link java.lang.String} object
      * @return a {@link java.util.stream.Stream} object
      */
     public Stream<Beer> listBeersByBrewer(String brewerName) {
-        return beerRepository.findByBrewerIdIn(
-                brewerRepository.findByNameLike(brewerName)
-                        .map(Brewer::getId)
-                        .toList());
+        if (aggregateBrewerQuery) {
+            return beersByBrewerAggregation.find(brewerName);
+            }
+        return brewerIdFanOut.findByBrewerIdIn(brewerIdsOf(brewerName));
+        }
+
+    /**
+     * <p>findBeersByBrewer.</p>
+     *
+     * Materialized variant of {@link #listBeersByBrewer(String)}. Concurrent
+     * callers asking for the same brewer name share one query and its list,
+     * which must not be modified.
+     *
+     * @param brewerName a {@link java.lang.String} object
+     * @return an unmodifiable {@link java.util.List} object
+     */
+    public List<Beer> findBeersByBrewer(String brewerName) {
+        return entityCaches.beersByBrewer().execute(brewerName, name -> {
+            try (Stream<Beer> beers = listBeersByBrewer(name)) {
+                return beers.toList();
+                }
+            });
         }
 
     /**
@@ -63,20 +179,140 @@ public class BeerService {
      * @return a {@link jakarta.data.page.Page} object
      */
     public Page<Beer> listBeersByBrewer(String brewerName, Pageable pageable) {
-        return beerRepository.findByBrewerIdIn(
-                brewerRepository.findByNameLike(brewerName)
-                        .map(Brewer::getId)
-                        .toList(), pageable);
+        if (aggregateBrewerQuery) {
+            return beersByBrewerAggregation.find(brewerName, pageable);
+            }
+        return brewerIdFanOut.findByBrewerIdIn(brewerIdsOf(brewerName), pageable);
+        }
+
+    /**
+     * <p>listBeersByBrewer.</p>
+     *
+     * Keyset variant: returns up to <code>size</code> beers, ordered by name and id,
+     * that follow <code>after</code>. Deep pages cost the same as the first one.
+     *
+     * @param brewerName a {@link java.lang.String} object
+     * @param after a {@link org.redlich.beers.KeysetCursor} object, null for the first page
+     * @param size a int
+     * @return a {@link java.util.List} object
+     */
+    public List<Beer> listBeersByBrewer(String brewerName, KeysetCursor after, int size) {
+        List<Integer> brewerIds = brewerIdsOf(brewerName);
+        List<Beer> beers = new ArrayList<>(size);
+        if (after != null) {
+            try (Stream<Beer> sameName = beerRepository.findByBrewerIdInAndNameAndIdGreaterThan(
+                    brewerIds, after.name(), after.id(), KeysetCursor.pageable(size))) {
+                sameName.forEach(beers::add);
+                }
+            }
+        if (beers.size() < size) {
+            // beer names are never blank, so "" seeks to the first beer
+            try (Stream<Beer> nextNames = beerRepository.findByBrewerIdInAndNameGreaterThan(
+                    brewerIds, after == null ? "" : after.name(), KeysetCursor.pageable(size - beers.size()))) {
+                nextNames.forEach(beers::add);
+                }
+            }
+        return beers;
+        }
+
+    /**
+     * <p>listBeers.</p>
+     *
+     * Filters on the server through the compound indexes on type, abv and
+     * brewer id. Without types, brewers are filtered across every type, so the
+     * type column of the index is still matched by equality.
+     *
+     * @param types the accepted types, empty for any
+     * @param minAbv the inclusive lower abv bound, null for none
+     * @param maxAbv the inclusive upper abv bound, null for none
+     * @param brewerIds the accepted brewers, empty for any
+     * @param pageable a {@link jakarta.data.page.Pageable} object
+     * @return a {@link jakarta.data.page.Page} object
+     */
+    public Page<Beer> listBeers(Set<BeerType> types, Double minAbv, Double maxAbv, List<Integer> brewerIds,
+                                Pageable pageable) {
+        double min = minAbv == null ? -Double.MAX_VALUE : minAbv;
+        double max = maxAbv == null ? Double.MAX_VALUE : maxAbv;
+        boolean anyType = types == null || types.isEmpty();
+        if (brewerIds != null && !brewerIds.isEmpty()) {
+            List<BeerType> accepted = anyType ? List.of(BeerType.values()) : List.copyOf(types);
+            return beerRepository.findByBrewerIdInAndTypeInAndAbvBetween(brewerIds, accepted, min, max, pageable);
+            }
+        if (anyType) {
+            return beerRepository.findByAbvBetween(min, max, pageable);
+            }
+        return beerRepository.findByTypeInAndAbvBetween(List.copyOf(types), min, max, pageable);
+        }
+
+    /**
+     * <p>search.</p>
+     *
+     * @param types the accepted types, empty for any
+     * @param minAbv the inclusive lower abv bound, null for none
+     * @param maxAbv the inclusive upper abv bound, null for none
+     * @param state the brewers' state, null for any
+     * @param limit the most beers to return
+     * @return a {@link org.redlich.beers.BeerSearchResponse} object
+     */
+    public BeerSearchResponse search(Set<BeerType> types, Double minAbv, Double maxAbv, String state, int limit) {
+        List<Integer> brewerIds = null;
+        if (state != null) {
+            try (Stream<Brewer> brewers = brewerRepository.findByState(state)) {
+                brewerIds = brewers.map(Brewer::getId).toList();
+                }
+            }
+        return beerSearch.search(new BeerFilter(types, minAbv, maxAbv, brewerIds), limit);
+        }
+
+    private List<Integer> brewerIdsOf(String brewerName) {
+        return brewerIdCache.brewerIdsOf(brewerName, pattern -> brewerNameIndex.brewerIdsOf(pattern)
+                .orElseGet(() -> {
+                    try (Stream<Brewer> brewers = brewerRepository.findByNameLike(pattern)) {
+                        return brewers.map(Brewer::getId).toList();
+                        }
+                    }));
         }
 
     /**
      * <p>add.</p>
      *
+     * The version the beer replaces is read first, for the
+     * {@link org.redlich.beers.CatalogStatistics}. A concurrent write in
+     * between is corrected by their reconciliation.
+     *
      * @param beer a {@link org.redlich.beers.Beer} object
      * @return a {@link org.redlich.beers.Beer} object
      */
     public Beer add(Beer beer) {
-        return beerRepository.save(beer);
+        Optional<Beer> replaced = beerRepository.findById(beer.getId());
+        Beer saved = localWrites.save(BeerDocuments.COLLECTION, beer.getId(), beer, beerRepository::save);
+        catalogChanges.fire(CatalogChange.beersSaved(List.of(saved),
+                replaced.map(previous -> Map.of(previous.getId(), previous)).orElse(Map.of())));
+        return saved;
+        }
+
+    /**
+     * <p>addAll.</p>
+     *
+     * @param beers a {@link java.util.List} object
+     * @return one {@link org.redlich.beers.BatchItemResponse} per beer, in the same order
+     */
+    public List<BatchItemResponse> addAll(List<Beer> beers) {
+        BatchWriter.Written written = batchWriter.write(
+                BeerDocuments.COLLECTION, beers, Beer::getId, BeerDocuments::toDocument, CatalogStatistics.FIELDS);
+        List<BatchItemResponse> results = written.results();
+        Map<Integer, Beer> previous = new HashMap<>();
+        written.replaced().forEach((id, document) -> previous.put(id, BeerDocuments.toBeer(document)));
+        List<Beer> saved = new ArrayList<>(beers.size());
+        for (int i = 0; i < beers.size(); i++) {
+            if (results.get(i).success()) {
+                saved.add(beers.get(i));
+                }
+            }
+        if (!saved.isEmpty()) {
+            catalogChanges.fire(CatalogChange.beersSaved(saved, previous));
+            }
+        return results;
         }
 
     /**
@@ -86,13 +322,17 @@ public class BeerService {
      */
     public void remove(int id) {
         beerRepository.findById(id)
-                .ifPresent(beerRepository::remove);
+                .ifPresent(beer -> {
+                    localWrites.delete(BeerDocuments.COLLECTION, List.of(id), () -> beerRepository.remove(beer));
+                    catalogChanges.fire(CatalogChange.beerRemoved(beer));
+                    });
         }
 
     /**
      * <p>removeAll.</p>
      */
     public void removeAll() {
-        beerRepository.deleteAll();
+        localWrites.deleteAll(BeerDocuments.COLLECTION, beerRepository::deleteAll);
+        catalogChanges.fire(CatalogChange.allBeersRemoved());
         }
     }
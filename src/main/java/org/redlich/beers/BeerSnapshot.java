@@ -0,0 +1,169 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Projections;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>BeerSnapshot class.</p>
+ *
+ * Answers {@link org.redlich.beers.BeerFilter} searches from an in-process
+ * {@link org.redlich.beers.BeerColumns} copy of the Beer collection, when
+ * <code>beers.snapshot.enabled</code> is set. The copy is loaded on first use.
+ * After that it is kept in sync by every {@link org.redlich.beers.CatalogChange},
+ * of this node or, through the {@link org.redlich.beers.CatalogChangeListener},
+ * of another.
+ */
+@ApplicationScoped
+public class BeerSnapshot {
+
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    @ConfigProperty(name = "beers.snapshot.enabled", defaultValue = "false")
+    boolean enabled;
+
+    /**
+     * Below this many beers a scan runs on the calling thread only.
+     */
+    @Inject
+    @ConfigProperty(name = "beers.snapshot.parallel-threshold", defaultValue = "65536")
+    int parallelThreshold;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final BeerColumns columns = new BeerColumns();
+
+    private volatile boolean loaded;
+
+    /**
+     * <p>search.</p>
+     *
+     * @param filter a {@link org.redlich.beers.BeerFilter} object
+     * @param limit the most beer ids to return
+     * @return the matches, or empty when the snapshot is disabled
+     */
+    public Optional<BeerColumns.Matches> search(BeerFilter filter, int limit) {
+        if (!enabled) {
+            return Optional.empty();
+            }
+        load();
+        lock.readLock().lock();
+        try {
+            return Optional.of(columns.scan(filter, limit, parallelThreshold));
+            } finally {
+            lock.readLock().unlock();
+            }
+        }
+
+    void onChange(@Observes CatalogChange change) {
+        switch (change.kind()) {
+            case BEERS_SAVED -> change.beers().forEach(this::put);
+            case BEERS_REMOVED -> change.beers().forEach(beer -> remove(beer.getId()));
+            case ALL_BEERS_REMOVED -> clear();
+            case BEERS_STALE -> invalidate();
+            case BREWERS_REMOVED -> {
+                if (!change.remote()) {
+                    change.brewers().forEach(brewer -> removeBrewer(brewer.getId()));
+                    }
+                }
+            default -> {
+                }
+            }
+        }
+
+    /**
+     * <p>put.</p>
+     *
+     * @param beer a {@link org.redlich.beers.Beer} object
+     */
+    public void put(Beer beer) {
+        write(() -> columns.put(beer.getId(), beer.getBrewerId(), beer.getType(), beer.getAbv()));
+        }
+
+    /**
+     * <p>remove.</p>
+     *
+     * @param id a int
+     */
+    public void remove(int id) {
+        write(() -> columns.remove(id));
+        }
+
+    /**
+     * <p>removeBrewer.</p>
+     *
+     * @param brewerId a int
+     */
+    public void removeBrewer(int brewerId) {
+        write(() -> columns.removeBrewer(brewerId));
+        }
+
+    /**
+     * <p>clear.</p>
+     */
+    public void clear() {
+        write(columns::clear);
+        }
+
+    /**
+     * <p>invalidate.</p>
+     *
+     * Drops the copy, so the next search loads it again from the collection.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            columns.clear();
+            loaded = false;
+            } finally {
+            lock.writeLock().unlock();
+            }
+        }
+
+    private void write(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            // until the snapshot is loaded, the load reads the write from the collection
+            if (loaded) {
+                update.run();
+                }
+            } finally {
+            lock.writeLock().unlock();
+            }
+        }
+
+    private void load() {
+        if (loaded) {
+            return;
+            }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+                }
+            try (MongoCursor<Document> beers = database.getCollection(BeerDocuments.COLLECTION)
+                    .find()
+                    .projection(Projections.include(BeerDocuments.BREWER_ID, BeerDocuments.TYPE, BeerDocuments.ABV))
+                    .cursor()) {
+                while (beers.hasNext()) {
+                    Beer beer = BeerDocuments.toBeer(beers.next());
+                    columns.put(beer.getId(), beer.getBrewerId(), beer.getType(), beer.getAbv());
+                    }
+                }
+            loaded = true;
+            } finally {
+            lock.writeLock().unlock();
+            }
+        }
+    }
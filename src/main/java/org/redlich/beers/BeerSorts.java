@@ -0,0 +1,41 @@
+package org.redlich.beers;
+
+import jakarta.data.Sort;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>BeerSorts class.</p>
+ *
+ * Evaluates a list of {@link jakarta.data.Sort} in memory the way MongoDB
+ * orders the corresponding Beer documents.
+ */
+final class BeerSorts {
+
+    private BeerSorts() {
+        }
+
+    static Comparator<Beer> comparatorOf(List<Sort> sorts) {
+        Comparator<Beer> comparator = (left, right) -> 0;
+        for (Sort sort : sorts) {
+            Comparator<Beer> next = comparatorOf(sort);
+            comparator = comparator.thenComparing(sort.isAscending() ? next : next.reversed());
+            }
+        return comparator;
+        }
+
+    private static Comparator<Beer> comparatorOf(Sort sort) {
+        Comparator<String> strings = Comparator.nullsFirst(sort.ignoreCase()
+                ? String.CASE_INSENSITIVE_ORDER
+                : Comparator.<String>naturalOrder());
+        return switch (sort.property()) {
+            case "id" -> Comparator.comparingInt(Beer::getId);
+            case "name" -> Comparator.comparing(Beer::getName, strings);
+            case "type" -> Comparator.comparing(beer -> beer.getType() == null ? null : beer.getType().name(), strings);
+            case "brewerId" -> Comparator.comparingInt(Beer::getBrewerId);
+            case "abv" -> Comparator.comparingDouble(Beer::getAbv);
+            default -> throw new IllegalArgumentException("Cannot sort beers by " + sort.property());
+            };
+        }
+    }
@@ -0,0 +1,94 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Facet;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import jakarta.data.page.Page;
+import jakarta.data.page.Pageable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * <p>BeersByBrewerAggregation class.</p>
+ *
+ * Finds the beers of all brewers whose name is like a pattern in a single
+ * aggregation: the brewer match and the beer lookup both run on the server,
+ * so no brewer ids travel back and forth.
+ */
+@ApplicationScoped
+public class BeersByBrewerAggregation {
+
+    private static final String BEER = "beer";
+    private static final String CONTENT = "content";
+    private static final String TOTAL = "total";
+    private static final String COUNT = "count";
+
+    @Inject
+    MongoDatabase database;
+
+    /**
+     * <p>find.</p>
+     *
+     * @param brewerName a {@link java.lang.String} object
+     * @return a {@link java.util.stream.Stream} object
+     */
+    public Stream<Beer> find(String brewerName) {
+        return MongoCursors.stream(
+                brewers().aggregate(joinBeers(brewerName)).allowDiskUse(true).cursor(),
+                BeerDocuments::toBeer);
+        }
+
+    /**
+     * <p>find.</p>
+     *
+     * The page and its total are computed by one <code>$facet</code> stage.
+     *
+     * @param brewerName a {@link java.lang.String} object
+     * @param pageable a {@link jakarta.data.page.Pageable} object
+     * @return a {@link jakarta.data.page.Page} object
+     */
+    public Page<Beer> find(String brewerName, Pageable pageable) {
+        List<Bson> content = new ArrayList<>();
+        if (!pageable.sorts().isEmpty()) {
+            content.add(Aggregates.sort(BeerDocuments.sortOf(pageable.sorts())));
+            }
+        content.add(Aggregates.skip(Math.toIntExact((pageable.page() - 1) * pageable.size())));
+        content.add(Aggregates.limit(pageable.size()));
+
+        List<Bson> pipeline = joinBeers(brewerName);
+        pipeline.add(Aggregates.facet(
+                new Facet(CONTENT, content),
+                new Facet(TOTAL, Aggregates.count(COUNT))));
+
+        Document result = brewers().aggregate(pipeline).allowDiskUse(true).first();
+        List<Beer> beers = result.getList(CONTENT, Document.class).stream()
+                .map(BeerDocuments::toBeer)
+                .toList();
+        List<Document> total = result.getList(TOTAL, Document.class);
+        return new ContentPage<>(beers, pageable,
+                total.isEmpty() ? 0 : total.get(0).get(COUNT, Number.class).longValue());
+        }
+
+    private MongoCollection<Document> brewers() {
+        return database.getCollection(BrewerDocuments.COLLECTION);
+        }
+
+    private static List<Bson> joinBeers(String brewerName) {
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(Aggregates.match(Filters.regex(BrewerDocuments.NAME, LikePattern.toRegex(brewerName))));
+        pipeline.add(Aggregates.project(Projections.include(BrewerDocuments.ID)));
+        pipeline.add(Aggregates.lookup(BeerDocuments.COLLECTION, BrewerDocuments.ID, BeerDocuments.BREWER_ID, BEER));
+        pipeline.add(Aggregates.unwind("$" + BEER));
+        pipeline.add(Aggregates.replaceRoot("$" + BEER));
+        return pipeline;
+        }
+    }
@@ -0,0 +1,64 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * <p>BinaryRecordWriter class.</p>
+ *
+ * Writes beer and brewer responses, alone or as a list or stream, in the
+ * {@link org.redlich.beers.BinaryRecords} encoding. Streams are written one
+ * record at a time and always closed.
+ */
+@Provider
+@ApplicationScoped
+@Produces(CatalogMediaTypes.BEERS_BINARY)
+public class BinaryRecordWriter implements MessageBodyWriter<Object> {
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return Stream.class.isAssignableFrom(type)
+                || Collection.class.isAssignableFrom(type)
+                || BeerResponse.class.equals(type)
+                || BrewerResponse.class.equals(type);
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        OutputStream out = new BufferedOutputStream(entityStream);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        if (entity instanceof Stream<?> stream) {
+            try (stream) {
+                Iterator<?> records = stream.iterator();
+                while (records.hasNext()) {
+                    BinaryRecords.write(out, records.next(), buffer);
+                    }
+                }
+            } else if (entity instanceof Collection<?> records) {
+            for (Object record : records) {
+                BinaryRecords.write(out, record, buffer);
+                }
+            } else {
+            BinaryRecords.write(out, entity, buffer);
+            }
+        out.flush();
+        }
+    }
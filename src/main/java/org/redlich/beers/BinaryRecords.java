@@ -0,0 +1,110 @@
+package org.redlich.beers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>BinaryRecords class.</p>
+ *
+ * The {@link org.redlich.beers.CatalogMediaTypes#BEERS_BINARY} encoding: a
+ * sequence of frames, each a big-endian <code>int</code> length followed by
+ * that many payload bytes. A payload starts with a kind byte:
+ * <ul>
+ *     <li>{@value #BEER}: int id, int brewerId, double abv, byte type ordinal (-1 for none), string name</li>
+ *     <li>{@value #BREWER}: int id, string name, string city, string state</li>
+ * </ul>
+ * A string is an <code>int</code> byte length (-1 for null) followed by UTF-8 bytes.
+ */
+final class BinaryRecords {
+
+    static final byte BEER = 1;
+
+    static final byte BREWER = 2;
+
+    private BinaryRecords() {
+        }
+
+    static void write(OutputStream out, Object value, ByteArrayOutputStream buffer) throws IOException {
+        buffer.reset();
+        DataOutputStream payload = new DataOutputStream(buffer);
+        if (value instanceof BeerResponse beer) {
+            payload.writeByte(BEER);
+            payload.writeInt(beer.id());
+            payload.writeInt(beer.brewerId());
+            payload.writeDouble(beer.abv());
+            payload.writeByte(beer.type() == null ? -1 : beer.type().ordinal());
+            writeString(payload, beer.name());
+            } else if (value instanceof BrewerResponse brewer) {
+            payload.writeByte(BREWER);
+            payload.writeInt(brewer.id());
+            writeString(payload, brewer.name());
+            writeString(payload, brewer.city());
+            writeString(payload, brewer.state());
+            } else {
+            throw new IllegalArgumentException("No binary encoding for " + value.getClass().getName());
+            }
+        payload.flush();
+        DataOutputStream frame = new DataOutputStream(out);
+        frame.writeInt(buffer.size());
+        buffer.writeTo(out);
+        }
+
+    /**
+     * <p>read.</p>
+     *
+     * @param in a stream positioned at the start of a frame
+     * @return the decoded record, or null at the end of the stream
+     */
+    static Object read(InputStream in) throws IOException {
+        DataInputStream frame = new DataInputStream(in);
+        int length;
+        try {
+            length = frame.readInt();
+            } catch (EOFException e) {
+            return null;
+            }
+        byte[] bytes = frame.readNBytes(length);
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte kind = payload.readByte();
+        return switch (kind) {
+            case BEER -> {
+                int id = payload.readInt();
+                int brewerId = payload.readInt();
+                double abv = payload.readDouble();
+                byte type = payload.readByte();
+                yield new BeerResponse(id, readString(payload), type < 0 ? null : BeerType.values()[type], brewerId, abv);
+                }
+            case BREWER -> new BrewerResponse(payload.readInt(), readString(payload), readString(payload), readString(payload));
+            default -> throw new IOException("Unknown record kind " + kind);
+            };
+        }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+            }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+            }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
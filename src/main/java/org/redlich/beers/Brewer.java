@@ -15,6 +15,8 @@ import java.util.Objects;
  * @version $Id: $Id
  */
 @Entity
+@MongoIndex({"name", "_id"})
+@MongoIndex({"state", "_id"})
 public class Brewer {
     @Id
     private int id;
@@ -0,0 +1,9 @@
+package org.redlich.beers;
+
+public record BrewerBatchRequest(int id, String name, String city, String state) {
+
+    public Brewer createBrewer() {
+        return new BrewerRequest(name, city, state).createBrewer(id);
+        }
+
+    }
@@ -0,0 +1,72 @@
+package org.redlich.beers;
+
+import org.bson.Document;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <p>BrewerDocuments class.</p>
+ *
+ * Maps between {@link org.redlich.beers.Brewer} and the document layout JNoSQL
+ * writes to the Brewer collection.
+ */
+final class BrewerDocuments {
+
+    static final String COLLECTION = "Brewer";
+
+    static final String ID = "_id";
+    static final String NAME = "name";
+    static final String CITY = "city";
+    static final String STATE = "state";
+
+    /**
+     * The {@link org.redlich.beers.BrewerResponse} properties, in output order.
+     */
+    static final Map<String, Function<BrewerResponse, Object>> RESPONSE_FIELDS = responseFields();
+
+    private BrewerDocuments() {
+        }
+
+    static Brewer toBrewer(Document document) {
+        Number id = document.get(ID, Number.class);
+        return Brewer.builder()
+                .id(id == null ? 0 : id.intValue())
+                .name(document.getString(NAME))
+                .city(document.getString(CITY))
+                .state(document.getString(STATE))
+                .build();
+        }
+
+    /**
+     * Maps straight to the response, without the entity in between. Fields
+     * left out by a projection are returned as null or 0.
+     */
+    static BrewerResponse toResponse(Document document) {
+        Number id = document.get(ID, Number.class);
+        return new BrewerResponse(id == null ? 0 : id.intValue(), document.getString(NAME),
+                document.getString(CITY), document.getString(STATE));
+        }
+
+    static String fieldOf(String property) {
+        return "id".equals(property) ? ID : property;
+        }
+
+    static Document toDocument(Brewer brewer) {
+        return new Document(ID, brewer.getId())
+                .append(NAME, brewer.getName())
+                .append(CITY, brewer.getCity())
+                .append(STATE, brewer.getState());
+        }
+
+    private static Map<String, Function<BrewerResponse, Object>> responseFields() {
+        Map<String, Function<BrewerResponse, Object>> fields = new LinkedHashMap<>();
+        fields.put("id", BrewerResponse::id);
+        fields.put("name", BrewerResponse::name);
+        fields.put("city", BrewerResponse::city);
+        fields.put("state", BrewerResponse::state);
+        return Collections.unmodifiableMap(fields);
+        }
+    }
@@ -0,0 +1,132 @@
+package org.redlich.beers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * <p>BrewerIdCache class.</p>
+ *
+ * Caches the brewer ids a brewer name pattern resolves to. An entry is dropped
+ * as soon as a brewer is written whose new name matches the pattern or whose
+ * id the entry contains, which covers renames as well as additions and removals.
+ */
+@ApplicationScoped
+public class BrewerIdCache {
+
+    @Inject
+    @ConfigProperty(name = "beers.brewer-id-cache.maximum-size", defaultValue = "1000")
+    long maximumSize;
+
+    @Inject
+    @ConfigProperty(name = "beers.brewer-id-cache.expire-after-write-seconds", defaultValue = "600")
+    long expireAfterWriteSeconds;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private Cache<String, Resolution> cache;
+
+    @PostConstruct
+    void start() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+        }
+
+    /**
+     * <p>brewerIdsOf.</p>
+     *
+     * @param pattern a brewer name LIKE pattern
+     * @param resolver resolves the pattern on a cache miss
+     * @return the ids of the brewers whose name matches the pattern
+     */
+    public List<Integer> brewerIdsOf(String pattern, Function<String, List<Integer>> resolver) {
+        Resolution cached = cache.getIfPresent(pattern);
+        if (cached != null) {
+            return cached.brewerIds();
+            }
+        long resolvedAt = generation.get();
+        Resolution resolution = new Resolution(LikePattern.toRegex(pattern), List.copyOf(resolver.apply(pattern)));
+        cache.put(pattern, resolution);
+        // a brewer written while resolving may not be reflected in the ids
+        if (generation.get() != resolvedAt) {
+            cache.invalidate(pattern);
+            }
+        return resolution.brewerIds();
+        }
+
+    void onChange(@Observes CatalogChange change) {
+        switch (change.kind()) {
+            case BREWERS_SAVED, BREWERS_REMOVED -> {
+                if (change.brewers().size() == 1) {
+                    invalidate(change.brewers().get(0));
+                    } else {
+                    // cheaper than matching every cached pattern against every brewer
+                    invalidateAll();
+                    }
+                }
+            case ALL_BREWERS_REMOVED, BREWERS_STALE -> invalidateAll();
+            default -> {
+                }
+            }
+        }
+
+    /**
+     * <p>invalidate.</p>
+     *
+     * Must be called after the brewer has been written or removed.
+     *
+     * @param brewer a {@link org.redlich.beers.Brewer} object
+     */
+    public void invalidate(Brewer brewer) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(resolution -> resolution.affectedBy(brewer));
+        }
+
+    /**
+     * <p>invalidateAll.</p>
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        }
+
+    /**
+     * <p>stats.</p>
+     *
+     * @return a {@link com.github.benmanes.caffeine.cache.stats.CacheStats} object
+     */
+    public CacheStats stats() {
+        return cache.stats();
+        }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return the number of cached patterns
+     */
+    public long size() {
+        return cache.estimatedSize();
+        }
+
+    private record Resolution(Pattern pattern, List<Integer> brewerIds) {
+
+        boolean affectedBy(Brewer brewer) {
+            return brewerIds.contains(brewer.getId())
+                    || (brewer.getName() != null && pattern.matcher(brewer.getName()).matches());
+            }
+        }
+    }
@@ -0,0 +1,145 @@
+package org.redlich.beers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.data.page.Page;
+import jakarta.data.page.Pageable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * <p>BrewerIdFanOut class.</p>
+ *
+ * Runs {@link org.redlich.beers.BeerRepository#findByBrewerIdIn} for large id
+ * lists as several bounded <code>$in</code> queries in parallel. Sorted pages
+ * are reassembled with a k-way merge, so the result is the same as a single
+ * query over all ids.
+ *
+ * Every chunk has to supply all rows up to the end of the requested page, so
+ * a page whose end lies beyond <code>beers.fan-out.max-window</code> is read
+ * with a single query over all ids instead.
+ */
+@ApplicationScoped
+public class BrewerIdFanOut {
+
+    @Inject
+    @Instrumented
+    BeerRepository beerRepository;
+
+    @Inject
+    @ConfigProperty(name = "beers.fan-out.chunk-size", defaultValue = "1000")
+    int chunkSize;
+
+    @Inject
+    @ConfigProperty(name = "beers.fan-out.parallelism", defaultValue = "4")
+    int parallelism;
+
+    @Inject
+    @ConfigProperty(name = "beers.fan-out.max-window", defaultValue = "10000")
+    int maxWindow;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "beer-fan-out-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+            });
+        }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+        }
+
+    /**
+     * <p>findByBrewerIdIn.</p>
+     *
+     * @param brewerIds a {@link java.util.List} object
+     * @return a {@link java.util.stream.Stream} object
+     */
+    public Stream<Beer> findByBrewerIdIn(List<Integer> brewerIds) {
+        return findByBrewerIdIn(brewerIds, chunkSize);
+        }
+
+    /**
+     * <p>findByBrewerIdIn.</p>
+     *
+     * @param brewerIds a {@link java.util.List} object
+     * @param pageable a {@link jakarta.data.page.Pageable} object
+     * @return a {@link jakarta.data.page.Page} object
+     */
+    public Page<Beer> findByBrewerIdIn(List<Integer> brewerIds, Pageable pageable) {
+        return findByBrewerIdIn(brewerIds, pageable, chunkSize, maxWindow);
+        }
+
+    Stream<Beer> findByBrewerIdIn(List<Integer> brewerIds, int chunkSize) {
+        if (brewerIds.size() <= chunkSize) {
+            return beerRepository.findByBrewerIdIn(brewerIds);
+            }
+        List<CompletableFuture<List<Beer>>> chunks = chunksOf(brewerIds, chunkSize).stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> {
+                    try (Stream<Beer> beers = beerRepository.findByBrewerIdIn(chunk)) {
+                        return beers.toList();
+                        }
+                    }, executor))
+                .toList();
+        return chunks.stream().flatMap(chunk -> join(chunk).stream());
+        }
+
+    Page<Beer> findByBrewerIdIn(List<Integer> brewerIds, Pageable pageable, int chunkSize, int maxWindow) {
+        // every chunk has to supply all rows up to the end of the requested page
+        long offset = (pageable.page() - 1) * pageable.size();
+        if (brewerIds.size() <= chunkSize || offset + pageable.size() > maxWindow) {
+            return beerRepository.findByBrewerIdIn(brewerIds, pageable);
+            }
+        Pageable window = Pageable.ofSize(Math.toIntExact(offset + pageable.size()))
+                .sortBy(pageable.sorts());
+        List<CompletableFuture<Page<Beer>>> chunks = chunksOf(brewerIds, chunkSize).stream()
+                .map(chunk -> CompletableFuture.supplyAsync(
+                        () -> beerRepository.findByBrewerIdIn(chunk, window), executor))
+                .toList();
+
+        List<List<Beer>> contents = new ArrayList<>(chunks.size());
+        long totalElements = 0;
+        for (CompletableFuture<Page<Beer>> chunk : chunks) {
+            Page<Beer> page = join(chunk);
+            contents.add(page.content());
+            totalElements += page.totalElements();
+            }
+        List<Beer> merged = KWayMerge.merge(contents, BeerSorts.comparatorOf(pageable.sorts()), offset, pageable.size());
+        return new ContentPage<>(merged, pageable, totalElements);
+        }
+
+    private static List<List<Integer>> chunksOf(List<Integer> ids, int chunkSize) {
+        List<List<Integer>> chunks = new ArrayList<>((ids.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            chunks.add(List.copyOf(ids.subList(from, Math.min(ids.size(), from + chunkSize))));
+            }
+        return chunks;
+        }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+            } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+                }
+            throw e;
+            }
+        }
+    }
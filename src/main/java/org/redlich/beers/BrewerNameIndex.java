@@ -0,0 +1,153 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Projections;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>BrewerNameIndex class.</p>
+ *
+ * Answers brewer name LIKE patterns from an in-process
+ * {@link org.redlich.beers.TrigramIndex}. Unanchored patterns such as
+ * <code>%Brew%</code> cannot use a B-tree index in MongoDB. The index is
+ * loaded from the Brewer collection on first use. After that it is kept in
+ * sync by every {@link org.redlich.beers.CatalogChange}, of this node or,
+ * through the {@link org.redlich.beers.CatalogChangeListener}, of another.
+ *
+ * The index evaluates patterns with {@link org.redlich.beers.LikePattern},
+ * not with the LIKE translation of JNoSQL that <code>findByNameLike</code>
+ * uses, so it is off by default, until <code>BrewerNameIndexTest</code>
+ * shows both finding the same brewers.
+ */
+@ApplicationScoped
+public class BrewerNameIndex {
+
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    @ConfigProperty(name = "beers.brewer-name-index.enabled", defaultValue = "false")
+    boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TrigramIndex index = new TrigramIndex();
+
+    private volatile boolean loaded;
+
+    /**
+     * <p>brewerIdsOf.</p>
+     *
+     * @param pattern a brewer name LIKE pattern
+     * @return the ids of the matching brewers, or empty when the index is disabled
+     */
+    public Optional<List<Integer>> brewerIdsOf(String pattern) {
+        if (!enabled) {
+            return Optional.empty();
+            }
+        load();
+        lock.readLock().lock();
+        try {
+            return Optional.of(index.search(pattern));
+            } finally {
+            lock.readLock().unlock();
+            }
+        }
+
+    void onChange(@Observes CatalogChange change) {
+        switch (change.kind()) {
+            case BREWERS_SAVED -> change.brewers().forEach(this::put);
+            case BREWERS_REMOVED -> change.brewers().forEach(brewer -> remove(brewer.getId()));
+            case ALL_BREWERS_REMOVED -> clear();
+            case BREWERS_STALE -> invalidate();
+            default -> {
+                }
+            }
+        }
+
+    /**
+     * <p>put.</p>
+     *
+     * @param brewer a {@link org.redlich.beers.Brewer} object
+     */
+    public void put(Brewer brewer) {
+        write(() -> index.put(brewer.getId(), brewer.getName()));
+        }
+
+    /**
+     * <p>remove.</p>
+     *
+     * @param id a int
+     */
+    public void remove(int id) {
+        write(() -> index.remove(id));
+        }
+
+    /**
+     * <p>clear.</p>
+     */
+    public void clear() {
+        write(index::clear);
+        }
+
+    /**
+     * <p>invalidate.</p>
+     *
+     * Drops the index, so the next lookup loads it again from the collection.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            loaded = false;
+            } finally {
+            lock.writeLock().unlock();
+            }
+        }
+
+    private void write(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            // until the index is loaded, the load reads the write from the collection
+            if (loaded) {
+                update.run();
+                }
+            } finally {
+            lock.writeLock().unlock();
+            }
+        }
+
+    private void load() {
+        if (loaded) {
+            return;
+            }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+                }
+            try (MongoCursor<Document> brewers = database.getCollection(BrewerDocuments.COLLECTION)
+                    .find()
+                    .projection(Projections.include(BrewerDocuments.NAME))
+                    .cursor()) {
+                while (brewers.hasNext()) {
+                    Brewer brewer = BrewerDocuments.toBrewer(brewers.next());
+                    index.put(brewer.getId(), brewer.getName());
+                    }
+                }
+            loaded = true;
+            } finally {
+            lock.writeLock().unlock();
+            }
+        }
+    }
@@ -53,6 +53,39 @@ public interface BrewerRepository extends DataRepository<Brewer, Integer> {
      */
     Page<Brewer> findByNameLike(String name, Pageable pageable);
 
+    /**
+     * <p>findByNameLikeAndNameGreaterThan.</p>
+     *
+     * Seeks past all brewers named up to and including <code>after</code>.
+     *
+     * @param name a {@link java.lang.String} object
+     * @param after a {@link java.lang.String} object
+     * @param pageable a {@link jakarta.data.page.Pageable} object
+     * @return a {@link java.util.stream.Stream} object
+     */
+    Stream<Brewer> findByNameLikeAndNameGreaterThan(String name, String after, Pageable pageable);
+
+    /**
+     * <p>findByNameLikeAndNameAndIdGreaterThan.</p>
+     *
+     * Seeks past the brewers named <code>after</code> up to and including <code>id</code>.
+     *
+     * @param name a {@link java.lang.String} object
+     * @param after a {@link java.lang.String} object
+     * @param id a int
+     * @param pageable a {@link jakarta.data.page.Pageable} object
+     * @return a {@link java.util.stream.Stream} object
+     */
+    Stream<Brewer> findByNameLikeAndNameAndIdGreaterThan(String name, String after, int id, Pageable pageable);
+
+    /**
+     * <p>findByState.</p>
+     *
+     * @param state a {@link java.lang.String} object
+     * @return a {@link java.util.stream.Stream} object
+     */
+    Stream<Brewer> findByState(String state);
+
     /**
      * <p>save.</p>
      *
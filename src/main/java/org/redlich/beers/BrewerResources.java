@@ -5,9 +5,14 @@ import jakarta.data.page.Pageable;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Variant;
 
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 /**
  * <p>BrewerResources class.</p>
@@ -21,47 +26,77 @@ import java.util.List;
 @Produces(MediaType.APPLICATION_JSON)
 public class BrewerResources {
 
+    private static final int PAGE_SIZE = 5;
+
     @Inject
     BrewerService brewerService;
 
+    @Inject
+    CatalogVersions catalogVersions;
+
+    @Inject
+    DatabaseExecutor databaseExecutor;
+
     /**
      * <p>findById.</p>
      *
+     * Answers 304 without reading the brewer when <code>If-None-Match</code> is the
+     * tag this node last returned for it, and the brewer has not changed since.
+     *
      * @param id a int
-     * @return a {@link org.redlich.beers.BrewerResponse} object
+     * @param request a {@link jakarta.ws.rs.core.Request} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link jakarta.ws.rs.core.Response} with a {@link org.redlich.beers.BrewerResponse}
      */
+    @Limited(OperationCost.CHEAP)
     @GET
     @Path("/{id}")
-    public BrewerResponse findById(@PathParam("id") int id) {
-        return brewerService.findById(id)
+    public CompletionStage<Response> findById(@PathParam("id") int id, @Context Request request) {
+        return ConditionalResponses.of(request, catalogVersions.brewer(id), databaseExecutor, () -> brewerService.findById(id)
                 .map(BrewerResponse::of)
-                .orElseThrow(() -> new NotFoundException());
+                .orElseThrow(() -> new NotFoundException()));
         }
 
     /**
      * <p>listBrewers.</p>
      *
-     * @return a {@link java.util.List} object
+     * The brewers are written to the response as they are read from the cursor.
+     *
+     * With <code>fields</code>, for example <code>?fields=name,state</code>, only
+     * those properties are read from the database and returned, as JSON only;
+     * a request that does not accept JSON gets 406.
+     *
+     * @param fields a comma-separated list of brewer properties, absent for all
+     * @param request a {@link jakarta.ws.rs.core.Request} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link jakarta.ws.rs.core.Response} with a {@link java.util.stream.Stream}
      */
+    @Limited(OperationCost.EXPENSIVE)
     @GET
-    public List<BrewerResponse> listBrewers() {
-        return brewerService.listBrewers()
-                .map(BrewerResponse::of)
-                .toList();
+    @Produces({MediaType.APPLICATION_JSON, CatalogMediaTypes.BEERS_BINARY_QS})
+    public CompletionStage<Response> listBrewers(@QueryParam("fields") String fields, @Context Request request) {
+        Fieldset<BrewerResponse> fieldset = fieldsetOf(fields);
+        Variant variant = fieldset.variantOf(request);
+        return databaseExecutor.submitStream(() -> brewerService.listBrewerResponses(fieldset))
+                .thenApply(responses -> fieldset.toResponse(responses, variant));
         }
 
     /**
      * <p>listBrewerByName.</p>
      *
+     * Answers 304 without querying when <code>If-None-Match</code> is the tag
+     * this node last returned for the list, and no brewer has changed since.
+     *
      * @param name a {@link java.lang.String} object
-     * @return a {@link java.util.List} object
+     * @param request a {@link jakarta.ws.rs.core.Request} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link jakarta.ws.rs.core.Response} with a {@link java.util.List}
      */
+    @Limited(OperationCost.EXPENSIVE)
     @GET
+    @Produces({MediaType.APPLICATION_JSON, CatalogMediaTypes.BEERS_BINARY_QS})
     @Path("/brewer/{name}")
-    public List<BrewerResponse> listBrewerByName(@PathParam("name") String name) {
-        return brewerService.listBrewersByNameLike(name)
+    public CompletionStage<Response> listBrewerByName(@PathParam("name") String name, @Context Request request) {
+        return ConditionalResponses.of(request, CatalogMediaTypes.listVariants(), catalogVersions.brewers("name", name), databaseExecutor, () -> brewerService.listBrewersByNameLike(name)
                 .map(BrewerResponse::of)
-                .toList();
+                .toList());
         }
 
     /**
@@ -69,17 +104,41 @@ public class BrewerResources {
      *
      * @param name a {@link java.lang.String} object
      * @param pageNum a long
-     * @return a {@link java.util.List} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link java.util.List}
      */
+    @Limited(OperationCost.EXPENSIVE)
     @GET
+    @Produces({MediaType.APPLICATION_JSON, CatalogMediaTypes.BEERS_BINARY_QS})
     @Path("/brewer/{name}/page/{pageNum}")
-    public List<BrewerResponse> listBrewerByName(@PathParam("name") String name,
-                                                 @PathParam("pageNum") long pageNum) {
-        Pageable pageRequest = Pageable.ofSize(5)
+    public CompletionStage<List<BrewerResponse>> listBrewerByName(@PathParam("name") String name,
+                                                                  @PathParam("pageNum") long pageNum) {
+        Pageable pageRequest = Pageable.ofSize(PAGE_SIZE)
                 .page(pageNum)
                 .sortBy(Sort.asc("name"), Sort.asc("id"));
-        return brewerService.listBrewersByNameLike(name, pageRequest)
-                .stream().map(BrewerResponse::of).toList();
+        return databaseExecutor.submit(() -> brewerService.listBrewersByNameLike(name, pageRequest)
+                .stream().map(BrewerResponse::of).toList());
+        }
+
+    /**
+     * <p>listBrewerByName.</p>
+     *
+     * Keyset variant of the paged endpoint: pass the <code>next</code> token of
+     * the previous page as <code>cursor</code> to fetch the following page.
+     *
+     * @param name a {@link java.lang.String} object
+     * @param cursor a {@link java.lang.String} object, absent for the first page
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link org.redlich.beers.KeysetPage}
+     */
+    @Limited(OperationCost.EXPENSIVE)
+    @GET
+    @Path("/brewer/{name}/page")
+    public CompletionStage<KeysetPage<BrewerResponse>> listBrewerByName(@PathParam("name") String name,
+                                                                        @QueryParam("cursor") String cursor) {
+        KeysetCursor after = cursorOf(cursor);
+        return databaseExecutor.submit(() -> KeysetPage.of(brewerService.listBrewersByNameLike(name, after, PAGE_SIZE),
+                PAGE_SIZE,
+                brewer -> new KeysetCursor(brewer.getName(), brewer.getId()),
+                BrewerResponse::of));
         }
 
     /**
@@ -87,31 +146,75 @@ public class BrewerResources {
      *
      * @param id a int
      * @param request a {@link org.redlich.beers.BrewerRequest} object
-     * @return a {@link org.redlich.beers.BrewerResponse} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link org.redlich.beers.BrewerResponse}
      */
+    @Limited(OperationCost.CHEAP)
     @POST
     @Path("/{id}")
-    public BrewerResponse add(@PathParam("id") int id, BrewerRequest request) {
+    public CompletionStage<BrewerResponse> add(@PathParam("id") int id, BrewerRequest request) {
         var brewer = request.createBrewer(id);
-        return BrewerResponse.of(brewerService.add(brewer));
+        return databaseExecutor.submit(() -> BrewerResponse.of(brewerService.add(brewer)));
+        }
+
+    /**
+     * <p>addAll.</p>
+     *
+     * Each brewer is validated and written independently; the response reports
+     * the outcome per item, in request order.
+     *
+     * @param requests a {@link java.util.List} object
+     * @return a {@link java.util.concurrent.CompletionStage} of a {@link java.util.List}
+     */
+    @Limited(OperationCost.EXPENSIVE)
+    @POST
+    @Path("/batch")
+    public CompletionStage<List<BatchItemResponse>> addAll(List<BrewerBatchRequest> requests) {
+        return databaseExecutor.submit(() -> brewerService.addAll(requests.stream().map(BrewerBatchRequest::createBrewer).toList()));
         }
 
     /**
      * <p>remove.</p>
      *
      * @param id a int
+     * @return a {@link java.util.concurrent.CompletionStage} object
      */
+    @Limited(OperationCost.CHEAP)
     @Path("/{id}")
     @DELETE
-    public void remove(@PathParam("id") int id) {
-        brewerService.remove(id);
+    public CompletionStage<Void> remove(@PathParam("id") int id) {
+        return databaseExecutor.submit(() -> {
+            brewerService.remove(id);
+            return null;
+            });
         }
 
     /**
      * <p>removeAll.</p>
+     *
+     * @return a {@link java.util.concurrent.CompletionStage} object
      */
+    @Limited(OperationCost.EXPENSIVE)
     @DELETE
-    public void removeAll() {
-        brewerService.removeAll();
+    public CompletionStage<Void> removeAll() {
+        return databaseExecutor.submit(() -> {
+            brewerService.removeAll();
+            return null;
+            });
+        }
+
+    private static Fieldset<BrewerResponse> fieldsetOf(String fields) {
+        try {
+            return Fieldset.parse(fields, BrewerDocuments.RESPONSE_FIELDS, BrewerDocuments::fieldOf);
+            } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+            }
+        }
+
+    private static KeysetCursor cursorOf(String cursor) {
+        try {
+            return KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor", e);
+            }
         }
     }
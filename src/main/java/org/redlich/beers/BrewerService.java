@@ -1,11 +1,16 @@
 package org.redlich.beers;
 
+import com.mongodb.client.MongoDatabase;
 import jakarta.data.page.Page;
 import jakarta.data.page.Pageable;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Flow;
 import java.util.stream.Stream;
 
 /**
@@ -18,11 +23,31 @@ import java.util.stream.Stream;
 public class BrewerService {
 
     @Inject
+    @Instrumented
     BrewerRepository brewerRepository;
 
     @Inject
+    @Instrumented
     BeerRepository beerRepository;
 
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    ReactiveBrewerRepository reactiveBrewerRepository;
+
+    @Inject
+    EntityCaches entityCaches;
+
+    @Inject
+    BatchWriter batchWriter;
+
+    @Inject
+    LocalWrites localWrites;
+
+    @Inject
+    Event<CatalogChange> catalogChanges;
+
     /**
      * <p>findById.</p>
      *
@@ -30,16 +55,48 @@ public class BrewerService {
      * @return a {@link java.util.Optional} object
      */
     public Optional<Brewer> findById(int id) {
-        return brewerRepository.findById(id);
+        return entityCaches.brewers().findById(id, brewerRepository::findById);
         }
 
     /**
      * <p>listBrewers.</p>
      *
+     * The returned stream is backed by an open cursor and must be closed
+     * when the caller does not consume it fully.
+     *
      * @return a {@link java.util.stream.Stream} object
      */
     public Stream<Brewer> listBrewers() {
-        return brewerRepository.findAll();
+        return MongoCursors.stream(
+                database.getCollection(BrewerDocuments.COLLECTION).find().cursor(),
+                BrewerDocuments::toBrewer);
+        }
+
+    /**
+     * <p>listBrewerResponses.</p>
+     *
+     * Like {@link #listBrewers()}, but only the fields of <code>fields</code> are
+     * read, and documents are mapped straight to responses.
+     *
+     * @param fields a {@link org.redlich.beers.Fieldset} object
+     * @return a {@link java.util.stream.Stream} object
+     */
+    public Stream<BrewerResponse> listBrewerResponses(Fieldset<BrewerResponse> fields) {
+        return MongoCursors.stream(
+                database.getCollection(BrewerDocuments.COLLECTION).find().projection(fields.projection()).cursor(),
+                BrewerDocuments::toResponse);
+        }
+
+    /**
+     * <p>publishBrewers.</p>
+     *
+     * Non-blocking variant of {@link #listBrewers()}: documents are fetched as
+     * the subscriber requests them.
+     *
+     * @return a {@link java.util.concurrent.Flow.Publisher} object
+     */
+    public Flow.Publisher<Brewer> publishBrewers() {
+        return reactiveBrewerRepository.findAll();
         }
 
     /**
@@ -63,6 +120,35 @@ public class BrewerService {
         return brewerRepository.findByNameLike(name, pageRequest);
         }
 
+    /**
+     * <p>listBrewersByNameLike.</p>
+     *
+     * Keyset variant: returns up to <code>size</code> brewers, ordered by name and id,
+     * that follow <code>after</code>. Deep pages cost the same as the first one.
+     *
+     * @param name a {@link java.lang.String} object
+     * @param after a {@link org.redlich.beers.KeysetCursor} object, null for the first page
+     * @param size a int
+     * @return a {@link java.util.List} object
+     */
+    public List<Brewer> listBrewersByNameLike(String name, KeysetCursor after, int size) {
+        List<Brewer> brewers = new ArrayList<>(size);
+        if (after != null) {
+            try (Stream<Brewer> sameName = brewerRepository.findByNameLikeAndNameAndIdGreaterThan(
+                    name, after.name(), after.id(), KeysetCursor.pageable(size))) {
+                sameName.forEach(brewers::add);
+                }
+            }
+        if (brewers.size() < size) {
+            // brewer names are never blank, so "" seeks to the first brewer
+            try (Stream<Brewer> nextNames = brewerRepository.findByNameLikeAndNameGreaterThan(
+                    name, after == null ? "" : after.name(), KeysetCursor.pageable(size - brewers.size()))) {
+                nextNames.forEach(brewers::add);
+                }
+            }
+        return brewers;
+        }
+
     /**
      * <p>add.</p>
      *
@@ -70,7 +156,30 @@ public class BrewerService {
      * @return a {@link org.redlich.beers.Brewer} object
      */
     public Brewer add(Brewer brewer) {
-        return brewerRepository.save(brewer);
+        Brewer saved = localWrites.save(BrewerDocuments.COLLECTION, brewer.getId(), brewer, brewerRepository::save);
+        catalogChanges.fire(CatalogChange.brewersSaved(List.of(saved)));
+        return saved;
+        }
+
+    /**
+     * <p>addAll.</p>
+     *
+     * @param brewers a {@link java.util.List} object
+     * @return one {@link org.redlich.beers.BatchItemResponse} per brewer, in the same order
+     */
+    public List<BatchItemResponse> addAll(List<Brewer> brewers) {
+        List<BatchItemResponse> results = batchWriter.write(
+                BrewerDocuments.COLLECTION, brewers, Brewer::getId, BrewerDocuments::toDocument);
+        List<Brewer> saved = new ArrayList<>(brewers.size());
+        for (int i = 0; i < brewers.size(); i++) {
+            if (results.get(i).success()) {
+                saved.add(brewers.get(i));
+                }
+            }
+        if (!saved.isEmpty()) {
+            catalogChanges.fire(CatalogChange.brewersSaved(saved));
+            }
+        return results;
         }
 
     /**
@@ -81,8 +190,11 @@ public class BrewerService {
     public void remove(int id) {
         brewerRepository.findById(id)
                 .ifPresent(brewer -> {
-                    beerRepository.deleteByBrewerId(brewer.getId());
-                    brewerRepository.remove(brewer);
+                    localWrites.delete(BeerDocuments.COLLECTION, beerIdsOf(brewer.getId()),
+                            () -> beerRepository.deleteByBrewerId(brewer.getId()));
+                    localWrites.delete(BrewerDocuments.COLLECTION, List.of(brewer.getId()),
+                            () -> brewerRepository.remove(brewer));
+                    catalogChanges.fire(CatalogChange.brewerRemoved(brewer));
                     });
         }
 
@@ -90,6 +202,17 @@ public class BrewerService {
      * <p>removeAll.</p>
      */
     public void removeAll() {
-        brewerRepository.deleteAll();
+        localWrites.deleteAll(BrewerDocuments.COLLECTION, brewerRepository::deleteAll);
+        catalogChanges.fire(CatalogChange.allBrewersRemoved());
+        }
+
+    /**
+     * The beers the cascade is about to delete, so that their deletes are
+     * recognized when they come back through the change stream.
+     */
+    private List<Integer> beerIdsOf(int brewerId) {
+        try (Stream<Beer> beers = beerRepository.findByBrewerIdIn(List.of(brewerId))) {
+            return beers.map(Beer::getId).toList();
+            }
         }
     }
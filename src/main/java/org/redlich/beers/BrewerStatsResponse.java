@@ -0,0 +1,12 @@
+package org.redlich.beers;
+
+import java.util.Map;
+
+/**
+ * <p>BrewerStatsResponse record.</p>
+ *
+ * The abv figures are null for a brewer without beers.
+ */
+public record BrewerStatsResponse(int brewerId, long beers, Double averageAbv, Double minAbv, Double maxAbv,
+                                  Map<BeerType, Long> beersByType) {
+    }
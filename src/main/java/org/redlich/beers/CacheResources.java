@@ -0,0 +1,41 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.List;
+
+/**
+ * <p>CacheResources class.</p>
+ *
+ * Reports the statistics of the in-process caches.
+ */
+@Path("cache")
+@ApplicationScoped
+@Produces(MediaType.APPLICATION_JSON)
+public class CacheResources {
+
+    @Inject
+    BrewerIdCache brewerIdCache;
+
+    @Inject
+    EntityCaches entityCaches;
+
+    /**
+     * <p>listCaches.</p>
+     *
+     * @return a {@link java.util.List} object
+     */
+    @GET
+    public List<CacheStatsResponse> listCaches() {
+        return List.of(
+                CacheStatsResponse.of("brewer-ids", brewerIdCache.size(), brewerIdCache.stats()),
+                CacheStatsResponse.of("beers", entityCaches.beers().size(), entityCaches.beers().stats()),
+                CacheStatsResponse.of("brewers", entityCaches.brewers().size(), entityCaches.brewers().stats())
+        );
+        }
+    }
@@ -0,0 +1,18 @@
+package org.redlich.beers;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+public record CacheStatsResponse(String name, long size, long hits, long misses, long evictions, double hitRatio) {
+
+    static CacheStatsResponse of(String name, long size, CacheStats stats) {
+        return new CacheStatsResponse(
+                name,
+                size,
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                stats.hitRate()
+        );
+        }
+
+    }
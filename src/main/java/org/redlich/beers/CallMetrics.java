@@ -0,0 +1,27 @@
+package org.redlich.beers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>CallMetrics class.</p>
+ *
+ * Calls, errors, result rows and latency of one repository method or endpoint.
+ */
+final class CallMetrics {
+
+    final LongAdder calls = new LongAdder();
+
+    final LongAdder errors = new LongAdder();
+
+    final LongAdder rows = new LongAdder();
+
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    void record(long nanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+            }
+        latency.record(nanos);
+        }
+    }
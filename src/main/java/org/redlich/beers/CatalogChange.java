@@ -0,0 +1,126 @@
+package org.redlich.beers;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>CatalogChange record.</p>
+ *
+ * Fired once for every write of the {@link org.redlich.beers.BeerService} and
+ * {@link org.redlich.beers.BrewerService}, and by the
+ * {@link org.redlich.beers.CatalogChangeListener} for every write of another
+ * node. The {@link org.redlich.beers.EntityCaches},
+ * {@link org.redlich.beers.CatalogVersions},
+ * {@link org.redlich.beers.CatalogStatistics},
+ * {@link org.redlich.beers.BeerSnapshot},
+ * {@link org.redlich.beers.BrewerNameIndex},
+ * {@link org.redlich.beers.BrewerIdCache} and
+ * {@link org.redlich.beers.CatalogChangeFeed} observe it and keep themselves
+ * in step with the catalog.
+ *
+ * A change of this node carries the written entities, the beers it replaced
+ * and, for removals, the removed entities as the statistics need them. A
+ * change of another node carries what the change stream had: the saved
+ * entities, the ids of the removed ones, and never the replaced beers.
+ *
+ * @param kind what changed
+ * @param beers the saved or removed beers
+ * @param replaced the beers a save of this node replaced, by id
+ * @param brewers the saved or removed brewers
+ * @param remote whether another node made the change
+ */
+public record CatalogChange(Kind kind,
+                            List<Beer> beers,
+                            Map<Integer, Beer> replaced,
+                            List<Brewer> brewers,
+                            boolean remote) {
+
+    /**
+     * What changed.
+     */
+    public enum Kind {
+
+        BEERS_SAVED,
+
+        BEERS_REMOVED,
+
+        /**
+         * Every beer was removed.
+         */
+        ALL_BEERS_REMOVED,
+
+        /**
+         * Beers changed in ways that are not known, so everything derived
+         * from them must be read again.
+         */
+        BEERS_STALE,
+
+        BREWERS_SAVED,
+
+        /**
+         * Brewers were removed. When this node removed them, their beers were
+         * removed with them; another node's cascade arrives as changes of its
+         * own.
+         */
+        BREWERS_REMOVED,
+
+        /**
+         * Every brewer was removed. Their beers remain.
+         */
+        ALL_BREWERS_REMOVED,
+
+        /**
+         * Brewers changed in ways that are not known, so everything derived
+         * from them must be read again.
+         */
+        BREWERS_STALE
+        }
+
+    static CatalogChange beersSaved(List<Beer> beers, Map<Integer, Beer> replaced) {
+        return new CatalogChange(Kind.BEERS_SAVED, List.copyOf(beers), Map.copyOf(replaced), List.of(), false);
+        }
+
+    static CatalogChange beerRemoved(Beer beer) {
+        return new CatalogChange(Kind.BEERS_REMOVED, List.of(beer), Map.of(), List.of(), false);
+        }
+
+    static CatalogChange allBeersRemoved() {
+        return new CatalogChange(Kind.ALL_BEERS_REMOVED, List.of(), Map.of(), List.of(), false);
+        }
+
+    static CatalogChange brewersSaved(List<Brewer> brewers) {
+        return new CatalogChange(Kind.BREWERS_SAVED, List.of(), Map.of(), List.copyOf(brewers), false);
+        }
+
+    static CatalogChange brewerRemoved(Brewer brewer) {
+        return new CatalogChange(Kind.BREWERS_REMOVED, List.of(), Map.of(), List.of(brewer), false);
+        }
+
+    static CatalogChange allBrewersRemoved() {
+        return new CatalogChange(Kind.ALL_BREWERS_REMOVED, List.of(), Map.of(), List.of(), false);
+        }
+
+    static CatalogChange remoteBeerSaved(Beer beer) {
+        return new CatalogChange(Kind.BEERS_SAVED, List.of(beer), Map.of(), List.of(), true);
+        }
+
+    static CatalogChange remoteBeerRemoved(int id) {
+        return new CatalogChange(Kind.BEERS_REMOVED, List.of(Beer.builder().id(id).build()), Map.of(), List.of(), true);
+        }
+
+    static CatalogChange remoteBeersStale() {
+        return new CatalogChange(Kind.BEERS_STALE, List.of(), Map.of(), List.of(), true);
+        }
+
+    static CatalogChange remoteBrewerSaved(Brewer brewer) {
+        return new CatalogChange(Kind.BREWERS_SAVED, List.of(), Map.of(), List.of(brewer), true);
+        }
+
+    static CatalogChange remoteBrewerRemoved(int id) {
+        return new CatalogChange(Kind.BREWERS_REMOVED, List.of(), Map.of(), List.of(Brewer.builder().id(id).build()), true);
+        }
+
+    static CatalogChange remoteBrewersStale() {
+        return new CatalogChange(Kind.BREWERS_STALE, List.of(), Map.of(), List.of(), true);
+        }
+    }
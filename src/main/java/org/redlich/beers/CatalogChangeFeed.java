@@ -0,0 +1,250 @@
+package org.redlich.beers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>CatalogChangeFeed class.</p>
+ *
+ * Fans out every {@link org.redlich.beers.CatalogChange} to the subscribers
+ * of <code>/db/beer/changes</code>, after the caches have seen it. With
+ * <code>beers.change-stream.enabled</code> that includes the writes of other
+ * nodes, read by the {@link org.redlich.beers.CatalogChangeListener}; without
+ * it, only the writes of this node. The events are <code>beer-saved</code>,
+ * <code>beer-deleted</code>, <code>beers-deleted</code>,
+ * <code>brewer-saved</code>, <code>brewer-deleted</code> (its beers are
+ * deleted with it on this node, another node's cascade arrives as
+ * <code>beer-deleted</code> events) and <code>brewers-deleted</code> (all
+ * beers are deleted with them). When the listener cannot tell what changed,
+ * subscribers get a <code>reset</code> event.
+ *
+ * The last <code>beers.changes.replay-size</code> changes are kept in a ring
+ * buffer. A subscriber that reconnects with a <code>Last-Event-ID</code> still
+ * in the buffer gets the changes it missed first. One that is too far behind,
+ * or comes from before a restart or from another node, gets a
+ * <code>reset</code> event instead and should read the catalog again.
+ */
+@ApplicationScoped
+public class CatalogChangeFeed {
+
+    static final String RESET = "reset";
+
+    @Inject
+    CatalogMetrics catalogMetrics;
+
+    @Inject
+    @ConfigProperty(name = "beers.changes.replay-size", defaultValue = "10000")
+    int replaySize;
+
+    @Inject
+    @ConfigProperty(name = "beers.changes.buffer-size", defaultValue = "256")
+    int bufferSize;
+
+    /**
+     * <code>disconnect</code> or <code>drop-oldest</code>, see {@link org.redlich.beers.ChangeSubscription.Overflow}.
+     */
+    @Inject
+    @ConfigProperty(name = "beers.changes.overflow", defaultValue = "disconnect")
+    String overflow;
+
+    @Inject
+    @ConfigProperty(name = "beers.changes.senders", defaultValue = "4")
+    int senders;
+
+    @Inject
+    @ConfigProperty(name = "beers.changes.heartbeat-seconds", defaultValue = "15")
+    long heartbeatSeconds;
+
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final Object lock = new Object();
+
+    private final List<ChangeSubscription> subscriptions = new ArrayList<>();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder disconnected = new LongAdder();
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private FeedEvent[] ring;
+
+    /**
+     * The sequence of the next change. Sequences start at 1.
+     */
+    private long next = 1;
+
+    private ChangeSubscription.Overflow overflowPolicy;
+
+    private ExecutorService sender;
+
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    void start() {
+        ring = new FeedEvent[Math.max(1, replaySize)];
+        overflowPolicy = ChangeSubscription.Overflow.of(overflow);
+        AtomicInteger threads = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(senders, task -> {
+            Thread thread = new Thread(task, "beer-changes-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+            });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "beer-changes-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+            });
+        if (heartbeatSeconds > 0) {
+            heartbeat.scheduleWithFixedDelay(() -> fanOut(FeedEvent.HEARTBEAT), heartbeatSeconds,
+                    heartbeatSeconds, TimeUnit.SECONDS);
+            }
+        catalogMetrics.gauge("beers_changes_subscribers", "Open change feed connections.", subscribers::get);
+        catalogMetrics.counter("beers_changes_dropped_total",
+                "Changes dropped for subscribers that fell behind.", dropped::sum);
+        catalogMetrics.counter("beers_changes_disconnected_total",
+                "Subscribers disconnected for falling behind.", disconnected::sum);
+        }
+
+    @PreDestroy
+    void stop() {
+        heartbeat.shutdownNow();
+        List<ChangeSubscription> open;
+        synchronized (lock) {
+            open = new ArrayList<>(subscriptions);
+            subscriptions.clear();
+            subscribers.set(0);
+            }
+        open.forEach(ChangeSubscription::close);
+        sender.shutdownNow();
+        }
+
+    /**
+     * <p>subscribe.</p>
+     *
+     * @param lastEventId the id of the last change the subscriber received, or null
+     * @param sink where to send the changes
+     * @return a {@link org.redlich.beers.ChangeSubscription} object
+     */
+    ChangeSubscription subscribe(String lastEventId, ChangeSink sink) {
+        synchronized (lock) {
+            // replay and registration under one lock, so no change falls in between
+            ChangeSubscription subscription = new ChangeSubscription(sink, bufferSize, overflowPolicy, sender,
+                    replayAfter(lastEventId), dropped, disconnected);
+            subscriptions.add(subscription);
+            subscribers.set(subscriptions.size());
+            subscription.start();
+            return subscription;
+            }
+        }
+
+    void onChange(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER) CatalogChange change) {
+        switch (change.kind()) {
+            case BEERS_SAVED -> change.beers().forEach(this::beerSaved);
+            case BEERS_REMOVED -> change.beers().forEach(beer -> beerDeleted(beer.getId()));
+            case ALL_BEERS_REMOVED -> beersDeleted();
+            case BREWERS_SAVED -> change.brewers().forEach(this::brewerSaved);
+            case BREWERS_REMOVED -> change.brewers().forEach(brewer -> brewerDeleted(brewer.getId()));
+            case ALL_BREWERS_REMOVED -> brewersDeleted();
+            case BEERS_STALE, BREWERS_STALE -> publish(RESET, Map.of());
+            }
+        }
+
+    void beerSaved(Beer beer) {
+        publish("beer-saved", BeerResponse.of(beer));
+        }
+
+    void beerDeleted(int id) {
+        publish("beer-deleted", Map.of("id", id));
+        }
+
+    void beersDeleted() {
+        publish("beers-deleted", Map.of());
+        }
+
+    void brewerSaved(Brewer brewer) {
+        publish("brewer-saved", BrewerResponse.of(brewer));
+        }
+
+    void brewerDeleted(int id) {
+        publish("brewer-deleted", Map.of("id", id));
+        }
+
+    void brewersDeleted() {
+        publish("brewers-deleted", Map.of());
+        }
+
+    private void publish(String event, Object data) {
+        synchronized (lock) {
+            long sequence = next++;
+            FeedEvent change = new FeedEvent(idOf(sequence), sequence, event, data);
+            ring[(int) (sequence % ring.length)] = change;
+            offerAll(change);
+            }
+        }
+
+    private void fanOut(FeedEvent change) {
+        synchronized (lock) {
+            offerAll(change);
+            }
+        }
+
+    private void offerAll(FeedEvent change) {
+        if (subscriptions.removeIf(subscription -> !subscription.offer(change))) {
+            subscribers.set(subscriptions.size());
+            }
+        }
+
+    private List<FeedEvent> replayAfter(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return List.of();
+            }
+        long last = sequenceOf(lastEventId.trim());
+        long oldest = Math.max(1, next - ring.length);
+        if (last < oldest - 1 || last >= next) {
+            // the current id lets the client continue from here once it has read the catalog again
+            return List.of(new FeedEvent(idOf(next - 1), next - 1, RESET, Map.of()));
+            }
+        List<FeedEvent> replay = new ArrayList<>((int) (next - last - 1));
+        for (long sequence = last + 1; sequence < next; sequence++) {
+            replay.add(ring[(int) (sequence % ring.length)]);
+            }
+        return replay;
+        }
+
+    /**
+     * @return the sequence of an id of this feed, or -1 for any other id
+     */
+    private long sequenceOf(String id) {
+        int separator = id.lastIndexOf('-');
+        if (separator < 0 || !epoch.equals(id.substring(0, separator))) {
+            return -1;
+            }
+        try {
+            return Long.parseLong(id.substring(separator + 1));
+            } catch (NumberFormatException e) {
+            return -1;
+            }
+        }
+
+    private String idOf(long sequence) {
+        return epoch + "-" + sequence;
+        }
+    }
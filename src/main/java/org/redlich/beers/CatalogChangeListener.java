@@ -0,0 +1,458 @@
+package org.redlich.beers;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>CatalogChangeListener class.</p>
+ *
+ * Keeps the in-process caches and derived structures of this node coherent
+ * with writes made by other nodes. It follows a change stream on the Beer and
+ * Brewer collections and fires every event as a remote
+ * {@link org.redlich.beers.CatalogChange}, the way the write paths of this
+ * node fire theirs, so the caches and the change feed see both alike. Events
+ * that do not say what changed make the collection stale.
+ *
+ * Writes of this node come back through the stream as well; the
+ * {@link org.redlich.beers.LocalWrites} recognize them, and they are skipped,
+ * since the write paths have fired them already. So are changes of other
+ * nodes that a write of this node superseded, except that the statistics are
+ * reconciled, because the write measured its delta against them. Documents
+ * whose skipped changes turn out to be the last, and those whose writes did
+ * not come back in time, are read again.
+ *
+ * The resume token is saved to the <code>ChangeStreamTokens</code> collection
+ * under the node id, at most every <code>beers.change-stream.checkpoint-millis</code>,
+ * so a restarted node replays what it missed. When the oplog no longer holds
+ * the saved position, everything is invalidated and the stream starts from
+ * the present. Change streams need a replica set.
+ */
+@ApplicationScoped
+public class CatalogChangeListener {
+
+    private static final Logger LOGGER = Logger.getLogger(CatalogChangeListener.class.getName());
+
+    static final String TOKENS = "ChangeStreamTokens";
+
+    private static final String TOKEN = "token";
+
+    private static final String SAVED_AT = "savedAt";
+
+    /**
+     * ChangeStreamFatalError and ChangeStreamHistoryLost: the saved position cannot be resumed.
+     */
+    private static final Set<Integer> HISTORY_LOST = Set.of(280, 286);
+
+    private static final long RETRY_MILLIS = 1000;
+
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    Event<CatalogChange> catalogChanges;
+
+    @Inject
+    CatalogStatistics catalogStatistics;
+
+    @Inject
+    CatalogMetrics catalogMetrics;
+
+    @Inject
+    LocalWrites localWrites;
+
+    @Inject
+    @ConfigProperty(name = "beers.change-stream.enabled", defaultValue = "false")
+    boolean enabled;
+
+    /**
+     * Names the saved resume token. Defaults to the host name.
+     */
+    @Inject
+    @ConfigProperty(name = "beers.change-stream.node-id")
+    Optional<String> nodeId;
+
+    @Inject
+    @ConfigProperty(name = "beers.change-stream.checkpoint-millis", defaultValue = "1000")
+    long checkpointMillis;
+
+    @Inject
+    @ConfigProperty(name = "beers.change-stream.max-await-millis", defaultValue = "1000")
+    long maxAwaitMillis;
+
+    private final LongAdder events = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    private volatile long lagMillis;
+
+    private volatile boolean running;
+
+    private volatile boolean following;
+
+    private Thread follower;
+
+    private BsonDocument token;
+
+    private BsonDocument savedToken;
+
+    private long savedAt;
+
+    @PostConstruct
+    void registerMetrics() {
+        catalogMetrics.gauge("beers_change_stream_lag_seconds",
+                "Age of the last change applied, 0 when caught up.", () -> lagMillis / 1000.0);
+        catalogMetrics.counter("beers_change_stream_events_total",
+                "Changes applied from the change stream.", events::sum);
+        catalogMetrics.counter("beers_change_stream_skipped_total",
+                "Changes of the stream made or superseded by this node.", skipped::sum);
+        }
+
+    void onStart(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (enabled) {
+            start();
+            }
+        }
+
+    /**
+     * <p>start.</p>
+     *
+     * Starts following the change stream from the saved resume token, or from
+     * the present when there is none.
+     */
+    synchronized void start() {
+        if (follower != null) {
+            return;
+            }
+        token = loadToken();
+        savedToken = token;
+        running = true;
+        follower = new Thread(this::follow, "beer-change-stream");
+        follower.setDaemon(true);
+        follower.start();
+        }
+
+    /**
+     * <p>stop.</p>
+     *
+     * Stops following and saves the resume token.
+     */
+    @PreDestroy
+    synchronized void stop() {
+        if (follower == null) {
+            return;
+            }
+        running = false;
+        try {
+            follower.join(2 * maxAwaitMillis + RETRY_MILLIS);
+            } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            }
+        follower = null;
+        following = false;
+        localWrites.track(false);
+        }
+
+    /**
+     * <p>isFollowing.</p>
+     *
+     * @return whether the change stream is open
+     */
+    boolean isFollowing() {
+        return following;
+        }
+
+    private void follow() {
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open()) {
+                // writes made before the stream was open may never come back
+                localWrites.track(true);
+                following = true;
+                boolean reopen = false;
+                while (running && !reopen) {
+                    ChangeStreamDocument<Document> event = cursor.tryNext();
+                    if (event == null) {
+                        lagMillis = 0;
+                        } else {
+                        reopen = apply(event);
+                        }
+                    resync();
+                    // the post-batch token moves on even when nothing of ours changed
+                    BsonDocument resumeToken = cursor.getResumeToken();
+                    if (resumeToken != null) {
+                        token = resumeToken;
+                        }
+                    checkpoint(false);
+                    }
+                } catch (MongoException e) {
+                following = false;
+                if (HISTORY_LOST.contains(e.getCode())) {
+                    LOGGER.log(Level.WARNING, "Change stream history lost, invalidating all caches", e);
+                    token = null;
+                    deleteToken();
+                    localWrites.track(false);
+                    invalidateBeers();
+                    invalidateBrewers();
+                    } else if (running) {
+                    LOGGER.log(Level.WARNING, "Change stream failed, retrying", e);
+                    pause();
+                    }
+                } catch (RuntimeException e) {
+                following = false;
+                LOGGER.log(Level.SEVERE, "Could not apply a change, retrying", e);
+                pause();
+                }
+            }
+        checkpoint(true);
+        }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        ChangeStreamIterable<Document> stream = database.watch(List.of(Aggregates.match(Filters.or(
+                        Filters.in("ns.coll", BeerDocuments.COLLECTION, BrewerDocuments.COLLECTION),
+                        Filters.in("operationType", "dropDatabase", "invalidate")))))
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(maxAwaitMillis, TimeUnit.MILLISECONDS);
+        // unlike resumeAfter, startAfter also continues past an invalidate event
+        return token == null ? stream.cursor() : stream.startAfter(token).cursor();
+        }
+
+    /**
+     * <p>apply.</p>
+     *
+     * @param event a change of the Beer or Brewer collection
+     * @return whether the stream was invalidated and must be opened again
+     */
+    boolean apply(ChangeStreamDocument<Document> event) {
+        events.increment();
+        lagMillis = lagOf(event);
+        OperationType operation = event.getOperationType();
+        if (operation == OperationType.INVALIDATE || operation == OperationType.DROP_DATABASE) {
+            invalidateBeers();
+            invalidateBrewers();
+            return operation == OperationType.INVALIDATE;
+            }
+        String collection = event.getNamespace() == null ? null : event.getNamespace().getCollectionName();
+        Integer id = idOf(event);
+        if (id != null) {
+            switch (localWrites.originOf(collection, operation, id, entityOf(collection, event.getFullDocument()))) {
+                case OWN -> {
+                    skipped.increment();
+                    return false;
+                    }
+                case SUPERSEDED -> {
+                    skipped.increment();
+                    if (BeerDocuments.COLLECTION.equals(collection)) {
+                        catalogStatistics.reconcileSoon();
+                        }
+                    return false;
+                    }
+                default -> {
+                    }
+                }
+            }
+        if (BeerDocuments.COLLECTION.equals(collection)) {
+            applyToBeers(operation, id, event.getFullDocument());
+            } else if (BrewerDocuments.COLLECTION.equals(collection)) {
+            applyToBrewers(operation, id, event.getFullDocument());
+            }
+        return false;
+        }
+
+    /**
+     * Applies the current state of the documents whose changes were skipped
+     * for writes of this node that did not happen or did not come back.
+     */
+    private void resync() {
+        Map<String, List<Integer>> stale = new HashMap<>();
+        localWrites.drainStale(System.nanoTime()).forEach(key -> stale.computeIfAbsent(key.collection(), ignored -> new ArrayList<>())
+                .add(key.id()));
+        stale.forEach((collection, ids) -> {
+            boolean beers = BeerDocuments.COLLECTION.equals(collection);
+            Map<Integer, Document> current = new HashMap<>();
+            try {
+                database.getCollection(collection).find(Filters.in("_id", ids))
+                        .forEach(document -> current.put(document.getInteger("_id"), document));
+                } catch (MongoException e) {
+                LOGGER.log(Level.WARNING, "Could not read changed documents again, invalidating " + collection, e);
+                if (beers) {
+                    invalidateBeers();
+                    } else {
+                    invalidateBrewers();
+                    }
+                return;
+                }
+            for (int id : ids) {
+                Document document = current.get(id);
+                OperationType operation = document == null ? OperationType.DELETE : OperationType.REPLACE;
+                if (beers) {
+                    applyToBeers(operation, id, document);
+                    } else {
+                    applyToBrewers(operation, id, document);
+                    }
+                }
+            });
+        }
+
+    private void applyToBeers(OperationType operation, Integer id, Document document) {
+        switch (operation) {
+            case INSERT, UPDATE, REPLACE, DELETE -> {
+                if (id == null) {
+                    invalidateBeers();
+                    } else if (operation == OperationType.DELETE) {
+                    catalogChanges.fire(CatalogChange.remoteBeerRemoved(id));
+                    } else if (document != null) {
+                    // an update is looked up after the fact; when the beer is gone by then, its delete follows
+                    catalogChanges.fire(CatalogChange.remoteBeerSaved(BeerDocuments.toBeer(document)));
+                    }
+                }
+            case DROP, RENAME -> invalidateBeers();
+            default -> {
+                }
+            }
+        }
+
+    private void applyToBrewers(OperationType operation, Integer id, Document document) {
+        switch (operation) {
+            case INSERT, UPDATE, REPLACE, DELETE -> {
+                if (id == null) {
+                    invalidateBrewers();
+                    } else if (operation == OperationType.DELETE) {
+                    catalogChanges.fire(CatalogChange.remoteBrewerRemoved(id));
+                    } else if (document != null) {
+                    catalogChanges.fire(CatalogChange.remoteBrewerSaved(BrewerDocuments.toBrewer(document)));
+                    }
+                }
+            case DROP, RENAME -> invalidateBrewers();
+            default -> {
+                }
+            }
+        }
+
+    private void invalidateBeers() {
+        localWrites.forgetAll();
+        catalogChanges.fire(CatalogChange.remoteBeersStale());
+        }
+
+    private void invalidateBrewers() {
+        localWrites.forgetAll();
+        catalogChanges.fire(CatalogChange.remoteBrewersStale());
+        }
+
+    private void checkpoint(boolean force) {
+        long now = System.currentTimeMillis();
+        if (token == null || token.equals(savedToken) || (!force && now - savedAt < checkpointMillis)) {
+            return;
+            }
+        try {
+            tokens().replaceOne(Filters.eq("_id", nodeId()),
+                    new BsonDocument("_id", new BsonString(nodeId()))
+                            .append(TOKEN, token)
+                            .append(SAVED_AT, new BsonDateTime(now)),
+                    new ReplaceOptions().upsert(true));
+            savedToken = token;
+            savedAt = now;
+            } catch (MongoException e) {
+            LOGGER.log(Level.WARNING, "Could not save the change stream resume token", e);
+            }
+        }
+
+    private BsonDocument loadToken() {
+        BsonDocument saved = tokens().find(Filters.eq("_id", nodeId())).first();
+        return saved == null ? null : saved.getDocument(TOKEN, null);
+        }
+
+    private void deleteToken() {
+        try {
+            tokens().deleteOne(Filters.eq("_id", nodeId()));
+            savedToken = null;
+            } catch (MongoException e) {
+            LOGGER.log(Level.WARNING, "Could not delete the change stream resume token", e);
+            }
+        }
+
+    private MongoCollection<BsonDocument> tokens() {
+        return database.getCollection(TOKENS, BsonDocument.class);
+        }
+
+    private String nodeId() {
+        return nodeId.filter(id -> !id.isBlank()).orElseGet(CatalogChangeListener::hostName);
+        }
+
+    private void pause() {
+        try {
+            Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            }
+        }
+
+    private static Object entityOf(String collection, Document document) {
+        if (document == null) {
+            return null;
+            }
+        if (BeerDocuments.COLLECTION.equals(collection)) {
+            return BeerDocuments.toBeer(document);
+            }
+        return BrewerDocuments.COLLECTION.equals(collection) ? BrewerDocuments.toBrewer(document) : null;
+        }
+
+    private static Integer idOf(ChangeStreamDocument<Document> event) {
+        BsonDocument key = event.getDocumentKey();
+        BsonValue id = key == null ? null : key.get("_id");
+        return id != null && id.isNumber() ? id.asNumber().intValue() : null;
+        }
+
+    private static long lagOf(ChangeStreamDocument<Document> event) {
+        long now = System.currentTimeMillis();
+        if (event.getWallTime() != null) {
+            return Math.max(0, now - event.getWallTime().getValue());
+            }
+        if (event.getClusterTime() != null) {
+            return Math.max(0, now - event.getClusterTime().getTime() * 1000L);
+            }
+        return 0;
+        }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+            return "localhost";
+            }
+        }
+    }
@@ -0,0 +1,164 @@
+package org.redlich.beers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <p>CatalogCounts class.</p>
+ *
+ * Beer counts by type and abv figures by brewer, updated one beer at a time.
+ * Counts and sums can be updated exactly on removal, but a minimum or maximum
+ * cannot: removing the beer that held it marks the brewer's extrema stale,
+ * and {@link #extrema} sets them again from the database. Not thread-safe.
+ */
+final class CatalogCounts {
+
+    private static final BeerType[] TYPES = BeerType.values();
+
+    private final long[] typeCounts = new long[TYPES.length];
+
+    private final Map<Integer, BrewerCounts> brewers = new HashMap<>();
+
+    private long beers;
+
+    void add(int brewerId, BeerType type, double abv) {
+        add(brewerId, type, 1, abv, abv, abv);
+        }
+
+    /**
+     * Adds a group of <code>count</code> beers, as returned by the aggregation.
+     */
+    void add(int brewerId, BeerType type, long count, double abvSum, double minAbv, double maxAbv) {
+        beers += count;
+        if (type != null) {
+            typeCounts[type.ordinal()] += count;
+            }
+        brewers.computeIfAbsent(brewerId, id -> new BrewerCounts()).add(type, count, abvSum, minAbv, maxAbv);
+        }
+
+    void remove(int brewerId, BeerType type, double abv) {
+        BrewerCounts counts = brewers.get(brewerId);
+        if (counts == null) {
+            return;
+            }
+        beers--;
+        if (type != null) {
+            typeCounts[type.ordinal()]--;
+            }
+        counts.remove(type, abv);
+        if (counts.beers == 0) {
+            brewers.remove(brewerId);
+            }
+        }
+
+    void removeBrewer(int brewerId) {
+        BrewerCounts counts = brewers.remove(brewerId);
+        if (counts == null) {
+            return;
+            }
+        beers -= counts.beers;
+        for (int i = 0; i < TYPES.length; i++) {
+            typeCounts[i] -= counts.typeCounts[i];
+            }
+        }
+
+    void clear() {
+        beers = 0;
+        Arrays.fill(typeCounts, 0);
+        brewers.clear();
+        }
+
+    Set<Integer> staleBrewers() {
+        Set<Integer> stale = new TreeSet<>();
+        brewers.forEach((id, counts) -> {
+            if (counts.extremaStale) {
+                stale.add(id);
+                }
+            });
+        return stale;
+        }
+
+    void extrema(int brewerId, double minAbv, double maxAbv) {
+        BrewerCounts counts = brewers.get(brewerId);
+        if (counts != null) {
+            counts.minAbv = minAbv;
+            counts.maxAbv = maxAbv;
+            counts.extremaStale = false;
+            }
+        }
+
+    /**
+     * Stale extrema are reported as null rather than as a wrong value.
+     */
+    CatalogStatsResponse toResponse(String reconciledAt) {
+        List<BrewerStatsResponse> brewerStats = new ArrayList<>(brewers.size());
+        brewers.forEach((id, counts) -> brewerStats.add(counts.toResponse(id)));
+        brewerStats.sort((left, right) -> Integer.compare(left.brewerId(), right.brewerId()));
+        return new CatalogStatsResponse(beers, typeMap(typeCounts), Collections.unmodifiableList(brewerStats),
+                reconciledAt);
+        }
+
+    private static Map<BeerType, Long> typeMap(long[] counts) {
+        Map<BeerType, Long> map = new EnumMap<>(BeerType.class);
+        for (int i = 0; i < TYPES.length; i++) {
+            if (counts[i] != 0) {
+                map.put(TYPES[i], counts[i]);
+                }
+            }
+        return Collections.unmodifiableMap(map);
+        }
+
+    private static final class BrewerCounts {
+
+        private final long[] typeCounts = new long[TYPES.length];
+
+        private long beers;
+
+        private double abvSum;
+
+        private double minAbv = Double.POSITIVE_INFINITY;
+
+        private double maxAbv = Double.NEGATIVE_INFINITY;
+
+        private boolean extremaStale;
+
+        void add(BeerType type, long count, double sum, double min, double max) {
+            beers += count;
+            if (type != null) {
+                typeCounts[type.ordinal()] += count;
+                }
+            abvSum += sum;
+            minAbv = Math.min(minAbv, min);
+            maxAbv = Math.max(maxAbv, max);
+            }
+
+        void remove(BeerType type, double abv) {
+            beers--;
+            if (type != null) {
+                typeCounts[type.ordinal()]--;
+                }
+            abvSum -= abv;
+            if (beers == 0) {
+                abvSum = 0;
+                extremaStale = false;
+                } else if (abv <= minAbv || abv >= maxAbv) {
+                extremaStale = true;
+                }
+            }
+
+        BrewerStatsResponse toResponse(int brewerId) {
+            return new BrewerStatsResponse(brewerId, beers,
+                    beers == 0 ? null : abvSum / beers,
+                    extremaStale ? null : minAbv,
+                    extremaStale ? null : maxAbv,
+                    typeMap(typeCounts));
+            }
+        }
+    }
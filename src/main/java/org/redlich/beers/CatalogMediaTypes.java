@@ -0,0 +1,39 @@
+package org.redlich.beers;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Variant;
+
+import java.util.List;
+
+/**
+ * <p>CatalogMediaTypes class.</p>
+ *
+ * The representations the catalog resources can produce.
+ */
+public final class CatalogMediaTypes {
+
+    /**
+     * Length-prefixed binary records, see {@link org.redlich.beers.BinaryRecords}.
+     */
+    public static final String BEERS_BINARY = "application/x-beers-binary";
+
+    /**
+     * {@link #BEERS_BINARY} with a lower server quality, so JSON stays the
+     * default for clients that accept anything.
+     */
+    public static final String BEERS_BINARY_QS = BEERS_BINARY + ";qs=0.5";
+
+    public static final MediaType BEERS_BINARY_TYPE = MediaType.valueOf(BEERS_BINARY);
+
+    private CatalogMediaTypes() {
+        }
+
+    /**
+     * <p>listVariants.</p>
+     *
+     * @return the representations of a list, in order of preference
+     */
+    static List<Variant> listVariants() {
+        return Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE, BEERS_BINARY_TYPE).build();
+        }
+    }
@@ -0,0 +1,159 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * <p>CatalogMetrics class.</p>
+ *
+ * Registry of the repository and endpoint metrics. They are served in the
+ * Prometheus text format by {@link org.redlich.beers.MetricsResources}.
+ * Lookups happen once per method; recording afterwards touches only
+ * {@link java.util.concurrent.atomic.LongAdder}s. Gauges and counters owned
+ * by other beans are registered as suppliers and read on every scrape.
+ */
+@ApplicationScoped
+public class CatalogMetrics {
+
+    private final ConcurrentMap<Key, CallMetrics> repositories = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Key, CallMetrics> endpoints = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Sampled> sampled = new ConcurrentHashMap<>();
+
+    CallMetrics repository(String repository, String method) {
+        return repositories.computeIfAbsent(new Key(repository, method), key -> new CallMetrics());
+        }
+
+    CallMetrics endpoint(String resource, String method) {
+        return endpoints.computeIfAbsent(new Key(resource, method), key -> new CallMetrics());
+        }
+
+    /**
+     * <p>gauge.</p>
+     *
+     * @param name the metric name
+     * @param help the metric description
+     * @param value read on every scrape
+     */
+    void gauge(String name, String help, DoubleSupplier value) {
+        gauge(name, "", help, value);
+        }
+
+    /**
+     * <p>gauge.</p>
+     *
+     * @param name the metric name
+     * @param labels the labels of this series, such as <code>flight="beer-by-id"</code>
+     * @param help the metric description
+     * @param value read on every scrape
+     */
+    void gauge(String name, String labels, String help, DoubleSupplier value) {
+        sample(name, "gauge", labels, help, value);
+        }
+
+    /**
+     * <p>counter.</p>
+     *
+     * @param name the metric name, ending in <code>_total</code>
+     * @param help the metric description
+     * @param value read on every scrape, never decreasing
+     */
+    void counter(String name, String help, DoubleSupplier value) {
+        counter(name, "", help, value);
+        }
+
+    /**
+     * <p>counter.</p>
+     *
+     * @param name the metric name, ending in <code>_total</code>
+     * @param labels the labels of this series, such as <code>flight="beer-by-id"</code>
+     * @param help the metric description
+     * @param value read on every scrape, never decreasing
+     */
+    void counter(String name, String labels, String help, DoubleSupplier value) {
+        sample(name, "counter", labels, help, value);
+        }
+
+    private void sample(String name, String type, String labels, String help, DoubleSupplier value) {
+        sampled.computeIfAbsent(name, key -> new Sampled(type, help, new ConcurrentHashMap<>()))
+                .series().put(labels, value);
+        }
+
+    /**
+     * <p>scrape.</p>
+     *
+     * @return all metrics in the Prometheus text exposition format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        write(out, "beers_repository", "repository", repositories, true);
+        write(out, "beers_http", "resource", endpoints, false);
+        sampled.forEach((name, metric) -> {
+            header(out, name, metric.type(), metric.help());
+            metric.series().forEach((labels, value) -> {
+                out.append(name);
+                if (!labels.isEmpty()) {
+                    out.append('{').append(labels).append('}');
+                    }
+                out.append(' ').append(value.getAsDouble()).append('\n');
+                });
+            });
+        return out.toString();
+        }
+
+    private static void write(StringBuilder out, String prefix, String owner, Map<Key, CallMetrics> metrics,
+                              boolean withRows) {
+        if (metrics.isEmpty()) {
+            return;
+            }
+        header(out, prefix + "_calls_total", "counter", "Completed calls.");
+        metrics.forEach((key, value) -> sample(out, prefix + "_calls_total", key.labels(owner), value.calls.sum()));
+        header(out, prefix + "_errors_total", "counter", "Calls that failed.");
+        metrics.forEach((key, value) -> sample(out, prefix + "_errors_total", key.labels(owner), value.errors.sum()));
+        if (withRows) {
+            header(out, prefix + "_rows_total", "counter", "Entities returned, counted as they are consumed.");
+            metrics.forEach((key, value) -> sample(out, prefix + "_rows_total", key.labels(owner), value.rows.sum()));
+            }
+        String histogram = prefix + "_duration_seconds";
+        header(out, histogram, "histogram", "Call latency.");
+        metrics.forEach((key, value) -> {
+            String labels = key.labels(owner);
+            long[] counts = value.latency.cumulativeCounts();
+            for (int i = 0; i < LatencyHistogram.BOUNDS.length; i++) {
+                sample(out, histogram + "_bucket", labels + ",le=\"" + LatencyHistogram.BOUNDS[i] + "\"", counts[i]);
+                }
+            sample(out, histogram + "_bucket", labels + ",le=\"+Inf\"", counts[counts.length - 1]);
+            out.append(histogram).append("_sum{").append(labels).append("} ")
+                    .append(value.latency.sumSeconds()).append('\n');
+            sample(out, histogram + "_count", labels, counts[counts.length - 1]);
+            });
+        }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+        }
+
+    private record Sampled(String type, String help, ConcurrentMap<String, DoubleSupplier> series) {
+        }
+
+    private record Key(String owner, String method) {
+
+        String labels(String ownerLabel) {
+            return ownerLabel + "=\"" + escape(owner) + "\",method=\"" + escape(method) + "\"";
+            }
+
+        private static String escape(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            }
+        }
+    }
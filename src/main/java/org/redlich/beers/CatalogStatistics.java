@@ -0,0 +1,280 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>CatalogStatistics class.</p>
+ *
+ * Serves the catalog statistics without aggregating the catalog on each read.
+ * The figures are built once with a <code>$group</code> aggregation on first
+ * use, then updated by every {@link org.redlich.beers.CatalogChange} of this
+ * node, which carries the version a write replaced. A read returns the
+ * cached response, which is rebuilt from the counts only after a write. Removing the strongest
+ * or weakest beer of a brewer leaves its abv range unknown, so the first read
+ * after such a write queries the beers of those brewers for their range.
+ *
+ * A write that lands between a rebuild's aggregation and the rebuild's swap
+ * can be counted twice or not at all, and so can concurrent writes of the
+ * same beer, since a single save or remove reads the version it replaces
+ * before it writes. A reconciliation every
+ * <code>beers.stats.reconcile-seconds</code> rebuilds the figures from the
+ * database to correct such drift.
+ *
+ * Changes of other nodes carry no previous version to subtract, so they
+ * schedule a reconciliation instead, debounced by
+ * <code>beers.stats.change-debounce-millis</code>.
+ */
+@ApplicationScoped
+public class CatalogStatistics {
+
+    private static final Logger LOGGER = Logger.getLogger(CatalogStatistics.class.getName());
+
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    /**
+     * The fields the figures are built from, all a write needs to return of
+     * the beer it replaced.
+     */
+    static final Bson FIELDS = Projections.include(BeerDocuments.BREWER_ID, BeerDocuments.TYPE, BeerDocuments.ABV);
+
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    @ConfigProperty(name = "beers.stats.reconcile-seconds", defaultValue = "300")
+    long reconcileSeconds;
+
+    @Inject
+    @ConfigProperty(name = "beers.stats.change-debounce-millis", defaultValue = "2000")
+    long changeDebounceMillis;
+
+    private final Object lock = new Object();
+
+    private CatalogCounts counts;
+
+    private Instant reconciledAt;
+
+    /**
+     * Bumped by every write, so a rebuild can tell whether it raced one.
+     */
+    private long modifications;
+
+    private volatile CatalogStatsResponse response;
+
+    private final AtomicBoolean reconcileScheduled = new AtomicBoolean();
+
+    private ScheduledExecutorService reconciler;
+
+    @PostConstruct
+    void start() {
+        reconciler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "beer-stats-reconcile");
+            thread.setDaemon(true);
+            return thread;
+            });
+        if (reconcileSeconds > 0) {
+            reconciler.scheduleWithFixedDelay(this::reconcileQuietly, reconcileSeconds, reconcileSeconds,
+                    TimeUnit.SECONDS);
+            }
+        }
+
+    @PreDestroy
+    void stop() {
+        reconciler.shutdownNow();
+        }
+
+    /**
+     * <p>statistics.</p>
+     *
+     * @return a {@link org.redlich.beers.CatalogStatsResponse} object
+     */
+    public CatalogStatsResponse statistics() {
+        CatalogStatsResponse current = response;
+        if (current != null) {
+            return current;
+            }
+        synchronized (lock) {
+            if (counts == null) {
+                counts = aggregate();
+                reconciledAt = Instant.now();
+                }
+            refreshExtrema();
+            response = counts.toResponse(reconciledAt.toString());
+            return response;
+            }
+        }
+
+    /**
+     * <p>reconcile.</p>
+     *
+     * Rebuilds the figures from the database. A rebuild that raced a write is
+     * retried, and after {@value #RECONCILE_ATTEMPTS} attempts left for the
+     * next round.
+     *
+     * @return whether the figures were replaced
+     */
+    public boolean reconcile() {
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            long before;
+            synchronized (lock) {
+                before = modifications;
+                }
+            CatalogCounts rebuilt = aggregate();
+            synchronized (lock) {
+                if (modifications == before) {
+                    counts = rebuilt;
+                    reconciledAt = Instant.now();
+                    response = null;
+                    return true;
+                    }
+                }
+            }
+        LOGGER.fine("Statistics reconciliation raced writes, retrying next round");
+        return false;
+        }
+
+    /**
+     * <p>reconcileSoon.</p>
+     *
+     * Schedules a reconciliation, unless one is already pending. Does nothing
+     * until the figures have been built. A pending rebuild has not started
+     * yet, so it cannot miss the change it was scheduled for.
+     */
+    void reconcileSoon() {
+        synchronized (lock) {
+            if (counts == null) {
+                return;
+                }
+            }
+        if (reconcileScheduled.compareAndSet(false, true)) {
+            reconciler.schedule(() -> {
+                reconcileScheduled.set(false);
+                reconcileQuietly();
+                }, changeDebounceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+    void onChange(@Observes CatalogChange change) {
+        if (change.remote()) {
+            switch (change.kind()) {
+                case BEERS_SAVED, BEERS_REMOVED, BEERS_STALE -> reconcileSoon();
+                default -> {
+                    }
+                }
+            return;
+            }
+        switch (change.kind()) {
+            case BEERS_SAVED -> beersSaved(change.replaced(), change.beers());
+            case BEERS_REMOVED -> change.beers().forEach(this::beerRemoved);
+            case ALL_BEERS_REMOVED -> beersRemoved();
+            case BREWERS_REMOVED -> change.brewers().forEach(brewer -> brewerRemoved(brewer.getId()));
+            default -> {
+                }
+            }
+        }
+
+    void beersSaved(Map<Integer, Beer> previous, Collection<Beer> saved) {
+        update(counts -> saved.forEach(beer -> {
+            Beer replaced = previous.get(beer.getId());
+            if (replaced != null) {
+                counts.remove(replaced.getBrewerId(), replaced.getType(), replaced.getAbv());
+                }
+            counts.add(beer.getBrewerId(), beer.getType(), beer.getAbv());
+            }));
+        }
+
+    void beerRemoved(Beer beer) {
+        update(counts -> counts.remove(beer.getBrewerId(), beer.getType(), beer.getAbv()));
+        }
+
+    void beersRemoved() {
+        update(CatalogCounts::clear);
+        }
+
+    void brewerRemoved(int brewerId) {
+        update(counts -> counts.removeBrewer(brewerId));
+        }
+
+    private void update(Consumer<CatalogCounts> change) {
+        synchronized (lock) {
+            modifications++;
+            if (counts == null) {
+                return;
+                }
+            change.accept(counts);
+            response = null;
+            }
+        }
+
+    private void refreshExtrema() {
+        Set<Integer> stale = counts.staleBrewers();
+        if (stale.isEmpty()) {
+            return;
+            }
+        database.getCollection(BeerDocuments.COLLECTION).aggregate(List.of(
+                        Aggregates.match(Filters.in(BeerDocuments.BREWER_ID, stale)),
+                        Aggregates.group("$" + BeerDocuments.BREWER_ID,
+                                Accumulators.min("min", "$" + BeerDocuments.ABV),
+                                Accumulators.max("max", "$" + BeerDocuments.ABV))))
+                .forEach(group -> counts.extrema((int) number(group, "_id"),
+                        number(group, "min"), number(group, "max")));
+        }
+
+    private CatalogCounts aggregate() {
+        Bson groupId = new Document("brewer", "$" + BeerDocuments.BREWER_ID).append("type", "$" + BeerDocuments.TYPE);
+        CatalogCounts rebuilt = new CatalogCounts();
+        List<Bson> pipeline = List.of(Aggregates.group(groupId,
+                Accumulators.sum("count", 1),
+                Accumulators.sum("sum", "$" + BeerDocuments.ABV),
+                Accumulators.min("min", "$" + BeerDocuments.ABV),
+                Accumulators.max("max", "$" + BeerDocuments.ABV)));
+        database.getCollection(BeerDocuments.COLLECTION).aggregate(pipeline).allowDiskUse(true)
+                .forEach(group -> {
+                    Document id = group.get("_id", Document.class);
+                    String type = id.getString("type");
+                    rebuilt.add((int) number(id, "brewer"),
+                            type == null ? null : BeerType.valueOf(type),
+                            ((Number) group.get("count")).longValue(),
+                            number(group, "sum"), number(group, "min"), number(group, "max"));
+                    });
+        return rebuilt;
+        }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+            } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Statistics reconciliation failed", e);
+            }
+        }
+
+    private static double number(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number number ? number.doubleValue() : 0;
+        }
+    }
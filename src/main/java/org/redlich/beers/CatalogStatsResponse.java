@@ -0,0 +1,13 @@
+package org.redlich.beers;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>CatalogStatsResponse record.</p>
+ *
+ * @param reconciledAt when the figures were last rebuilt from the database
+ */
+public record CatalogStatsResponse(long beers, Map<BeerType, Long> beersByType,
+                                   List<BrewerStatsResponse> brewers, String reconciledAt) {
+    }
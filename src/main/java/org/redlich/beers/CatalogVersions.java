@@ -0,0 +1,228 @@
+package org.redlich.beers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import jakarta.ws.rs.core.EntityTag;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>CatalogVersions class.</p>
+ *
+ * Change versions of the beer and brewer collections and of their single
+ * entities. Every {@link org.redlich.beers.CatalogChange}, of this node or of
+ * another, bumps them.
+ *
+ * Entity tags are a hash of the response, so every node issues the same tag
+ * for the same content, also after a restart. The versions are local to this
+ * node: the tag of a response is remembered with the version taken before it
+ * was read, and while that version is current the tag can be compared without
+ * querying the database. The versions are bumped after the caches have
+ * dropped what changed, so a response read at a version never predates it.
+ */
+@ApplicationScoped
+public class CatalogVersions {
+
+    @Inject
+    @ConfigProperty(name = "beers.entity-tags.maximum-size", defaultValue = "10000")
+    long maximumSize;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final Versions beers = new Versions();
+
+    private final Versions brewers = new Versions();
+
+    private Cache<List<Object>, KnownTag> tags;
+
+    @PostConstruct
+    void start() {
+        tags = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        }
+
+    /**
+     * <p>beer.</p>
+     *
+     * @param id a int
+     * @return the current version of the beer with the given id
+     */
+    public Version beer(int id) {
+        return new Version(List.of("beer", id), beers.of(id));
+        }
+
+    /**
+     * <p>brewer.</p>
+     *
+     * @param id a int
+     * @return the current version of the brewer with the given id
+     */
+    public Version brewer(int id) {
+        return new Version(List.of("brewer", id), brewers.of(id));
+        }
+
+    /**
+     * <p>beers.</p>
+     *
+     * Beer lists filtered by brewer depend on both collections.
+     *
+     * @param query what identifies the list, for example its path parameters
+     * @return the current version of the beer and brewer collections
+     */
+    public Version beers(Object... query) {
+        return new Version(keyOf("beers", query), Math.max(beers.collection.get(), brewers.collection.get()));
+        }
+
+    /**
+     * <p>brewers.</p>
+     *
+     * @param query what identifies the list, for example its path parameters
+     * @return the current version of the brewer collection
+     */
+    public Version brewers(Object... query) {
+        return new Version(keyOf("brewers", query), brewers.collection.get());
+        }
+
+    void onChange(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER) CatalogChange change) {
+        switch (change.kind()) {
+            case BEERS_SAVED, BEERS_REMOVED -> change.beers().forEach(beer -> beerChanged(beer.getId()));
+            case ALL_BEERS_REMOVED, BEERS_STALE -> beersChanged();
+            case BREWERS_SAVED -> change.brewers().forEach(brewer -> brewerChanged(brewer.getId()));
+            case BREWERS_REMOVED -> {
+                change.brewers().forEach(brewer -> brewerChanged(brewer.getId()));
+                // their beers went too, here or on the node that removed them
+                beersChanged();
+                }
+            case ALL_BREWERS_REMOVED, BREWERS_STALE -> brewersChanged();
+            }
+        }
+
+    void beerChanged(int id) {
+        beers.changed(id, clock.incrementAndGet());
+        }
+
+    void beersChanged() {
+        beers.allChanged(clock.incrementAndGet());
+        }
+
+    void brewerChanged(int id) {
+        brewers.changed(id, clock.incrementAndGet());
+        }
+
+    void brewersChanged() {
+        brewers.allChanged(clock.incrementAndGet());
+        }
+
+    private static List<Object> keyOf(String kind, Object... query) {
+        Object[] key = new Object[query.length + 1];
+        key[0] = kind;
+        System.arraycopy(query, 0, key, 1, query.length);
+        return List.of(key);
+        }
+
+    private static String hashOf(Object entity) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.valueOf(entity).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+            }
+        }
+
+    /**
+     * The version of an entity or a list, taken before it is read.
+     */
+    public final class Version {
+
+        private final List<Object> key;
+
+        private final long value;
+
+        private Version(List<Object> key, long value) {
+            this.key = key;
+            this.value = value;
+            }
+
+        /**
+         * <p>value.</p>
+         *
+         * @return a number that changes whenever the entity or list may have changed
+         */
+        public long value() {
+            return value;
+            }
+
+        /**
+         * <p>knownTag.</p>
+         *
+         * @return the tag of the response read at this version, if one was
+         * read since
+         */
+        public Optional<EntityTag> knownTag() {
+            KnownTag known = tags.getIfPresent(key);
+            return known != null && known.version() == value ? Optional.of(known.tag()) : Optional.empty();
+            }
+
+        /**
+         * <p>tagOf.</p>
+         *
+         * The string form of the response records lists every component, so
+         * it is hashed as is.
+         *
+         * @param entity the response read at this version
+         * @return its tag, remembered for this version
+         */
+        public EntityTag tagOf(Object entity) {
+            EntityTag tag = new EntityTag(key.get(0) + "-" + hashOf(entity));
+            tags.asMap().merge(key, new KnownTag(value, tag),
+                    (known, read) -> read.version() >= known.version() ? read : known);
+            return tag;
+            }
+        }
+
+    private record KnownTag(long version, EntityTag tag) {
+        }
+
+    private static final class Versions {
+
+        private final AtomicLong collection = new AtomicLong();
+
+        private final AtomicLong generation = new AtomicLong();
+
+        private final Map<Integer, Long> entities = new ConcurrentHashMap<>();
+
+        long of(int id) {
+            // both come from the same clock, so the later one tells
+            return Math.max(generation.get(), entities.getOrDefault(id, 0L));
+            }
+
+        void changed(int id, long version) {
+            entities.put(id, version);
+            collection.set(version);
+            }
+
+        void allChanged(long version) {
+            // entities not written since are covered by the generation
+            generation.set(version);
+            collection.set(version);
+            entities.clear();
+            }
+        }
+    }
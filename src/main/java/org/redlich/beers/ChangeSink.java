@@ -0,0 +1,25 @@
+package org.redlich.beers;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * <p>ChangeSink interface.</p>
+ *
+ * The receiving end of a {@link org.redlich.beers.ChangeSubscription}, such as
+ * an SSE connection.
+ */
+interface ChangeSink {
+
+    /**
+     * <p>send.</p>
+     *
+     * @param change a change, or {@link org.redlich.beers.FeedEvent#HEARTBEAT}
+     * @return completes once the change is written, exceptionally when the receiver is gone
+     */
+    CompletionStage<?> send(FeedEvent change);
+
+    /**
+     * <p>close.</p>
+     */
+    void close();
+    }
@@ -0,0 +1,195 @@
+package org.redlich.beers;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>ChangeSubscription class.</p>
+ *
+ * One subscriber of the {@link org.redlich.beers.CatalogChangeFeed}. Changes
+ * are queued here and sent one at a time on the sender executor, so a slow
+ * receiver never holds up the writer or the other subscribers. The queue of
+ * live changes is bounded. When it is full, the {@link Overflow} policy either
+ * drops the oldest queued change or disconnects the subscriber. Replayed
+ * changes are sent first and do not count against the bound.
+ */
+final class ChangeSubscription {
+
+    /**
+     * What to do when a subscriber falls <code>beers.changes.buffer-size</code> changes behind.
+     */
+    enum Overflow {
+
+        /**
+         * Close the connection. The client reconnects with its
+         * <code>Last-Event-ID</code> and the missed changes are replayed.
+         */
+        DISCONNECT,
+
+        /**
+         * Drop the oldest queued change. The client sees a gap in the sequence.
+         */
+        DROP_OLDEST;
+
+        static Overflow of(String name) {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+            }
+        }
+
+    private final ChangeSink sink;
+
+    private final int capacity;
+
+    private final Overflow overflow;
+
+    private final Executor sender;
+
+    private final LongAdder dropped;
+
+    private final LongAdder disconnected;
+
+    private final Deque<FeedEvent> backlog;
+
+    private final Deque<FeedEvent> queue = new ArrayDeque<>();
+
+    private boolean sending;
+
+    private boolean closed;
+
+    ChangeSubscription(ChangeSink sink, int capacity, Overflow overflow, Executor sender,
+                       Collection<FeedEvent> replay, LongAdder dropped, LongAdder disconnected) {
+        this.sink = sink;
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.sender = sender;
+        this.backlog = new ArrayDeque<>(replay);
+        this.dropped = dropped;
+        this.disconnected = disconnected;
+        }
+
+    /**
+     * <p>start.</p>
+     *
+     * Starts sending the replayed changes.
+     */
+    void start() {
+        synchronized (this) {
+            if (backlog.isEmpty() || sending) {
+                return;
+                }
+            sending = true;
+            }
+        sender.execute(this::drain);
+        }
+
+    /**
+     * <p>offer.</p>
+     *
+     * @param change a {@link org.redlich.beers.FeedEvent} object
+     * @return false once the subscription is closed, so the feed can forget it
+     */
+    boolean offer(FeedEvent change) {
+        boolean schedule = false;
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                return false;
+                }
+            if (change.isHeartbeat() && (sending || !queue.isEmpty())) {
+                // a connection that is busy needs no keep-alive
+                return true;
+                }
+            if (queue.size() >= capacity) {
+                if (overflow == Overflow.DISCONNECT) {
+                    disconnect = true;
+                    } else {
+                    queue.pollFirst();
+                    dropped.increment();
+                    }
+                }
+            if (!disconnect) {
+                queue.addLast(change);
+                if (!sending) {
+                    sending = true;
+                    schedule = true;
+                    }
+                }
+            }
+        if (disconnect) {
+            disconnected.increment();
+            close();
+            return false;
+            }
+        if (schedule) {
+            sender.execute(this::drain);
+            }
+        return true;
+        }
+
+    /**
+     * <p>isClosed.</p>
+     *
+     * @return whether the subscription is closed
+     */
+    synchronized boolean isClosed() {
+        return closed;
+        }
+
+    /**
+     * <p>close.</p>
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+                }
+            closed = true;
+            backlog.clear();
+            queue.clear();
+            }
+        try {
+            sink.close();
+            } catch (RuntimeException e) {
+            // the receiver is gone already
+            }
+        }
+
+    private void drain() {
+        while (true) {
+            FeedEvent next;
+            synchronized (this) {
+                next = closed ? null : backlog.isEmpty() ? queue.pollFirst() : backlog.pollFirst();
+                if (next == null) {
+                    sending = false;
+                    return;
+                    }
+                }
+            CompletableFuture<?> sent;
+            try {
+                sent = sink.send(next).toCompletableFuture();
+                } catch (RuntimeException e) {
+                close();
+                return;
+                }
+            if (!sent.isDone()) {
+                // one change in flight at a time, the next one follows on completion
+                sent.whenCompleteAsync((result, failure) -> {
+                    if (failure == null) {
+                        drain();
+                        } else {
+                        close();
+                        }
+                    }, sender);
+                return;
+                }
+            if (sent.isCompletedExceptionally()) {
+                close();
+                return;
+                }
+            }
+        }
+    }
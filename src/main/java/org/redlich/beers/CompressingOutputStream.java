@@ -0,0 +1,107 @@
+package org.redlich.beers;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>CompressingOutputStream class.</p>
+ *
+ * Holds back the first <code>threshold</code> bytes of a response. A response
+ * that ends within the threshold is written as is. A longer one is compressed,
+ * and the headers are updated before its first byte reaches the client.
+ */
+final class CompressingOutputStream extends OutputStream {
+
+    static final String GZIP = "gzip";
+
+    static final String DEFLATE = "deflate";
+
+    private final OutputStream target;
+
+    private final int threshold;
+
+    private final String encoding;
+
+    private final MultivaluedMap<String, Object> headers;
+
+    private ByteArrayOutputStream pending;
+
+    private OutputStream compressed;
+
+    private boolean finished;
+
+    CompressingOutputStream(OutputStream target, int threshold, String encoding,
+                            MultivaluedMap<String, Object> headers) {
+        this.target = target;
+        this.threshold = threshold;
+        this.encoding = encoding;
+        this.headers = headers;
+        this.pending = new ByteArrayOutputStream(Math.min(threshold, 8192));
+        }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+        }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (compressed != null) {
+            compressed.write(bytes, offset, length);
+            return;
+            }
+        pending.write(bytes, offset, length);
+        if (pending.size() > threshold) {
+            startCompression();
+            }
+        }
+
+    @Override
+    public void flush() throws IOException {
+        // flushing below the threshold would commit the headers uncompressed
+        if (compressed != null) {
+            compressed.flush();
+            }
+        }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        }
+
+    void finish() throws IOException {
+        if (finished) {
+            return;
+            }
+        finished = true;
+        if (compressed != null) {
+            compressed.close();
+            } else {
+            pending.writeTo(target);
+            target.flush();
+            }
+        }
+
+    private void startCompression() throws IOException {
+        headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        // the compressed bytes differ from the tagged representation
+        Object tag = headers.getFirst(HttpHeaders.ETAG);
+        if (tag instanceof EntityTag entityTag && !entityTag.isWeak()) {
+            headers.putSingle(HttpHeaders.ETAG, new EntityTag(entityTag.getValue(), true));
+            }
+        compressed = GZIP.equals(encoding)
+                ? new GZIPOutputStream(target, 8192, true)
+                : new DeflaterOutputStream(target, new Deflater(), 8192, true);
+        pending.writeTo(compressed);
+        pending = null;
+        }
+    }
@@ -0,0 +1,80 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+
+/**
+ * <p>CompressionInterceptor class.</p>
+ *
+ * Compresses response bodies larger than <code>beers.compression.threshold</code>
+ * bytes with gzip or deflate, whichever the client accepts, preferring gzip.
+ */
+@Provider
+@ApplicationScoped
+public class CompressionInterceptor implements WriterInterceptor {
+
+    @Context
+    HttpHeaders requestHeaders;
+
+    @Inject
+    @ConfigProperty(name = "beers.compression.threshold", defaultValue = "1024")
+    int threshold;
+
+    /** {@inheritDoc} */
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        context.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String encoding = encodingOf(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null || context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+            }
+        CompressingOutputStream out = new CompressingOutputStream(
+                context.getOutputStream(), threshold, encoding, context.getHeaders());
+        context.setOutputStream(out);
+        context.proceed();
+        out.finish();
+        }
+
+    static String encodingOf(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+            }
+        boolean deflate = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.trim().split(";");
+            if (isRefused(parameters)) {
+                continue;
+                }
+            String name = parameters[0].trim();
+            if (CompressingOutputStream.GZIP.equalsIgnoreCase(name)) {
+                return CompressingOutputStream.GZIP;
+                }
+            deflate |= CompressingOutputStream.DEFLATE.equalsIgnoreCase(name);
+            }
+        return deflate ? CompressingOutputStream.DEFLATE : null;
+        }
+
+    private static boolean isRefused(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                    return true;
+                    }
+                }
+            }
+        return false;
+        }
+    }
@@ -0,0 +1,99 @@
+package org.redlich.beers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>ConcurrencyLimits class.</p>
+ *
+ * Holds one {@link org.redlich.beers.AdaptiveLimiter} per
+ * {@link org.redlich.beers.OperationCost}. Each starts at
+ * <code>beers.limiter.&lt;cost&gt;.initial</code> and moves between its
+ * <code>min</code> and <code>max</code> as the latency of its requests changes.
+ * The minimum keeps some requests flowing during an outage, so that the
+ * limiter can see the database recover.
+ */
+@ApplicationScoped
+public class ConcurrencyLimits {
+
+    @Inject
+    @ConfigProperty(name = "beers.limiter.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "beers.limiter.cheap.initial", defaultValue = "100")
+    int cheapInitial;
+
+    @Inject
+    @ConfigProperty(name = "beers.limiter.cheap.min", defaultValue = "10")
+    int cheapMin;
+
+    @Inject
+    @ConfigProperty(name = "beers.limiter.cheap.max", defaultValue = "1000")
+    int cheapMax;
+
+    @Inject
+    @ConfigProperty(name = "beers.limiter.expensive.initial", defaultValue = "20")
+    int expensiveInitial;
+
+    @Inject
+    @ConfigProperty(name = "beers.limiter.expensive.min", defaultValue = "2")
+    int expensiveMin;
+
+    @Inject
+    @ConfigProperty(name = "beers.limiter.expensive.max", defaultValue = "200")
+    int expensiveMax;
+
+    @Inject
+    @ConfigProperty(name = "beers.limiter.retry-after-seconds", defaultValue = "1")
+    long retryAfterSeconds;
+
+    /**
+     * Keep this above the slowest request that can still succeed.
+     */
+    @Inject
+    @ConfigProperty(name = "beers.limiter.lease-timeout-seconds", defaultValue = "60")
+    long leaseTimeoutSeconds;
+
+    @Inject
+    CatalogMetrics catalogMetrics;
+
+    private final Map<OperationCost, AdaptiveLimiter> limiters = new EnumMap<>(OperationCost.class);
+
+    @PostConstruct
+    void start() {
+        long leaseTimeoutNanos = TimeUnit.SECONDS.toNanos(leaseTimeoutSeconds);
+        limiters.put(OperationCost.CHEAP, new AdaptiveLimiter(cheapInitial, cheapMin, cheapMax, leaseTimeoutNanos));
+        limiters.put(OperationCost.EXPENSIVE,
+                new AdaptiveLimiter(expensiveInitial, expensiveMin, expensiveMax, leaseTimeoutNanos));
+        limiters.forEach(this::register);
+        }
+
+    boolean isEnabled() {
+        return enabled;
+        }
+
+    long retryAfterSeconds() {
+        return retryAfterSeconds;
+        }
+
+    AdaptiveLimiter limiter(OperationCost cost) {
+        return limiters.get(cost);
+        }
+
+    private void register(OperationCost cost, AdaptiveLimiter limiter) {
+        String labels = "cost=\"" + cost.label() + "\"";
+        catalogMetrics.gauge("beers_limiter_limit", labels,
+                "Requests allowed in flight at once.", limiter::limit);
+        catalogMetrics.gauge("beers_limiter_in_flight", labels,
+                "Requests in flight.", limiter::inFlight);
+        catalogMetrics.counter("beers_limiter_rejected_total", labels,
+                "Requests shed with 503.", limiter::rejected);
+        }
+    }
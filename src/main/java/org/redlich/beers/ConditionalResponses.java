@@ -0,0 +1,79 @@
+package org.redlich.beers;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Variant;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * <p>ConditionalResponses class.</p>
+ *
+ * Answers a GET with 304 Not Modified when the request's
+ * <code>If-None-Match</code> matches the entity tag. The tag is known without
+ * reading while the version it was read at is current. Otherwise the entity is
+ * read, and answered with 304 or returned with its tag.
+ */
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+        }
+
+    /**
+     * The version must be taken before the entity is read. A write in between
+     * then only causes one extra read, never a stale 304. A known tag is
+     * compared on the calling thread; only the read goes to the executor.
+     */
+    static CompletionStage<Response> of(Request request, CatalogVersions.Version version, DatabaseExecutor executor,
+                                        Supplier<?> entity) {
+        Optional<EntityTag> known = version.knownTag();
+        if (known.isPresent()) {
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(known.get());
+            if (notModified != null) {
+                return CompletableFuture.completedFuture(notModified.tag(known.get()).build());
+                }
+            }
+        return executor.submit(() -> {
+            Object read = entity.get();
+            EntityTag tag = version.tagOf(read);
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            return (notModified != null ? notModified : Response.ok(read)).tag(tag).build();
+            });
+        }
+
+    /**
+     * Negotiates one of <code>variants</code> first. Each variant after the
+     * first gets its own tag, so a cached JSON body never validates a binary one.
+     */
+    static CompletionStage<Response> of(Request request, List<Variant> variants, CatalogVersions.Version version,
+                                        DatabaseExecutor executor, Supplier<?> entity) {
+        Variant variant = request.selectVariant(variants);
+        if (variant == null) {
+            return CompletableFuture.completedFuture(Response.notAcceptable(variants).build());
+            }
+        Optional<EntityTag> known = version.knownTag().map(tag -> variantTag(tag, variants, variant));
+        if (known.isPresent()) {
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(known.get());
+            if (notModified != null) {
+                return CompletableFuture.completedFuture(notModified.tag(known.get()).variants(variants).build());
+                }
+            }
+        return executor.submit(() -> {
+            Object read = entity.get();
+            EntityTag tag = variantTag(version.tagOf(read), variants, variant);
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            return (notModified != null ? notModified : Response.ok(read, variant)).tag(tag).variants(variants).build();
+            });
+        }
+
+    private static EntityTag variantTag(EntityTag tag, List<Variant> variants, Variant variant) {
+        return variant.equals(variants.get(0))
+                ? tag
+                : new EntityTag(tag.getValue() + "." + variant.getMediaType().getSubtype(), tag.isWeak());
+        }
+    }
@@ -9,6 +9,10 @@ import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.ExceptionMapper;
 import jakarta.ws.rs.ext.Provider;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 /**
  * <p>ConstraintViolationExceptionMapper class.</p>
  *
@@ -28,9 +32,21 @@ public class ConstraintViolationExceptionMapper implements ExceptionMapper<Const
 
     private Object extractEntity(ConstraintViolationException constraintViolationException) {
         JsonArrayBuilder messages = Json.createArrayBuilder();
-        for (ConstraintViolation<?> v : constraintViolationException.getConstraintViolations()) {
+        messagesOf(constraintViolationException.getConstraintViolations()).forEach(messages::add);
+        return messages.toString();
+    }
+
+    /**
+     * <p>messagesOf.</p>
+     *
+     * @param violations a {@link java.util.Set} object
+     * @return the messages reported for the violations
+     */
+    static List<String> messagesOf(Set<? extends ConstraintViolation<?>> violations) {
+        List<String> messages = new ArrayList<>(violations.size());
+        for (ConstraintViolation<?> v : violations) {
             messages.add(v.getMessage());
         }
-        return messages.toString();
+        return messages;
     }
 }
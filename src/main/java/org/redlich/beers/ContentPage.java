@@ -0,0 +1,61 @@
+package org.redlich.beers;
+
+import jakarta.data.page.Page;
+import jakarta.data.page.Pageable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * <p>ContentPage class.</p>
+ *
+ * A {@link jakarta.data.page.Page} over content that was fetched outside of a
+ * repository, for example by an aggregation.
+ *
+ * @param content the elements of the page
+ * @param pageable the request that produced the page
+ * @param totalElements the number of elements across all pages
+ * @param <T> the element type
+ */
+record ContentPage<T>(List<T> content, Pageable pageable, long totalElements) implements Page<T> {
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasContent() {
+        return !content.isEmpty();
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public int numberOfElements() {
+        return content.size();
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public Pageable nextPageable() {
+        return pageable.page() < totalPages() ? pageable.next() : null;
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public long totalPages() {
+        return (totalElements + pageable.size() - 1) / pageable.size();
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterator<T> iterator() {
+        return content.iterator();
+        }
+
+    /**
+     * <p>stream.</p>
+     *
+     * @return a {@link java.util.stream.Stream} object
+     */
+    public Stream<T> stream() {
+        return content.stream();
+        }
+    }
@@ -0,0 +1,168 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * <p>CursorPublisher class.</p>
+ *
+ * Publishes the documents of a query as subscribers request them. The cursor
+ * is opened on the first request and read through the
+ * {@link org.redlich.beers.DatabaseExecutor}, so the subscriber's thread never
+ * waits on the database and reads count against the cap on database calls.
+ * Each task emits at most <code>batchSize</code> documents before it hands its
+ * slot back, and cancelling closes the cursor.
+ *
+ * Every subscription runs the query again.
+ *
+ * @param <T> the type of the published items
+ */
+final class CursorPublisher<T> implements Flow.Publisher<T> {
+
+    private final Supplier<MongoCursor<Document>> query;
+
+    private final Function<Document, ? extends T> mapper;
+
+    private final DatabaseExecutor databaseExecutor;
+
+    private final int batchSize;
+
+    CursorPublisher(Supplier<MongoCursor<Document>> query, Function<Document, ? extends T> mapper,
+                    DatabaseExecutor databaseExecutor, int batchSize) {
+        this.query = query;
+        this.mapper = mapper;
+        this.databaseExecutor = databaseExecutor;
+        this.batchSize = Math.max(1, batchSize);
+        }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        subscriber.onSubscribe(new CursorSubscription(subscriber));
+        }
+
+    private final class CursorSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Non-zero while a drain is scheduled or running; only the drain
+         * touches the cursor and signals the subscriber.
+         */
+        private final AtomicInteger work = new AtomicInteger();
+
+        private volatile boolean cancelled;
+
+        private volatile IllegalArgumentException invalidDemand;
+
+        private MongoCursor<Document> cursor;
+
+        private boolean done;
+
+        CursorSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+            }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidDemand = new IllegalArgumentException("Demand must be positive, was " + n);
+                } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                }
+            if (work.getAndIncrement() == 0) {
+                submit();
+                }
+            }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            if (work.getAndIncrement() == 0) {
+                if (cursor == null) {
+                    done = true;
+                    } else {
+                    submit();
+                    }
+                }
+            }
+
+        private void submit() {
+            databaseExecutor.submit(() -> {
+                drain();
+                return null;
+                }).whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    fail(failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure);
+                    }
+                });
+            }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                if (done) {
+                    return;
+                    }
+                if (cancelled) {
+                    close();
+                    return;
+                    }
+                if (invalidDemand != null) {
+                    fail(invalidDemand);
+                    return;
+                    }
+                int emitted = 0;
+                while (emitted < batchSize && demand.get() > 0 && !cancelled) {
+                    if (cursor == null) {
+                        cursor = query.get();
+                        }
+                    if (!cursor.hasNext()) {
+                        close();
+                        subscriber.onComplete();
+                        return;
+                        }
+                    T item = mapper.apply(cursor.next());
+                    demand.decrementAndGet();
+                    emitted++;
+                    subscriber.onNext(item);
+                    }
+                if (emitted == batchSize && demand.get() > 0 && !cancelled) {
+                    // let other calls have the slot, the next batch is read by a new task
+                    submit();
+                    return;
+                    }
+                missed = work.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                    }
+                }
+            }
+
+        private void fail(Throwable failure) {
+            if (done) {
+                return;
+                }
+            close();
+            if (!cancelled) {
+                subscriber.onError(failure);
+                }
+            }
+
+        private void close() {
+            done = true;
+            if (cursor != null) {
+                cursor.close();
+                }
+            }
+        }
+    }
@@ -0,0 +1,33 @@
+package org.redlich.beers;
+
+/**
+ * <p>DatabaseBusyException class.</p>
+ *
+ * Thrown when a database operation cannot get a slot in time. Mapped to
+ * 503 Service Unavailable with a <code>Retry-After</code> header by
+ * {@link org.redlich.beers.DatabaseBusyExceptionMapper}.
+ */
+public class DatabaseBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * <p>Constructor for DatabaseBusyException.</p>
+     *
+     * @param message a {@link java.lang.String} object
+     * @param retryAfterSeconds a long
+     */
+    public DatabaseBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+    /**
+     * <p>Getter for the field <code>retryAfterSeconds</code>.</p>
+     *
+     * @return a long
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+        }
+    }
@@ -0,0 +1,25 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * <p>DatabaseBusyExceptionMapper class.</p>
+ */
+@Provider
+@ApplicationScoped
+public class DatabaseBusyExceptionMapper implements ExceptionMapper<DatabaseBusyException> {
+    /** {@inheritDoc} */
+    @Override
+    public Response toResponse(DatabaseBusyException e) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, e.getRetryAfterSeconds())
+                .type(MediaType.TEXT_PLAIN_TYPE)
+                .entity(e.getMessage())
+                .build();
+        }
+    }
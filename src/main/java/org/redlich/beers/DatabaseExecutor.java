@@ -0,0 +1,298 @@
+package org.redlich.beers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * <p>DatabaseExecutor class.</p>
+ *
+ * Runs blocking repository calls for the resources. Work runs off the
+ * container's worker threads, and at most <code>beers.async.max-concurrent</code>
+ * database operations are in flight at once. A call that waits longer than
+ * <code>beers.async.acquire-timeout-millis</code> for a slot fails with a
+ * {@link org.redlich.beers.DatabaseBusyException}, answered with 503.
+ * With <code>beers.async.enabled=false</code>, work runs inline on the calling
+ * thread instead.
+ *
+ * A streaming call holds its slot until the stream is closed. If its response
+ * is never written, the stream is never closed, so a stream that holds its
+ * slot for longer than <code>beers.async.stream-lease-millis</code> is closed
+ * when another call finds no slot free. Its cursor is closed first, and only
+ * then is the slot given back.
+ */
+@ApplicationScoped
+public class DatabaseExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(DatabaseExecutor.class.getName());
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    @Inject
+    @ConfigProperty(name = "beers.async.enabled", defaultValue = "true")
+    boolean enabled;
+
+    /**
+     * Keep this below the Mongo driver's <code>maxPoolSize</code> (100 by default).
+     */
+    @Inject
+    @ConfigProperty(name = "beers.async.max-concurrent", defaultValue = "64")
+    int maxConcurrent;
+
+    @Inject
+    @ConfigProperty(name = "beers.async.acquire-timeout-millis", defaultValue = "5000")
+    long acquireTimeoutMillis;
+
+    /**
+     * Only used when virtual threads are unavailable, see {@link #start()}.
+     */
+    @Inject
+    @ConfigProperty(name = "beers.async.queue-size", defaultValue = "10000")
+    int queueSize;
+
+    /**
+     * Longer than writing the whole catalog to a slow client should take.
+     */
+    @Inject
+    @ConfigProperty(name = "beers.async.stream-lease-millis", defaultValue = "300000")
+    long streamLeaseMillis;
+
+    private final Set<StreamLease> streamLeases = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder reclaimedLeases = new LongAdder();
+
+    private Semaphore permits;
+
+    private ExecutorService executor;
+
+    /**
+     * Virtual threads are used when the runtime has them (Java 21+): a blocked
+     * call then only parks its virtual thread. On older runtimes a bounded
+     * platform pool of <code>max-concurrent</code> threads is used instead,
+     * and a full queue is answered with 503.
+     */
+    @PostConstruct
+    void start() {
+        permits = new Semaphore(maxConcurrent, true);
+        if (!enabled) {
+            return;
+            }
+        executor = virtualThreadExecutor();
+        if (executor == null) {
+            AtomicInteger threads = new AtomicInteger();
+            executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueSize), task -> {
+                        Thread thread = new Thread(task, "beer-db-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                        });
+            }
+        }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            }
+        }
+
+    /**
+     * <p>submit.</p>
+     *
+     * @param work a {@link java.util.function.Supplier} object
+     * @param <T> a T class
+     * @return a {@link java.util.concurrent.CompletionStage} object
+     */
+    public <T> CompletionStage<T> submit(Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!enabled) {
+            complete(result, work);
+            return result;
+            }
+        execute(result, () -> {
+            acquire();
+            try {
+                complete(result, work);
+                } finally {
+                permits.release();
+                }
+            });
+        return result;
+        }
+
+    /**
+     * <p>submitStream.</p>
+     *
+     * A stream backed by a cursor keeps its connection until it is closed, so
+     * the slot is held until then rather than until the stream is returned.
+     *
+     * @param work a {@link java.util.function.Supplier} object
+     * @param <T> a T class
+     * @return a {@link java.util.concurrent.CompletionStage} object
+     */
+    public <T> CompletionStage<Stream<T>> submitStream(Supplier<Stream<T>> work) {
+        CompletableFuture<Stream<T>> result = new CompletableFuture<>();
+        if (!enabled) {
+            complete(result, work);
+            return result;
+            }
+        execute(result, () -> {
+            acquire();
+            StreamLease lease = new StreamLease(System.nanoTime());
+            streamLeases.add(lease);
+            try {
+                // runs after the close handlers of the cursor
+                result.complete(lease.holding(work.get().onClose(lease::release)));
+                } catch (RuntimeException | Error e) {
+                lease.release();
+                result.completeExceptionally(e);
+                }
+            });
+        return result;
+        }
+
+    int availablePermits() {
+        return permits.availablePermits();
+        }
+
+    long reclaimedLeases() {
+        return reclaimedLeases.sum();
+        }
+
+    private void execute(CompletableFuture<?> result, Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                    } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new DatabaseBusyException("Database queue is full", RETRY_AFTER_SECONDS));
+            }
+        }
+
+    private void acquire() {
+        if (permits.availablePermits() == 0) {
+            reclaimExpiredLeases();
+            }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new DatabaseBusyException("No database slot within " + acquireTimeoutMillis + " ms",
+                        RETRY_AFTER_SECONDS);
+                }
+            } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseBusyException("Interrupted waiting for a database slot", RETRY_AFTER_SECONDS);
+            }
+        }
+
+    /**
+     * Closes the streams held past their lease, which closes their cursors and
+     * then gives back their slots. A response still reading one fails.
+     */
+    private void reclaimExpiredLeases() {
+        long now = System.nanoTime();
+        long leaseNanos = TimeUnit.MILLISECONDS.toNanos(streamLeaseMillis);
+        for (StreamLease lease : streamLeases) {
+            if (now - lease.acquiredNanos >= leaseNanos && lease.reclaim()) {
+                reclaimedLeases.increment();
+                LOGGER.log(Level.WARNING, "Closed a stream that held a database slot for over {0} ms",
+                        streamLeaseMillis);
+                }
+            }
+        }
+
+    /**
+     * The exception is passed through unwrapped, so exception mappers and
+     * {@link jakarta.ws.rs.WebApplicationException} statuses still apply.
+     */
+    private static <T> void complete(CompletableFuture<T> result, Supplier<T> work) {
+        try {
+            result.complete(work.get());
+            } catch (RuntimeException | Error e) {
+            result.completeExceptionally(e);
+            }
+        }
+
+    /**
+     * The slot of one streaming call, released once, when the stream is
+     * closed, by the response or by reclaiming.
+     */
+    private final class StreamLease {
+
+        private final long acquiredNanos;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private volatile Stream<?> stream;
+
+        StreamLease(long acquiredNanos) {
+            this.acquiredNanos = acquiredNanos;
+            }
+
+        <T> Stream<T> holding(Stream<T> stream) {
+            this.stream = stream;
+            return stream;
+            }
+
+        /**
+         * A call still opening its cursor holds no stream yet and is left alone.
+         */
+        boolean reclaim() {
+            Stream<?> held = stream;
+            if (held == null || released.get()) {
+                return false;
+                }
+            try {
+                held.close();
+                } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Closing a stream held past its lease failed", e);
+                // the close handlers all ran, the lease's included
+                }
+            return released.get();
+            }
+
+        boolean release() {
+            if (!released.compareAndSet(false, true)) {
+                return false;
+                }
+            streamLeases.remove(this);
+            permits.release();
+            return true;
+            }
+        }
+
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            } catch (ReflectiveOperationException e) {
+            LOGGER.log(Level.INFO, "Virtual threads unavailable, using a bounded pool for database calls");
+            return null;
+            }
+        }
+    }
@@ -0,0 +1,52 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+
+import java.lang.reflect.Method;
+
+/**
+ * <p>EndpointMetricsFilter class.</p>
+ *
+ * Records every matched resource method in {@link org.redlich.beers.CatalogMetrics}.
+ * The latency runs from the request filter to the response filter, so for
+ * asynchronous methods it includes the wait for the result. Responses with a
+ * 5xx status count as errors.
+ */
+@Provider
+@ApplicationScoped
+public class EndpointMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String START = EndpointMetricsFilter.class.getName() + ".start";
+
+    @Inject
+    CatalogMetrics catalogMetrics;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    /** {@inheritDoc} */
+    @Override
+    public void filter(ContainerRequestContext request) {
+        request.setProperty(START, System.nanoTime());
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        Object start = request.getProperty(START);
+        Method method = resourceInfo.getResourceMethod();
+        if (!(start instanceof Long startNanos) || method == null) {
+            return;
+            }
+        catalogMetrics.endpoint(resourceInfo.getResourceClass().getSimpleName(), method.getName())
+                .record(System.nanoTime() - startNanos, response.getStatus() >= 500);
+        }
+    }
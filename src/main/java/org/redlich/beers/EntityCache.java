@@ -0,0 +1,104 @@
+package org.redlich.beers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * <p>EntityCache class.</p>
+ *
+ * A read-through cache of entities by id. Lookups that found nothing are cached
+ * too, as an empty {@link java.util.Optional}. Caffeine evicts with W-TinyLFU,
+ * so a one-off scan over many ids does not push out the frequently read ones.
+ *
+ * Concurrent misses on the same id share one load through a
+ * {@link org.redlich.beers.SingleFlight}, which unlike a Caffeine compute
+ * holds no map lock while the database is queried. A load that overlapped a
+ * write is returned but not kept, as with {@link org.redlich.beers.BrewerIdCache}.
+ *
+ * @param <T> the entity type
+ */
+final class EntityCache<T> {
+
+    private final Cache<Integer, Optional<T>> cache;
+
+    private final SingleFlight<Integer, Optional<T>> loads = new SingleFlight<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    EntityCache(long maximumSize, Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        }
+
+    Optional<T> findById(int id, Function<Integer, Optional<T>> loader) {
+        Optional<T> cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+            }
+        return loads.execute(id, key -> {
+            long loadedAt = generation.get();
+            Optional<T> loaded = loader.apply(key);
+            cache.put(key, loaded);
+            // a write while loading may not be reflected in the entity
+            if (generation.get() != loadedAt) {
+                cache.invalidate(key);
+                }
+            return loaded;
+            });
+        }
+
+    void saved(int id, T entity) {
+        changed(id);
+        cache.put(id, Optional.of(entity));
+        }
+
+    void removed(int id) {
+        changed(id);
+        cache.put(id, Optional.empty());
+        }
+
+    void invalidate(int id) {
+        changed(id);
+        cache.invalidate(id);
+        }
+
+    void invalidateIf(Predicate<T> predicate) {
+        generation.incrementAndGet();
+        loads.forgetAll();
+        cache.asMap().values().removeIf(entity -> entity.filter(predicate).isPresent());
+        }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        loads.forgetAll();
+        cache.invalidateAll();
+        }
+
+    SingleFlight<Integer, Optional<T>> loads() {
+        return loads;
+        }
+
+    CacheStats stats() {
+        return cache.stats();
+        }
+
+    long size() {
+        return cache.estimatedSize();
+        }
+
+    private void changed(int id) {
+        generation.incrementAndGet();
+        // callers arriving after the write must not join a load that started before it
+        loads.forget(id);
+        }
+    }
@@ -0,0 +1,109 @@
+package org.redlich.beers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * <p>EntityCaches class.</p>
+ *
+ * Holds the {@link org.redlich.beers.EntityCache} in front of each repository,
+ * and the {@link org.redlich.beers.SingleFlight} shared by concurrent reads of
+ * the same brewer's beers. Every {@link org.redlich.beers.CatalogChange}
+ * forgets the brewer flights, since any beer or brewer written may change
+ * their results. Entities written by this node are cached as written, those
+ * of other nodes are dropped.
+ */
+@ApplicationScoped
+public class EntityCaches {
+
+    @Inject
+    @ConfigProperty(name = "beers.entity-cache.maximum-size", defaultValue = "10000")
+    long maximumSize;
+
+    @Inject
+    @ConfigProperty(name = "beers.entity-cache.expire-after-write-seconds", defaultValue = "300")
+    long expireAfterWriteSeconds;
+
+    @Inject
+    CatalogMetrics catalogMetrics;
+
+    private EntityCache<Beer> beers;
+
+    private EntityCache<Brewer> brewers;
+
+    private final SingleFlight<String, List<Beer>> beersByBrewer = new SingleFlight<>();
+
+    @PostConstruct
+    void start() {
+        beers = new EntityCache<>(maximumSize, Duration.ofSeconds(expireAfterWriteSeconds));
+        brewers = new EntityCache<>(maximumSize, Duration.ofSeconds(expireAfterWriteSeconds));
+        register("beer-by-id", beers.loads());
+        register("brewer-by-id", brewers.loads());
+        register("beers-by-brewer", beersByBrewer);
+        }
+
+    EntityCache<Beer> beers() {
+        return beers;
+        }
+
+    EntityCache<Brewer> brewers() {
+        return brewers;
+        }
+
+    SingleFlight<String, List<Beer>> beersByBrewer() {
+        return beersByBrewer;
+        }
+
+    void onChange(@Observes CatalogChange change) {
+        switch (change.kind()) {
+            case BEERS_SAVED -> change.beers().forEach(beer -> {
+                if (change.remote()) {
+                    beers.invalidate(beer.getId());
+                    } else {
+                    beers.saved(beer.getId(), beer);
+                    }
+                });
+            case BEERS_REMOVED -> change.beers().forEach(beer -> {
+                if (change.remote()) {
+                    beers.invalidate(beer.getId());
+                    } else {
+                    beers.removed(beer.getId());
+                    }
+                });
+            case ALL_BEERS_REMOVED, BEERS_STALE -> beers.invalidateAll();
+            case BREWERS_SAVED -> change.brewers().forEach(brewer -> {
+                if (change.remote()) {
+                    brewers.invalidate(brewer.getId());
+                    } else {
+                    brewers.saved(brewer.getId(), brewer);
+                    }
+                });
+            case BREWERS_REMOVED -> change.brewers().forEach(brewer -> {
+                if (change.remote()) {
+                    brewers.invalidate(brewer.getId());
+                    } else {
+                    brewers.removed(brewer.getId());
+                    beers.invalidateIf(beer -> beer.getBrewerId() == brewer.getId());
+                    }
+                });
+            case ALL_BREWERS_REMOVED, BREWERS_STALE -> brewers.invalidateAll();
+            }
+        beersByBrewer.forgetAll();
+        }
+
+    private void register(String name, SingleFlight<?, ?> flight) {
+        String labels = "flight=\"" + name + "\"";
+        catalogMetrics.counter("beers_single_flight_calls_total", labels,
+                "Calls run, one per group of concurrent identical reads.", flight::calls);
+        catalogMetrics.counter("beers_single_flight_shared_total", labels,
+                "Reads answered by a call run for another caller.", flight::shared);
+        catalogMetrics.gauge("beers_single_flight_coalescing_ratio", labels,
+                "Share of reads that ran no call of their own.", flight::coalescingRatio);
+        }
+    }
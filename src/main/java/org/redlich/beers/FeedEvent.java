@@ -0,0 +1,22 @@
+package org.redlich.beers;
+
+/**
+ * <p>FeedEvent record.</p>
+ *
+ * One event of the {@link org.redlich.beers.CatalogChangeFeed}. The id is the
+ * feed epoch and the sequence, so ids issued before a restart are recognized
+ * as unknown.
+ *
+ * @param id the event id, sent as the SSE <code>id</code> field
+ * @param sequence the position in the feed, without gaps
+ * @param event the event name, such as <code>beer-saved</code>
+ * @param data the event payload, written as JSON
+ */
+public record FeedEvent(String id, long sequence, String event, Object data) {
+
+    static final FeedEvent HEARTBEAT = new FeedEvent(null, -1, null, null);
+
+    boolean isHeartbeat() {
+        return this == HEARTBEAT;
+        }
+    }
@@ -0,0 +1,148 @@
+package org.redlich.beers;
+
+import com.mongodb.client.model.Projections;
+import jakarta.ws.rs.NotAcceptableException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Variant;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * <p>Fieldset class.</p>
+ *
+ * A sparse fieldset, as requested with <code>?fields=name,abv</code>: the
+ * response properties to return, and the projection that fetches only the
+ * document fields behind them.
+ *
+ * @param <R> the response record type
+ */
+public final class Fieldset<R> {
+
+    private final Map<String, Function<R, Object>> selected;
+
+    private final Bson projection;
+
+    private final boolean all;
+
+    private Fieldset(Map<String, Function<R, Object>> selected, Bson projection, boolean all) {
+        this.selected = selected;
+        this.projection = projection;
+        this.all = all;
+        }
+
+    /**
+     * <p>parse.</p>
+     *
+     * @param fields a comma-separated list of response properties, null or blank for all of them
+     * @param available every response property, in output order, with its accessor
+     * @param documentField maps a response property to its document field
+     * @param <R> the response record type
+     * @return a {@link org.redlich.beers.Fieldset} object
+     * @throws IllegalArgumentException if a property is unknown
+     */
+    static <R> Fieldset<R> parse(String fields, Map<String, Function<R, Object>> available,
+                                 Function<String, String> documentField) {
+        if (fields == null || fields.isBlank()) {
+            return new Fieldset<>(available, projectionOf(available.keySet(), documentField), true);
+            }
+        List<String> requested = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!available.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field " + name + ", expected any of " + available.keySet());
+                }
+            requested.add(name);
+            }
+        // output order follows the record, whatever the order requested
+        Map<String, Function<R, Object>> selected = new LinkedHashMap<>();
+        available.forEach((name, accessor) -> {
+            if (requested.contains(name)) {
+                selected.put(name, accessor);
+                }
+            });
+        return new Fieldset<>(Collections.unmodifiableMap(selected), projectionOf(selected.keySet(), documentField),
+                selected.size() == available.size());
+        }
+
+    /**
+     * <p>isAll.</p>
+     *
+     * @return whether every property is selected, so the record itself can be returned
+     */
+    boolean isAll() {
+        return all;
+        }
+
+    /**
+     * <p>projection.</p>
+     *
+     * @return the MongoDB projection of the selected properties
+     */
+    Bson projection() {
+        return projection;
+        }
+
+    /**
+     * <p>select.</p>
+     *
+     * @param response a response record
+     * @return the selected properties of the record, in record order
+     */
+    Map<String, Object> select(R response) {
+        Map<String, Object> values = new LinkedHashMap<>(selected.size() * 2);
+        selected.forEach((name, accessor) -> values.put(name, accessor.apply(response)));
+        return values;
+        }
+
+    /**
+     * <p>variantOf.</p>
+     *
+     * Negotiates the representation before anything is read.
+     *
+     * @param request a {@link jakarta.ws.rs.core.Request} object
+     * @return the representation to return the records in
+     * @throws jakarta.ws.rs.NotAcceptableException if the request accepts none
+     *         of them, as when it only accepts binary records but selects
+     *         properties, since the binary encoding has no sparse form
+     */
+    Variant variantOf(Request request) {
+        List<Variant> variants = all
+                ? CatalogMediaTypes.listVariants()
+                : Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE).build();
+        Variant variant = request.selectVariant(variants);
+        if (variant == null) {
+            throw new NotAcceptableException(Response.notAcceptable(variants).build());
+            }
+        return variant;
+        }
+
+    /**
+     * <p>toResponse.</p>
+     *
+     * @param responses a {@link java.util.stream.Stream} of response records
+     * @param variant the representation from {@link #variantOf(Request)}
+     * @return the records themselves when every property is selected, otherwise their selected properties
+     */
+    Response toResponse(Stream<R> responses, Variant variant) {
+        Object entity = all ? responses : responses.map(this::select);
+        return Response.ok(entity, variant).build();
+        }
+
+    private static Bson projectionOf(Iterable<String> properties, Function<String, String> documentField) {
+        List<String> fields = new ArrayList<>();
+        properties.forEach(property -> fields.add(documentField.apply(property)));
+        // _id is returned unless excluded
+        return fields.contains("_id")
+                ? Projections.include(fields)
+                : Projections.fields(Projections.include(fields), Projections.excludeId());
+        }
+    }
@@ -0,0 +1,84 @@
+package org.redlich.beers;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Indexes;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.nosql.Entity;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>IndexProvisioner class.</p>
+ *
+ * Creates the indexes declared with {@link org.redlich.beers.MongoIndex} on the
+ * entities when the application starts. Creating an index that already exists
+ * is a no-op, so this runs on every start. Afterwards every repository method
+ * that is not declared as a scan but still plans a COLLSCAN is logged.
+ */
+@ApplicationScoped
+public class IndexProvisioner {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexProvisioner.class.getName());
+
+    private static final List<Class<?>> ENTITIES = List.of(Beer.class, Brewer.class);
+
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    QueryPlanReport queryPlanReport;
+
+    @Inject
+    @ConfigProperty(name = "beers.indexes.provision", defaultValue = "true")
+    boolean provision;
+
+    void onStart(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!provision) {
+            return;
+            }
+        ENTITIES.forEach(this::provision);
+        queryPlanReport.explainAll().stream()
+                .filter(QueryPlanResponse::unexpectedScan)
+                .forEach(plan -> LOGGER.warning(() -> "%s plans a COLLSCAN for %s"
+                        .formatted(plan.method(), plan.filter())));
+        }
+
+    /**
+     * <p>provision.</p>
+     *
+     * @param entity an entity class annotated with {@link org.redlich.beers.MongoIndex}
+     */
+    public void provision(Class<?> entity) {
+        String collection = collectionOf(entity);
+        for (MongoIndex index : entity.getAnnotationsByType(MongoIndex.class)) {
+            try {
+                database.getCollection(collection).createIndex(keysOf(index));
+                } catch (MongoException e) {
+                LOGGER.log(Level.WARNING, e, () -> "Could not create index %s on %s"
+                        .formatted(Arrays.toString(index.value()), collection));
+                }
+            }
+        }
+
+    private static String collectionOf(Class<?> entity) {
+        String name = entity.getAnnotation(Entity.class).value();
+        return name.isBlank() ? entity.getSimpleName() : name;
+        }
+
+    private static Bson keysOf(MongoIndex index) {
+        return Indexes.compoundIndex(Arrays.stream(index.value())
+                .map(field -> field.startsWith("-")
+                        ? Indexes.descending(field.substring(1))
+                        : Indexes.ascending(field))
+                .toList());
+        }
+    }
@@ -0,0 +1,21 @@
+package org.redlich.beers;
+
+import jakarta.inject.Qualifier;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Instrumented annotation.</p>
+ *
+ * Selects the repository that records calls, errors, latency and rows in
+ * {@link org.redlich.beers.CatalogMetrics}, see
+ * {@link org.redlich.beers.InstrumentedRepositories}.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER, ElementType.TYPE})
+public @interface Instrumented {
+    }
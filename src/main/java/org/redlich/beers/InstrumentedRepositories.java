@@ -0,0 +1,137 @@
+package org.redlich.beers;
+
+import jakarta.data.page.Slice;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * <p>InstrumentedRepositories class.</p>
+ *
+ * Produces the {@link org.redlich.beers.Instrumented} repositories: JDK proxies
+ * over the Jakarta Data repositories that record each call in
+ * {@link org.redlich.beers.CatalogMetrics} and, when slow, in the
+ * {@link org.redlich.beers.SlowQueryLog}. A call that returns a
+ * {@link java.util.stream.Stream} is timed until the stream is returned, and
+ * its rows are counted as the stream is consumed.
+ */
+@ApplicationScoped
+public class InstrumentedRepositories {
+
+    @Inject
+    CatalogMetrics catalogMetrics;
+
+    @Inject
+    SlowQueryLog slowQueryLog;
+
+    /**
+     * <p>beerRepository.</p>
+     *
+     * @param delegate a {@link org.redlich.beers.BeerRepository} object
+     * @return a {@link org.redlich.beers.BeerRepository} object
+     */
+    @Produces
+    @Instrumented
+    @ApplicationScoped
+    public BeerRepository beerRepository(BeerRepository delegate) {
+        return instrument(BeerRepository.class, delegate, catalogMetrics, slowQueryLog);
+        }
+
+    /**
+     * <p>brewerRepository.</p>
+     *
+     * @param delegate a {@link org.redlich.beers.BrewerRepository} object
+     * @return a {@link org.redlich.beers.BrewerRepository} object
+     */
+    @Produces
+    @Instrumented
+    @ApplicationScoped
+    public BrewerRepository brewerRepository(BrewerRepository delegate) {
+        return instrument(BrewerRepository.class, delegate, catalogMetrics, slowQueryLog);
+        }
+
+    static <T> T instrument(Class<T> type, T delegate, CatalogMetrics metrics) {
+        return instrument(type, delegate, metrics, null);
+        }
+
+    static <T> T instrument(Class<T> type, T delegate, CatalogMetrics metrics, SlowQueryLog slowQueryLog) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new MetricsHandler(type, delegate, metrics, slowQueryLog)));
+        }
+
+    private static final class MetricsHandler implements InvocationHandler {
+
+        private final Class<?> repository;
+
+        private final Object delegate;
+
+        private final CatalogMetrics metrics;
+
+        private final SlowQueryLog slowQueryLog;
+
+        private final Map<Method, CallMetrics> methods = new ConcurrentHashMap<>();
+
+        MetricsHandler(Class<?> repository, Object delegate, CatalogMetrics metrics, SlowQueryLog slowQueryLog) {
+            this.repository = repository;
+            this.delegate = delegate;
+            this.metrics = metrics;
+            this.slowQueryLog = slowQueryLog;
+            }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invoke(method, args);
+                }
+            CallMetrics call = methods.computeIfAbsent(method,
+                    m -> metrics.repository(repository.getSimpleName(), m.getName()));
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invoke(method, args);
+                failed = false;
+                return countRows(result, call);
+                } finally {
+                long nanos = System.nanoTime() - start;
+                call.record(nanos, failed);
+                if (slowQueryLog != null) {
+                    slowQueryLog.record(repository, method.getName(), args, nanos);
+                    }
+                }
+            }
+
+        private Object invoke(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(delegate, args);
+                } catch (InvocationTargetException e) {
+                throw e.getCause();
+                }
+            }
+
+        private static Object countRows(Object result, CallMetrics call) {
+            if (result instanceof Stream<?> stream) {
+                return stream.peek(row -> call.rows.increment());
+                }
+            if (result instanceof Collection<?> collection) {
+                call.rows.add(collection.size());
+                } else if (result instanceof Slice<?> slice) {
+                call.rows.add(slice.content().size());
+                } else if (result instanceof Optional<?> optional) {
+                call.rows.add(optional.isPresent() ? 1 : 0);
+                } else if (result != null) {
+                call.rows.increment();
+                }
+            return result;
+            }
+        }
+    }
@@ -0,0 +1,62 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * <p>JsonStreamWriter class.</p>
+ *
+ * Writes a {@link java.util.stream.Stream} as a JSON array one element at a time,
+ * so the response never holds the whole collection in memory. The stream is
+ * always closed, which releases the database cursor when the client disconnects.
+ */
+@Provider
+@ApplicationScoped
+@Produces(MediaType.APPLICATION_JSON)
+public class JsonStreamWriter implements MessageBodyWriter<Stream<?>> {
+
+    private final Jsonb jsonb = JsonbBuilder.create();
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return Stream.class.isAssignableFrom(type);
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeTo(Stream<?> stream, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        try (stream) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(entityStream, StandardCharsets.UTF_8));
+            writer.write('[');
+            Iterator<?> elements = stream.iterator();
+            while (elements.hasNext()) {
+                writer.write(jsonb.toJson(elements.next()));
+                if (elements.hasNext()) {
+                    writer.write(',');
+                    }
+                }
+            writer.write(']');
+            writer.flush();
+            }
+        }
+    }
@@ -0,0 +1,47 @@
+package org.redlich.beers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <p>KWayMerge class.</p>
+ *
+ * Merges lists that are each sorted by the same comparator into one sorted
+ * window, without sorting the concatenation.
+ */
+final class KWayMerge {
+
+    private KWayMerge() {
+        }
+
+    static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> comparator, long skip, int limit) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                (left, right) -> comparator.compare(left.value(), right.value()));
+        for (List<T> list : sortedLists) {
+            Iterator<T> iterator = list.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+                }
+            }
+        List<T> merged = new ArrayList<>(limit);
+        long skipped = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Head<T> head = heads.poll();
+            if (skipped < skip) {
+                skipped++;
+                } else {
+                merged.add(head.value());
+                }
+            if (head.rest().hasNext()) {
+                heads.add(new Head<>(head.rest().next(), head.rest()));
+                }
+            }
+        return merged;
+        }
+
+    private record Head<T>(T value, Iterator<T> rest) {
+        }
+    }
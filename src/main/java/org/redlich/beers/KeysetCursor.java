@@ -0,0 +1,61 @@
+package org.redlich.beers;
+
+import jakarta.data.Sort;
+import jakarta.data.page.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * <p>KeysetCursor class.</p>
+ *
+ * The (name, id) of the last element of a page. Keyset pagination seeks past
+ * this position instead of skipping over the preceding pages. Clients see the
+ * cursor only as an opaque token.
+ *
+ * @param name the name of the last element seen
+ * @param id the id of the last element seen
+ */
+public record KeysetCursor(String name, int id) {
+
+    private static final char SEPARATOR = ':';
+
+    /**
+     * <p>pageable.</p>
+     *
+     * @param size a int
+     * @return the first page of the given size in keyset order
+     */
+    static Pageable pageable(int size) {
+        return Pageable.ofSize(size).sortBy(Sort.asc("name"), Sort.asc("id"));
+        }
+
+    /**
+     * <p>encode.</p>
+     *
+     * @return the opaque continuation token
+     */
+    public String encode() {
+        String raw = id + String.valueOf(SEPARATOR) + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+    /**
+     * <p>decode.</p>
+     *
+     * @param token a continuation token created by {@link #encode()}, may be null
+     * @return the cursor, or null when no token was given
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+            }
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = raw.indexOf(SEPARATOR);
+        if (separator < 1) {
+            throw new IllegalArgumentException("Malformed cursor: " + token);
+            }
+        return new KeysetCursor(raw.substring(separator + 1), Integer.parseInt(raw.substring(0, separator)));
+        }
+    }
@@ -0,0 +1,23 @@
+package org.redlich.beers;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * <p>KeysetPage class.</p>
+ *
+ * @param content the elements of the page
+ * @param next the token for the following page, or null on the last page
+ * @param <T> the element type
+ */
+public record KeysetPage<T>(List<T> content, String next) {
+
+    static <E, T> KeysetPage<T> of(List<E> entities, int size,
+                                   Function<E, KeysetCursor> cursor,
+                                   Function<E, T> mapper) {
+        String next = entities.size() < size
+                ? null
+                : cursor.apply(entities.get(entities.size() - 1)).encode();
+        return new KeysetPage<>(entities.stream().map(mapper).toList(), next);
+        }
+    }
@@ -0,0 +1,66 @@
+package org.redlich.beers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>LatencyHistogram class.</p>
+ *
+ * A fixed-bucket histogram in the Prometheus style. Recording is a short
+ * scan over the bounds and two {@link java.util.concurrent.atomic.LongAdder}
+ * increments, so it is cheap and contention-free enough for every call.
+ */
+final class LatencyHistogram {
+
+    /**
+     * Upper bounds in seconds, from half a millisecond to ten seconds.
+     */
+    static final double[] BOUNDS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final long[] BOUND_NANOS = new long[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUND_NANOS[i] = (long) (BOUNDS[i] * TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+
+    /**
+     * Non-cumulative counts; the last bucket is <code>+Inf</code>.
+     */
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+            }
+        }
+
+    void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUND_NANOS.length && nanos > BOUND_NANOS[bucket]) {
+            bucket++;
+            }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+        }
+
+    /**
+     * @return the cumulative count of each bucket, ending with <code>+Inf</code>
+     */
+    long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+            }
+        return counts;
+        }
+
+    double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+        }
+    }
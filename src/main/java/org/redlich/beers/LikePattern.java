@@ -0,0 +1,37 @@
+package org.redlich.beers;
+
+import java.util.regex.Pattern;
+
+/**
+ * <p>LikePattern class.</p>
+ *
+ * Translates a SQL LIKE pattern, as accepted by the <code>findByNameLike</code>
+ * finders, into the anchored regular expression used to evaluate it.
+ */
+final class LikePattern {
+
+    private LikePattern() {
+        }
+
+    static Pattern toRegex(String like) {
+        StringBuilder regex = new StringBuilder("^");
+        StringBuilder literal = new StringBuilder();
+        for (char c : like.toCharArray()) {
+            if (c == '%' || c == '_') {
+                appendLiteral(regex, literal);
+                regex.append(c == '%' ? ".*" : ".");
+                } else {
+                literal.append(c);
+                }
+            }
+        appendLiteral(regex, literal);
+        return Pattern.compile(regex.append('$').toString(), Pattern.DOTALL);
+        }
+
+    private static void appendLiteral(StringBuilder regex, StringBuilder literal) {
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+            literal.setLength(0);
+            }
+        }
+    }
@@ -0,0 +1,25 @@
+package org.redlich.beers;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Limited annotation.</p>
+ *
+ * Marks a resource method whose requests are shed with 503 once the
+ * concurrency limit of its {@link org.redlich.beers.OperationCost} is
+ * reached, see {@link org.redlich.beers.LoadSheddingFilter}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Limited {
+
+    /**
+     * <p>value.</p>
+     *
+     * @return the group whose limit applies
+     */
+    OperationCost value();
+    }
@@ -0,0 +1,105 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+/**
+ * <p>LoadSheddingFilter class.</p>
+ *
+ * Admits requests to {@link org.redlich.beers.Limited} resource methods
+ * while their group is under its limit in
+ * {@link org.redlich.beers.ConcurrencyLimits}, and sheds the rest with a
+ * {@link org.redlich.beers.DatabaseBusyException}, answered with 503 and
+ * <code>Retry-After</code>. A permit is held until the entity has been
+ * written, so for asynchronous methods it covers the wait for the result, and
+ * for streamed lists the cursor that is read while the body is written.
+ * Responses without an entity release it in the response filter. Responses
+ * with a 5xx status, and entities that fail to be written, release it as
+ * failed. A permit whose entity is never written is reclaimed by the
+ * {@link org.redlich.beers.AdaptiveLimiter} after the lease timeout.
+ */
+@Provider
+@ApplicationScoped
+public class LoadSheddingFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String PERMIT = LoadSheddingFilter.class.getName() + ".permit";
+
+    @Inject
+    ConcurrencyLimits concurrencyLimits;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    /** {@inheritDoc} */
+    @Override
+    public void filter(ContainerRequestContext request) {
+        Method method = resourceInfo.getResourceMethod();
+        Limited limited = method == null ? null : method.getAnnotation(Limited.class);
+        if (limited == null || !concurrencyLimits.isEnabled()) {
+            return;
+            }
+        AdaptiveLimiter limiter = concurrencyLimits.limiter(limited.value());
+        AdaptiveLimiter.Permit permit = limiter.tryAcquire(System.nanoTime())
+                .orElseThrow(() -> new DatabaseBusyException("Too many " + limited.value().label()
+                        + " requests in flight, limit " + limiter.limit(), concurrencyLimits.retryAfterSeconds()));
+        request.setProperty(PERMIT, new Lease(limiter, permit, false));
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (!(request.getProperty(PERMIT) instanceof Lease lease)) {
+            return;
+            }
+        boolean failed = response.getStatus() >= 500;
+        if (response.hasEntity() && !HttpMethod.HEAD.equals(request.getMethod())) {
+            // released by aroundWriteTo once the entity is written
+            request.setProperty(PERMIT, lease.failed(failed));
+            } else {
+            request.removeProperty(PERMIT);
+            lease.release(failed);
+            }
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        if (!(context.getProperty(PERMIT) instanceof Lease lease)) {
+            context.proceed();
+            return;
+            }
+        context.removeProperty(PERMIT);
+        boolean written = false;
+        try {
+            context.proceed();
+            written = true;
+            } finally {
+            lease.release(lease.failed() || !written);
+            }
+        }
+
+    private record Lease(AdaptiveLimiter limiter, AdaptiveLimiter.Permit permit, boolean failed) {
+
+        Lease failed(boolean failed) {
+            return new Lease(limiter, permit, failed);
+            }
+
+        void release(boolean failed) {
+            limiter.release(permit, System.nanoTime(), failed);
+            }
+        }
+    }
@@ -0,0 +1,430 @@
+package org.redlich.beers;
+
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>LocalWrites class.</p>
+ *
+ * Tells the {@link org.redlich.beers.CatalogChangeListener} which changes of
+ * the stream this node made itself, so that they are not applied a second
+ * time. An insert or replace that comes back is recognized by its content:
+ * the entity read from its document equals one this node is still writing
+ * with that id. Another node writing the very same content is taken for this
+ * node, which is harmless, since the caches hold that content already.
+ * Nothing is added to the documents. Deletes come back without a document and
+ * are recognized by the ids this node is deleting, or, for a whole
+ * collection, by a fence that takes every delete of a document that was not
+ * saved since the emptying began.
+ *
+ * A change of another node to a document this node is still writing comes
+ * before that write in the stream. The write paths have already applied the
+ * later state, so the earlier change is superseded. When the write turns out
+ * not to have happened, its documents are queued to be read again.
+ *
+ * The repositories do not tell whether a delete found its documents, so a
+ * write that has not come back after <code>beers.change-stream.echo-timeout-millis</code>
+ * is given up, and its document read again, and a fence is closed after as
+ * long. A write that comes back later is applied as another node's, which
+ * costs an invalidation, never a stale cache.
+ *
+ * Writes are tracked only while the listener follows the stream.
+ */
+@ApplicationScoped
+public class LocalWrites {
+
+    /**
+     * Where a change of the stream comes from.
+     */
+    enum Origin {
+
+        /**
+         * Made by this node and already applied.
+         */
+        OWN,
+
+        /**
+         * Made by another node before a write of this node to the same
+         * document, which has already been applied.
+         */
+        SUPERSEDED,
+
+        /**
+         * Made by another node.
+         */
+        REMOTE
+        }
+
+    record Key(String collection, int id) {
+        }
+
+    @Inject
+    @ConfigProperty(name = "beers.change-stream.echo-timeout-millis", defaultValue = "10000")
+    long echoTimeoutMillis;
+
+    private final Object lock = new Object();
+
+    private final Map<Key, Pending> pending = new HashMap<>();
+
+    private final Map<String, Fence> fences = new HashMap<>();
+
+    private final Set<Key> stale = new LinkedHashSet<>();
+
+    private long sweepAt = System.nanoTime();
+
+    private volatile boolean tracking;
+
+    /**
+     * <p>track.</p>
+     *
+     * @param tracking whether the listener follows the stream; when it stops,
+     *                 everything tracked so far is forgotten
+     */
+    void track(boolean tracking) {
+        this.tracking = tracking;
+        if (!tracking) {
+            forgetAll();
+            }
+        }
+
+    /**
+     * <p>forgetAll.</p>
+     *
+     * For when the stream will not bring back the writes made so far.
+     */
+    void forgetAll() {
+        synchronized (lock) {
+            pending.clear();
+            fences.clear();
+            stale.clear();
+            }
+        }
+
+    /**
+     * <p>save.</p>
+     *
+     * Runs a save of this node, tracking its entity until it comes back.
+     *
+     * @param collection the collection the entity is written to
+     * @param id the id of the entity
+     * @param entity the entity to write
+     * @param save writes the entity, usually a repository's <code>save</code>
+     * @param <T> the entity type
+     * @return what <code>save</code> returned
+     */
+    <T> T save(String collection, int id, T entity, UnaryOperator<T> save) {
+        saving(collection, id, entity);
+        try {
+            return save.apply(entity);
+            } catch (RuntimeException e) {
+            saveFailed(collection, id, entity);
+            throw e;
+            }
+        }
+
+    /**
+     * <p>delete.</p>
+     *
+     * Runs a delete of this node, tracking the documents it removes until
+     * their deletes come back.
+     *
+     * @param collection the collection the documents are deleted from
+     * @param ids the ids of the documents the delete removes
+     * @param delete removes the documents
+     */
+    void delete(String collection, Collection<Integer> ids, Runnable delete) {
+        deleting(collection, ids);
+        try {
+            delete.run();
+            } catch (RuntimeException e) {
+            deleteMissed(collection, ids);
+            throw e;
+            }
+        }
+
+    /**
+     * <p>deleteAll.</p>
+     *
+     * Runs a delete of this node that empties the collection.
+     *
+     * @param collection the collection to empty
+     * @param delete empties the collection
+     */
+    void deleteAll(String collection, Runnable delete) {
+        deletingAll(collection);
+        try {
+            delete.run();
+            } finally {
+            deletedAll(collection);
+            }
+        }
+
+    /**
+     * <p>saving.</p>
+     *
+     * @param collection the collection the entity is written to
+     * @param id the id of the entity
+     * @param entity the entity about to be written
+     */
+    void saving(String collection, int id, Object entity) {
+        if (!tracking) {
+            return;
+            }
+        synchronized (lock) {
+            pendingOf(new Key(collection, id)).saves.add(entity);
+            }
+        }
+
+    /**
+     * <p>saveFailed.</p>
+     *
+     * @param collection the collection the entity was to be written to
+     * @param id the id of the entity
+     * @param entity an entity passed to {@link #saving(String, int, Object)} that was not written
+     */
+    void saveFailed(String collection, int id, Object entity) {
+        Key key = new Key(collection, id);
+        synchronized (lock) {
+            Pending entry = pending.get(key);
+            if (entry != null && entry.saves.remove(entity)) {
+                settle(key, entry, false);
+                }
+            }
+        }
+
+    /**
+     * <p>deleting.</p>
+     *
+     * @param collection the collection the documents are deleted from
+     * @param ids the ids of the documents about to be deleted
+     */
+    void deleting(String collection, Collection<Integer> ids) {
+        if (!tracking) {
+            return;
+            }
+        synchronized (lock) {
+            ids.forEach(id -> pendingOf(new Key(collection, id)).deletes++);
+            }
+        }
+
+    /**
+     * <p>deleteMissed.</p>
+     *
+     * Stops waiting for the deletes of documents that a delete may not have
+     * removed, because it failed or another node changed or deleted them
+     * first.
+     *
+     * @param collection the collection the documents were to be deleted from
+     * @param ids the ids passed to {@link #deleting(String, Collection)}
+     */
+    void deleteMissed(String collection, Collection<Integer> ids) {
+        if (!tracking) {
+            return;
+            }
+        synchronized (lock) {
+            for (int id : ids) {
+                Key key = new Key(collection, id);
+                Pending entry = pending.get(key);
+                if (entry == null || entry.deletes == 0) {
+                    // a delete of another node was taken for this one
+                    stale.add(key);
+                    } else {
+                    entry.deletes--;
+                    settle(key, entry, false);
+                    }
+                }
+            }
+        }
+
+    /**
+     * <p>deletingAll.</p>
+     *
+     * Until the fence is closed, every delete of the collection is taken as
+     * this node's, except those of documents saved meanwhile.
+     *
+     * @param collection the collection about to be emptied
+     */
+    void deletingAll(String collection) {
+        if (!tracking) {
+            return;
+            }
+        synchronized (lock) {
+            fences.computeIfAbsent(collection, ignored -> new Fence()).open++;
+            }
+        }
+
+    /**
+     * <p>deletedAll.</p>
+     *
+     * Closes the fence once its deletes had the echo timeout to come back.
+     *
+     * @param collection the collection that was emptied
+     */
+    void deletedAll(String collection) {
+        synchronized (lock) {
+            Fence fence = fences.get(collection);
+            if (fence != null) {
+                // the fence may have been forgotten and opened again meanwhile
+                fence.open = Math.max(0, fence.open - 1);
+                fence.closesAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(echoTimeoutMillis);
+                }
+            }
+        }
+
+    /**
+     * <p>originOf.</p>
+     *
+     * Takes the change off what is tracked when it is this node's.
+     *
+     * @param collection the collection of the change
+     * @param operation the operation of the change
+     * @param id the id of the changed document
+     * @param entity the entity of an insert or replace, of the looked up
+     *               document of an update, or null
+     * @return a {@link org.redlich.beers.LocalWrites.Origin} object
+     */
+    Origin originOf(String collection, OperationType operation, int id, Object entity) {
+        Key key = new Key(collection, id);
+        synchronized (lock) {
+            Fence fence = fences.get(collection);
+            switch (operation) {
+                case INSERT, REPLACE, UPDATE -> {
+                    if (fence != null) {
+                        fence.saved.add(id);
+                        }
+                    // the looked up document of an update may be a later state; the caches hold it all the same
+                    Pending entry = pending.get(key);
+                    if (entity != null && entry != null && entry.saves.remove(entity)) {
+                        settle(key, entry, true);
+                        return Origin.OWN;
+                        }
+                    }
+                case DELETE -> {
+                    Pending entry = pending.get(key);
+                    if (entry != null && entry.deletes > 0) {
+                        entry.deletes--;
+                        settle(key, entry, true);
+                        return Origin.OWN;
+                        }
+                    if (fence != null && !fence.saved.contains(id)) {
+                        return Origin.OWN;
+                        }
+                    }
+                default -> {
+                    return Origin.REMOTE;
+                    }
+                }
+            Pending entry = pending.get(key);
+            if (entry == null) {
+                return Origin.REMOTE;
+                }
+            entry.superseded = true;
+            return Origin.SUPERSEDED;
+            }
+        }
+
+    /**
+     * <p>drainStale.</p>
+     *
+     * Also gives up the writes that did not come back within the echo
+     * timeout, and closes the fences that are done.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return the documents to read again, because a change of another node
+     * to them was skipped for a write of this node that did not happen, or
+     * because a write of this node did not come back
+     */
+    Set<Key> drainStale(long nowNanos) {
+        synchronized (lock) {
+            if (nowNanos - sweepAt >= 0) {
+                sweep(nowNanos);
+                sweepAt = nowNanos + TimeUnit.MILLISECONDS.toNanos(echoTimeoutMillis) / 4;
+                }
+            if (stale.isEmpty()) {
+                return Set.of();
+                }
+            Set<Key> drained = new LinkedHashSet<>(stale);
+            stale.clear();
+            return drained;
+            }
+        }
+
+    private void sweep(long nowNanos) {
+        Iterator<Map.Entry<Key, Pending>> entries = pending.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, Pending> entry = entries.next();
+            if (nowNanos - entry.getValue().expiresAt >= 0) {
+                entries.remove();
+                stale.add(entry.getKey());
+                }
+            }
+        fences.values().removeIf(fence -> fence.open == 0 && nowNanos - fence.closesAt >= 0);
+        }
+
+    private Pending pendingOf(Key key) {
+        Pending entry = pending.computeIfAbsent(key, ignored -> new Pending());
+        entry.expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(echoTimeoutMillis);
+        return entry;
+        }
+
+    /**
+     * @param written whether the write came back through the stream, so the
+     *                changes it superseded are accounted for
+     */
+    private void settle(Key key, Pending entry, boolean written) {
+        if (!written && entry.superseded) {
+            stale.add(key);
+            }
+        if (entry.saves.isEmpty() && entry.deletes == 0) {
+            pending.remove(key);
+            } else if (written) {
+            // later changes of other nodes are measured against the next write
+            entry.superseded = false;
+            }
+        }
+
+    /**
+     * Writes of this node to one document that have not come back yet.
+     */
+    private static final class Pending {
+
+        /**
+         * The entities being written, oldest first.
+         */
+        private final List<Object> saves = new ArrayList<>();
+
+        private int deletes;
+
+        private boolean superseded;
+
+        private long expiresAt;
+        }
+
+    /**
+     * Deletes of a whole collection that have not come back yet. How many
+     * documents they removed is not known, so the fence stays until the echo
+     * timeout after the last of them returned.
+     */
+    private static final class Fence {
+
+        private final Set<Integer> saved = new HashSet<>();
+
+        private int open;
+
+        private long closesAt;
+        }
+    }
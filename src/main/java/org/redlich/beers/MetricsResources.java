@@ -0,0 +1,33 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+
+/**
+ * <p>MetricsResources class.</p>
+ *
+ * Serves {@link org.redlich.beers.CatalogMetrics} for Prometheus scrapes.
+ */
+@Path("metrics")
+@ApplicationScoped
+public class MetricsResources {
+
+    static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Inject
+    CatalogMetrics catalogMetrics;
+
+    /**
+     * <p>scrape.</p>
+     *
+     * @return a {@link java.lang.String} object
+     */
+    @GET
+    @Produces(PROMETHEUS_TEXT)
+    public String scrape() {
+        return catalogMetrics.scrape();
+        }
+    }
@@ -0,0 +1,136 @@
+package org.redlich.beers;
+
+import com.mongodb.AuthenticationMechanism;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCredential;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.enterprise.inject.Default;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import org.eclipse.jnosql.databases.mongodb.communication.MongoDBDocumentConfiguration;
+import org.eclipse.jnosql.databases.mongodb.communication.MongoDBDocumentManager;
+import org.eclipse.jnosql.mapping.Database;
+import org.eclipse.jnosql.mapping.DatabaseType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Optional;
+
+/**
+ * <p>MongoClientProducer class.</p>
+ *
+ * Exposes the MongoDB driver for the operations that Jakarta Data repositories
+ * cannot express, such as cursor streaming. It reads the same configuration
+ * keys as JNoSQL, and hands its client to JNoSQL as well, so the repositories
+ * and the driver share one connection pool.
+ *
+ * A full connection string in <code>jnosql.mongodb.url</code>, with replica
+ * set, TLS, pool and timeout options, takes precedence. Otherwise the client
+ * connects to <code>jnosql.mongodb.host</code>, with the credentials of
+ * <code>jnosql.mongodb.user</code>, <code>jnosql.mongodb.password</code>,
+ * <code>jnosql.mongodb.authentication.source</code> and
+ * <code>jnosql.mongodb.authentication.mechanism</code> when a user is set.
+ */
+@ApplicationScoped
+public class MongoClientProducer {
+
+    @Inject
+    @ConfigProperty(name = "jnosql.mongodb.url")
+    Optional<String> url;
+
+    @Inject
+    @ConfigProperty(name = "jnosql.mongodb.host", defaultValue = "localhost:27017")
+    String host;
+
+    @Inject
+    @ConfigProperty(name = "jnosql.mongodb.user")
+    Optional<String> user;
+
+    @Inject
+    @ConfigProperty(name = "jnosql.mongodb.password")
+    Optional<String> password;
+
+    @Inject
+    @ConfigProperty(name = "jnosql.mongodb.authentication.source", defaultValue = "admin")
+    String authenticationSource;
+
+    @Inject
+    @ConfigProperty(name = "jnosql.mongodb.authentication.mechanism")
+    Optional<String> authenticationMechanism;
+
+    @Inject
+    @ConfigProperty(name = "jnosql.document.database")
+    String database;
+
+    /**
+     * <p>mongoClient.</p>
+     *
+     * @return a {@link com.mongodb.client.MongoClient} object
+     */
+    @Produces
+    @ApplicationScoped
+    public MongoClient mongoClient() {
+        if (url.isPresent()) {
+            return MongoClients.create(url.get());
+            }
+        MongoClientSettings.Builder settings = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString("mongodb://" + host));
+        user.ifPresent(name -> settings.credential(credentialOf(name)));
+        return MongoClients.create(settings.build());
+        }
+
+    private MongoCredential credentialOf(String name) {
+        MongoCredential credential = MongoCredential.createCredential(name, authenticationSource,
+                password.orElse("").toCharArray());
+        return authenticationMechanism
+                .map(mechanism -> credential.withMechanism(AuthenticationMechanism.fromMechanismName(mechanism)))
+                .orElse(credential);
+        }
+
+    /**
+     * <p>mongoDatabase.</p>
+     *
+     * @param client a {@link com.mongodb.client.MongoClient} object
+     * @return a {@link com.mongodb.client.MongoDatabase} object
+     */
+    @Produces
+    @ApplicationScoped
+    public MongoDatabase mongoDatabase(MongoClient client) {
+        return client.getDatabase(database);
+        }
+
+    /**
+     * <p>documentManager.</p>
+     *
+     * Replaces the document manager JNoSQL would build from the same
+     * configuration with its own client.
+     *
+     * @param client a {@link com.mongodb.client.MongoClient} object
+     * @return a {@link org.eclipse.jnosql.databases.mongodb.communication.MongoDBDocumentManager} object
+     */
+    @Produces
+    @ApplicationScoped
+    @Alternative
+    @Priority(Interceptor.Priority.APPLICATION)
+    @Default
+    @Database(DatabaseType.DOCUMENT)
+    public MongoDBDocumentManager documentManager(MongoClient client) {
+        return new MongoDBDocumentConfiguration().get(client).apply(database);
+        }
+
+    /**
+     * <p>close.</p>
+     *
+     * @param client a {@link com.mongodb.client.MongoClient} object
+     */
+    public void close(@Disposes MongoClient client) {
+        client.close();
+        }
+    }
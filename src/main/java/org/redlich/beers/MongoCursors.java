@@ -0,0 +1,30 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p>MongoCursors class.</p>
+ *
+ * Adapts a driver cursor to a lazy {@link java.util.stream.Stream} that closes
+ * the server-side cursor when the stream is closed, even if it was not exhausted.
+ */
+final class MongoCursors {
+
+    private MongoCursors() {
+        }
+
+    static <T> Stream<T> stream(MongoCursor<Document> cursor, Function<Document, T> mapper) {
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(cursor::close)
+                .map(mapper);
+        }
+    }
@@ -0,0 +1,29 @@
+package org.redlich.beers;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>MongoIndex annotation.</p>
+ *
+ * Declares an index on the collection of an entity. The index is created, or
+ * verified to exist, when the application starts.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Repeatable(MongoIndexes.class)
+public @interface MongoIndex {
+
+    /**
+     * The document fields of the index, in key order. A field prefixed with
+     * <code>-</code> is indexed in descending order.
+     *
+     * @return the indexed fields
+     */
+    String[] value();
+    }
@@ -0,0 +1,23 @@
+package org.redlich.beers;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>MongoIndexes annotation.</p>
+ *
+ * Container of the repeated {@link org.redlich.beers.MongoIndex} annotations.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface MongoIndexes {
+
+    /**
+     * @return the indexes of the entity
+     */
+    MongoIndex[] value();
+    }
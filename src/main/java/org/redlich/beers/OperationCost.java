@@ -0,0 +1,25 @@
+package org.redlich.beers;
+
+/**
+ * <p>OperationCost enum.</p>
+ *
+ * Groups resource methods that share a concurrency limit, see
+ * {@link org.redlich.beers.Limited}. Each group adapts on its own, so a
+ * flood of scans cannot use up the capacity left for lookups by id.
+ */
+public enum OperationCost {
+
+    /**
+     * Lookups and writes of a single entity by id.
+     */
+    CHEAP,
+
+    /**
+     * Scans, searches and batch writes, whose cost grows with the catalog.
+     */
+    EXPENSIVE;
+
+    String label() {
+        return name().toLowerCase();
+        }
+    }
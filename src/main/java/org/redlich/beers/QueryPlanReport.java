@@ -0,0 +1,72 @@
+package org.redlich.beers;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoDatabase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>QueryPlanReport class.</p>
+ *
+ * Explains the query shape of each repository method and reports the stages of
+ * the winning plan, so a method that falls back to a COLLSCAN stands out.
+ */
+@ApplicationScoped
+public class QueryPlanReport {
+
+    private static final String COLLECTION_SCAN = "COLLSCAN";
+
+    @Inject
+    MongoDatabase database;
+
+    /**
+     * <p>explainAll.</p>
+     *
+     * @return the plan of every known repository method, explained with sample arguments
+     */
+    public List<QueryPlanResponse> explainAll() {
+        return QueryShapes.all().stream()
+                .map(shape -> explain(shape, shape.sample().toArray()))
+                .toList();
+        }
+
+    /**
+     * <p>explain.</p>
+     *
+     * @param shape a {@link org.redlich.beers.QueryShape} object
+     * @param arguments the arguments of the repository call
+     * @return a {@link org.redlich.beers.QueryPlanResponse} object
+     */
+    QueryPlanResponse explain(QueryShape shape, Object[] arguments) {
+        Bson filter = shape.filterOf(arguments);
+        Bson sort = shape.sortOf(arguments);
+        FindIterable<Document> query = database.getCollection(shape.collection()).find(filter);
+        if (sort != null) {
+            query = query.sort(sort);
+            }
+        Document plan = query.explain();
+        List<String> stages = new ArrayList<>();
+        collectStages(plan.get("queryPlanner", Document.class).get("winningPlan"), stages);
+        return new QueryPlanResponse(shape.method(), shape.collection(),
+                filter.toBsonDocument().toJson(),
+                sort == null ? null : sort.toBsonDocument().toJson(),
+                stages, stages.contains(COLLECTION_SCAN), shape.scan());
+        }
+
+    private static void collectStages(Object node, List<String> stages) {
+        if (node instanceof Map<?, ?> document) {
+            if (document.get("stage") instanceof String stage) {
+                stages.add(stage);
+                }
+            document.values().forEach(value -> collectStages(value, stages));
+            } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectStages(value, stages));
+            }
+        }
+    }
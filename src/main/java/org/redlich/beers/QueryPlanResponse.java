@@ -0,0 +1,12 @@
+package org.redlich.beers;
+
+import java.util.List;
+
+public record QueryPlanResponse(String method, String collection, String filter, String sort,
+                                List<String> stages, boolean collectionScan, boolean scanExpected) {
+
+    boolean unexpectedScan() {
+        return collectionScan && !scanExpected;
+        }
+
+    }
@@ -0,0 +1,37 @@
+package org.redlich.beers;
+
+import jakarta.data.page.Pageable;
+import org.bson.conversions.Bson;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * <p>QueryShape class.</p>
+ *
+ * The MongoDB filter a repository method is translated into.
+ *
+ * @param method the repository method, as <code>Repository.method</code>
+ * @param collection the collection the method reads or writes
+ * @param filter builds the filter from the method arguments
+ * @param scan whether the method is expected to scan the whole collection
+ * @param sample representative arguments of the method
+ */
+record QueryShape(String method, String collection, Function<Object[], Bson> filter,
+                  boolean scan, List<Object> sample) {
+
+    Bson filterOf(Object[] arguments) {
+        return filter.apply(arguments);
+        }
+
+    Bson sortOf(Object[] arguments) {
+        if (arguments != null) {
+            for (Object argument : arguments) {
+                if (argument instanceof Pageable pageable && !pageable.sorts().isEmpty()) {
+                    return BeerDocuments.sortOf(pageable.sorts());
+                    }
+                }
+            }
+        return null;
+        }
+    }
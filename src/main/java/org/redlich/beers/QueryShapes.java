@@ -0,0 +1,123 @@
+package org.redlich.beers;
+
+import com.mongodb.client.model.Filters;
+import jakarta.data.Sort;
+import jakarta.data.page.Pageable;
+import org.bson.conversions.Bson;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>QueryShapes class.</p>
+ *
+ * The query shape of every method of {@link org.redlich.beers.BeerRepository}
+ * and {@link org.redlich.beers.BrewerRepository}. A new finder needs an entry
+ * here, and unless it is declared as a scan, an index that serves it.
+ */
+final class QueryShapes {
+
+    private static final List<Integer> SAMPLE_BREWER_IDS = List.of(1, 2, 3);
+
+    private static final List<BeerType> SAMPLE_TYPES = List.of(BeerType.IPA, BeerType.APA);
+
+    private static final Pageable ABV_PAGE = Pageable.ofSize(20).sortBy(Sort.asc("abv"), Sort.asc("id"));
+
+    private static final Map<String, QueryShape> SHAPES = Stream.of(
+            beer("findAll", true, arguments -> Filters.empty()),
+            beer("findById", false, arguments -> Filters.eq(BeerDocuments.ID, arguments[0]), 1),
+            beer("findByBrewerIdIn", false,
+                    arguments -> Filters.in(BeerDocuments.BREWER_ID, (List<?>) arguments[0]),
+                    SAMPLE_BREWER_IDS, KeysetCursor.pageable(5)),
+            beer("findByBrewerIdInAndNameGreaterThan", false,
+                    arguments -> Filters.and(
+                            Filters.in(BeerDocuments.BREWER_ID, (List<?>) arguments[0]),
+                            Filters.gt(BeerDocuments.NAME, arguments[1])),
+                    SAMPLE_BREWER_IDS, "Stout", KeysetCursor.pageable(5)),
+            beer("findByBrewerIdInAndNameAndIdGreaterThan", false,
+                    arguments -> Filters.and(
+                            Filters.in(BeerDocuments.BREWER_ID, (List<?>) arguments[0]),
+                            Filters.eq(BeerDocuments.NAME, arguments[1]),
+                            Filters.gt(BeerDocuments.ID, arguments[2])),
+                    SAMPLE_BREWER_IDS, "Stout", 1, KeysetCursor.pageable(5)),
+            beer("findByAbvBetween", false,
+                    arguments -> abvBetween(arguments[0], arguments[1]),
+                    5.0, 8.0, ABV_PAGE),
+            beer("findByTypeInAndAbvBetween", false,
+                    arguments -> Filters.and(
+                            Filters.in(BeerDocuments.TYPE, typeNames(arguments[0])),
+                            abvBetween(arguments[1], arguments[2])),
+                    SAMPLE_TYPES, 5.0, 8.0, ABV_PAGE),
+            beer("findByBrewerIdInAndTypeInAndAbvBetween", false,
+                    arguments -> Filters.and(
+                            Filters.in(BeerDocuments.BREWER_ID, (List<?>) arguments[0]),
+                            Filters.in(BeerDocuments.TYPE, typeNames(arguments[1])),
+                            abvBetween(arguments[2], arguments[3])),
+                    SAMPLE_BREWER_IDS, SAMPLE_TYPES, 5.0, 8.0, ABV_PAGE),
+            beer("save", false, arguments -> Filters.eq(BeerDocuments.ID, ((Beer) arguments[0]).getId()),
+                    Beer.builder().id(1).build()),
+            beer("remove", false, arguments -> Filters.eq(BeerDocuments.ID, ((Beer) arguments[0]).getId()),
+                    Beer.builder().id(1).build()),
+            beer("query", false, arguments -> Filters.eq(BeerDocuments.NAME, arguments[0]), "Stout"),
+            beer("deleteAll", true, arguments -> Filters.empty()),
+            beer("deleteByBrewerId", false, arguments -> Filters.eq(BeerDocuments.BREWER_ID, arguments[0]), 1),
+
+            brewer("findAll", true, arguments -> Filters.empty()),
+            brewer("findById", false, arguments -> Filters.eq(BrewerDocuments.ID, arguments[0]), 1),
+            brewer("findByNameLike", false,
+                    arguments -> Filters.regex(BrewerDocuments.NAME, LikePattern.toRegex((String) arguments[0])),
+                    "Maine%", KeysetCursor.pageable(5)),
+            brewer("findByNameLikeAndNameGreaterThan", false,
+                    arguments -> Filters.and(
+                            Filters.regex(BrewerDocuments.NAME, LikePattern.toRegex((String) arguments[0])),
+                            Filters.gt(BrewerDocuments.NAME, arguments[1])),
+                    "Maine%", "Maine", KeysetCursor.pageable(5)),
+            brewer("findByNameLikeAndNameAndIdGreaterThan", false,
+                    arguments -> Filters.and(
+                            Filters.regex(BrewerDocuments.NAME, LikePattern.toRegex((String) arguments[0])),
+                            Filters.eq(BrewerDocuments.NAME, arguments[1]),
+                            Filters.gt(BrewerDocuments.ID, arguments[2])),
+                    "Maine%", "Maine", 1, KeysetCursor.pageable(5)),
+            brewer("findByState", false, arguments -> Filters.eq(BrewerDocuments.STATE, arguments[0]), "ME"),
+            brewer("save", false, arguments -> Filters.eq(BrewerDocuments.ID, ((Brewer) arguments[0]).getId()),
+                    Brewer.builder().id(1).build()),
+            brewer("remove", false, arguments -> Filters.eq(BrewerDocuments.ID, ((Brewer) arguments[0]).getId()),
+                    Brewer.builder().id(1).build()),
+            brewer("deleteAll", true, arguments -> Filters.empty())
+    ).collect(Collectors.toUnmodifiableMap(QueryShape::method, Function.identity()));
+
+    private QueryShapes() {
+        }
+
+    static Optional<QueryShape> of(Class<?> repository, String method) {
+        return Optional.ofNullable(SHAPES.get(repository.getSimpleName() + "." + method));
+        }
+
+    static List<QueryShape> all() {
+        return SHAPES.values().stream()
+                .sorted((left, right) -> left.method().compareTo(right.method()))
+                .toList();
+        }
+
+    private static Bson abvBetween(Object min, Object max) {
+        return Filters.and(Filters.gte(BeerDocuments.ABV, min), Filters.lte(BeerDocuments.ABV, max));
+        }
+
+    private static List<String> typeNames(Object types) {
+        return ((List<?>) types).stream().map(type -> ((BeerType) type).name()).toList();
+        }
+
+    private static QueryShape beer(String method, boolean scan, Function<Object[], Bson> filter, Object... sample) {
+        return new QueryShape(BeerRepository.class.getSimpleName() + "." + method,
+                BeerDocuments.COLLECTION, filter, scan, List.of(sample));
+        }
+
+    private static QueryShape brewer(String method, boolean scan, Function<Object[], Bson> filter, Object... sample) {
+        return new QueryShape(BrewerRepository.class.getSimpleName() + "." + method,
+                BrewerDocuments.COLLECTION, filter, scan, List.of(sample));
+        }
+    }
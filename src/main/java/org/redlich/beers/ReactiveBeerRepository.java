@@ -0,0 +1,90 @@
+package org.redlich.beers;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import jakarta.data.page.Pageable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+/**
+ * <p>ReactiveBeerRepository class.</p>
+ *
+ * Non-blocking counterparts of the {@link org.redlich.beers.BeerRepository}
+ * finders. Documents are fetched in batches of <code>beers.reactive.batch-size</code>
+ * as subscribers request them, see {@link org.redlich.beers.CursorPublisher}.
+ */
+@ApplicationScoped
+public class ReactiveBeerRepository {
+
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    DatabaseExecutor databaseExecutor;
+
+    @Inject
+    @ConfigProperty(name = "beers.reactive.batch-size", defaultValue = "256")
+    int batchSize;
+
+    /**
+     * <p>findAll.</p>
+     *
+     * @return a {@link java.util.concurrent.Flow.Publisher} object
+     */
+    public Flow.Publisher<Beer> findAll() {
+        return publish(() -> beers().find());
+        }
+
+    /**
+     * <p>findById.</p>
+     *
+     * @param id a int
+     * @return a {@link java.util.concurrent.Flow.Publisher} object that emits at most one beer
+     */
+    public Flow.Publisher<Beer> findById(int id) {
+        return publish(() -> beers().find(Filters.eq(BeerDocuments.ID, id)).limit(1));
+        }
+
+    /**
+     * <p>findByBrewerIdIn.</p>
+     *
+     * @param brewerIds a {@link java.util.List} object
+     * @return a {@link java.util.concurrent.Flow.Publisher} object
+     */
+    public Flow.Publisher<Beer> findByBrewerIdIn(List<Integer> brewerIds) {
+        return publish(() -> beers().find(Filters.in(BeerDocuments.BREWER_ID, brewerIds)));
+        }
+
+    /**
+     * <p>findByBrewerIdIn.</p>
+     *
+     * @param brewerIds a {@link java.util.List} object
+     * @param pageable a {@link jakarta.data.page.Pageable} object
+     * @return a {@link java.util.concurrent.Flow.Publisher} object with the beers of the page
+     */
+    public Flow.Publisher<Beer> findByBrewerIdIn(List<Integer> brewerIds, Pageable pageable) {
+        return publish(() -> {
+            FindIterable<Document> find = beers().find(Filters.in(BeerDocuments.BREWER_ID, brewerIds))
+                    .skip(Math.toIntExact((pageable.page() - 1) * pageable.size()))
+                    .limit(pageable.size());
+            return pageable.sorts().isEmpty() ? find : find.sort(BeerDocuments.sortOf(pageable.sorts()));
+            });
+        }
+
+    private Flow.Publisher<Beer> publish(Supplier<FindIterable<Document>> query) {
+        return new CursorPublisher<>(() -> query.get().batchSize(batchSize).cursor(), BeerDocuments::toBeer,
+                databaseExecutor, batchSize);
+        }
+
+    private MongoCollection<Document> beers() {
+        return database.getCollection(BeerDocuments.COLLECTION);
+        }
+    }
@@ -0,0 +1,71 @@
+package org.redlich.beers;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+/**
+ * <p>ReactiveBrewerRepository class.</p>
+ *
+ * Non-blocking counterparts of the {@link org.redlich.beers.BrewerRepository}
+ * finders, read like those of {@link org.redlich.beers.ReactiveBeerRepository}.
+ */
+@ApplicationScoped
+public class ReactiveBrewerRepository {
+
+    @Inject
+    MongoDatabase database;
+
+    @Inject
+    DatabaseExecutor databaseExecutor;
+
+    @Inject
+    @ConfigProperty(name = "beers.reactive.batch-size", defaultValue = "256")
+    int batchSize;
+
+    /**
+     * <p>findAll.</p>
+     *
+     * @return a {@link java.util.concurrent.Flow.Publisher} object
+     */
+    public Flow.Publisher<Brewer> findAll() {
+        return publish(() -> brewers().find());
+        }
+
+    /**
+     * <p>findById.</p>
+     *
+     * @param id a int
+     * @return a {@link java.util.concurrent.Flow.Publisher} object that emits at most one brewer
+     */
+    public Flow.Publisher<Brewer> findById(int id) {
+        return publish(() -> brewers().find(Filters.eq(BrewerDocuments.ID, id)).limit(1));
+        }
+
+    /**
+     * <p>findByNameLike.</p>
+     *
+     * @param name a SQL LIKE pattern
+     * @return a {@link java.util.concurrent.Flow.Publisher} object
+     */
+    public Flow.Publisher<Brewer> findByNameLike(String name) {
+        return publish(() -> brewers().find(Filters.regex(BrewerDocuments.NAME, LikePattern.toRegex(name))));
+        }
+
+    private Flow.Publisher<Brewer> publish(Supplier<FindIterable<Document>> query) {
+        return new CursorPublisher<>(() -> query.get().batchSize(batchSize).cursor(), BrewerDocuments::toBrewer,
+                databaseExecutor, batchSize);
+        }
+
+    private MongoCollection<Document> brewers() {
+        return database.getCollection(BrewerDocuments.COLLECTION);
+        }
+    }
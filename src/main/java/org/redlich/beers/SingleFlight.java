@@ -0,0 +1,118 @@
+package org.redlich.beers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * <p>SingleFlight class.</p>
+ *
+ * Coalesces concurrent calls with the same key: the first caller runs the
+ * call, callers arriving while it runs wait for it and share its result or
+ * its exception. The key is released as soon as the call completes, so a
+ * caller arriving afterwards runs the call again and nothing is cached. A
+ * write can {@link #forget} a key, so that callers arriving after it do not
+ * join a call that started before it.
+ *
+ * @param <K> the key type
+ * @param <V> the result type, shared by all callers and therefore not to be modified
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * <p>execute.</p>
+     *
+     * @param key the key identifying the call
+     * @param call runs when no call for the key is in flight
+     * @return the result of the call, run by this caller or shared
+     */
+    V execute(K key, Function<? super K, ? extends V> call) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            shared.increment();
+            return join(running);
+            }
+        calls.increment();
+        V value;
+        try {
+            value = call.apply(key);
+            } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+            }
+        // released before completing, so no caller joins a call that is already over
+        inFlight.remove(key, mine);
+        mine.complete(value);
+        return value;
+        }
+
+    /**
+     * <p>forget.</p>
+     *
+     * @param key a key whose call in flight may have read data that is now stale
+     */
+    void forget(K key) {
+        inFlight.remove(key);
+        }
+
+    /**
+     * <p>forgetAll.</p>
+     */
+    void forgetAll() {
+        inFlight.clear();
+        }
+
+    /**
+     * <p>calls.</p>
+     *
+     * @return the number of calls run
+     */
+    long calls() {
+        return calls.sum();
+        }
+
+    /**
+     * <p>shared.</p>
+     *
+     * @return the number of callers that shared a call run by another caller
+     */
+    long shared() {
+        return shared.sum();
+        }
+
+    /**
+     * <p>coalescingRatio.</p>
+     *
+     * @return the share of callers that ran no call of their own, 0 before the first call
+     */
+    double coalescingRatio() {
+        long joined = shared.sum();
+        long total = calls.sum() + joined;
+        return total == 0 ? 0 : (double) joined / total;
+        }
+
+    private static <V> V join(CompletableFuture<V> running) {
+        try {
+            return running.join();
+            } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+                }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+                }
+            throw e;
+            }
+        }
+    }
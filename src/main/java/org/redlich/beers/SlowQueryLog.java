@@ -0,0 +1,193 @@
+package org.redlich.beers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>SlowQueryLog class.</p>
+ *
+ * Logs repository calls slower than <code>beers.slow-query.threshold-millis</code>
+ * with the MongoDB filter and sort of their {@link org.redlich.beers.QueryShape}.
+ * A fraction <code>beers.slow-query.explain-sample-rate</code> of slow calls is
+ * also explained in the background, at most one at a time per method. The
+ * <code>beers.slow-query.top</code> slowest methods are kept for
+ * <code>GET /db/admin/slow-queries</code>.
+ */
+@ApplicationScoped
+public class SlowQueryLog {
+
+    private static final Logger LOGGER = Logger.getLogger(SlowQueryLog.class.getName());
+
+    @Inject
+    QueryPlanReport queryPlanReport;
+
+    @Inject
+    @ConfigProperty(name = "beers.slow-query.threshold-millis", defaultValue = "100")
+    long thresholdMillis;
+
+    @Inject
+    @ConfigProperty(name = "beers.slow-query.explain-sample-rate", defaultValue = "0.1")
+    double explainSampleRate;
+
+    @Inject
+    @ConfigProperty(name = "beers.slow-query.top", defaultValue = "20")
+    int top;
+
+    private long thresholdNanos;
+
+    private ExecutorService explainer;
+
+    private final ConcurrentMap<String, SlowShape> shapes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void start() {
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16), task -> {
+            Thread thread = new Thread(task, "beer-slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+            });
+        }
+
+    @PreDestroy
+    void stop() {
+        explainer.shutdownNow();
+        }
+
+    /**
+     * Called after every instrumented repository call; below the threshold
+     * this is a single comparison.
+     */
+    void record(Class<?> repository, String method, Object[] arguments, long nanos) {
+        if (nanos < thresholdNanos) {
+            return;
+            }
+        QueryShape shape = QueryShapes.of(repository, method).orElse(null);
+        if (shape == null) {
+            LOGGER.log(Level.WARNING, "Slow query {0}.{1} took {2} ms (no known query shape)",
+                    new Object[]{repository.getSimpleName(), method, millis(nanos)});
+            return;
+            }
+        String filter = json(shape.filterOf(arguments));
+        String sort = json(shape.sortOf(arguments));
+        LOGGER.log(Level.WARNING, "Slow query {0} took {1} ms: collection {2}, filter {3}, sort {4}",
+                new Object[]{shape.method(), millis(nanos), shape.collection(), filter, sort});
+        SlowShape slow = shapes.computeIfAbsent(shape.method(), key -> new SlowShape(shape));
+        slow.record(nanos, filter, sort);
+        if (explainSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < explainSampleRate
+                && slow.startExplain()) {
+            Object[] captured = arguments == null ? new Object[0] : arguments.clone();
+            try {
+                explainer.execute(() -> explain(slow, captured));
+                } catch (RejectedExecutionException e) {
+                // a full queue drops the sample rather than slowing the caller
+                slow.plan(null);
+                }
+            }
+        }
+
+    /**
+     * <p>slowest.</p>
+     *
+     * @return the slowest methods by their worst call, slowest first
+     */
+    public List<SlowQueryResponse> slowest() {
+        return shapes.values().stream()
+                .map(SlowShape::toResponse)
+                .sorted(Comparator.comparingDouble(SlowQueryResponse::maxMillis).reversed())
+                .limit(top)
+                .toList();
+        }
+
+    private void explain(SlowShape slow, Object[] arguments) {
+        try {
+            slow.plan(queryPlanReport.explain(slow.shape, arguments));
+            } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Could not explain " + slow.shape.method(), e);
+            slow.plan(null);
+            }
+        }
+
+    private static String json(Bson bson) {
+        return bson == null ? null : bson.toBsonDocument().toJson();
+        }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+        }
+
+    /**
+     * Only touched by slow calls, so plain synchronization is enough.
+     */
+    private static final class SlowShape {
+
+        private final QueryShape shape;
+
+        private long count;
+
+        private long totalNanos;
+
+        private long maxNanos;
+
+        private String filter;
+
+        private String sort;
+
+        private Instant lastSeen;
+
+        private QueryPlanResponse plan;
+
+        private boolean explaining;
+
+        SlowShape(QueryShape shape) {
+            this.shape = shape;
+            }
+
+        synchronized void record(long nanos, String filter, String sort) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            this.filter = filter;
+            this.sort = sort;
+            this.lastSeen = Instant.now();
+            }
+
+        synchronized boolean startExplain() {
+            if (explaining) {
+                return false;
+                }
+            explaining = true;
+            return true;
+            }
+
+        synchronized void plan(QueryPlanResponse plan) {
+            if (plan != null) {
+                this.plan = plan;
+                }
+            explaining = false;
+            }
+
+        synchronized SlowQueryResponse toResponse() {
+            return new SlowQueryResponse(shape.method(), shape.collection(), count, millis(maxNanos),
+                    millis(totalNanos) / count, filter, sort, lastSeen.toString(), plan);
+            }
+        }
+    }
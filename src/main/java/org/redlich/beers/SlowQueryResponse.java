@@ -0,0 +1,12 @@
+package org.redlich.beers;
+
+/**
+ * <p>SlowQueryResponse record.</p>
+ *
+ * A repository method that went over the slow-query threshold, with the last
+ * slow query it ran and, when one was sampled, its plan.
+ */
+public record SlowQueryResponse(String method, String collection, long slowCalls, double maxMillis,
+                                double meanMillis, String filter, String sort, String lastSeen,
+                                QueryPlanResponse plan) {
+    }
@@ -0,0 +1,43 @@
+package org.redlich.beers;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * <p>SseChangeSink class.</p>
+ *
+ * Writes catalog changes to a server-sent events connection. Heartbeats are
+ * sent as comments, which clients ignore.
+ */
+final class SseChangeSink implements ChangeSink {
+
+    private final SseEventSink sink;
+
+    private final Sse sse;
+
+    SseChangeSink(SseEventSink sink, Sse sse) {
+        this.sink = sink;
+        this.sse = sse;
+        }
+
+    @Override
+    public CompletionStage<?> send(FeedEvent change) {
+        if (change.isHeartbeat()) {
+            return sink.send(sse.newEventBuilder().comment("heartbeat").build());
+            }
+        return sink.send(sse.newEventBuilder()
+                .id(change.id())
+                .name(change.event())
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(change.data())
+                .build());
+        }
+
+    @Override
+    public void close() {
+        sink.close();
+        }
+    }
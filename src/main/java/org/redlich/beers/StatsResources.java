@@ -0,0 +1,32 @@
+package org.redlich.beers;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * <p>StatsResources class.</p>
+ *
+ * Catalog statistics for dashboards, see {@link org.redlich.beers.CatalogStatistics}.
+ */
+@Path("stats")
+@ApplicationScoped
+@Produces(MediaType.APPLICATION_JSON)
+public class StatsResources {
+
+    @Inject
+    CatalogStatistics catalogStatistics;
+
+    /**
+     * <p>statistics.</p>
+     *
+     * @return a {@link org.redlich.beers.CatalogStatsResponse} object
+     */
+    @GET
+    public CatalogStatsResponse statistics() {
+        return catalogStatistics.statistics();
+        }
+    }
@@ -0,0 +1,99 @@
+package org.redlich.beers;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <p>TrigramIndex class.</p>
+ *
+ * An inverted index from every three-character substring of a value to the ids
+ * holding it. A LIKE pattern is answered by intersecting the postings of the
+ * trigrams in its literal parts and then verifying each candidate against the
+ * pattern, so the result is exactly what the LIKE would match.
+ *
+ * Not thread-safe.
+ */
+final class TrigramIndex {
+
+    private static final int GRAM = 3;
+
+    private final Map<Integer, String> values = new HashMap<>();
+
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+
+    void put(int id, String value) {
+        remove(id);
+        if (value == null) {
+            return;
+            }
+        values.put(id, value);
+        for (String trigram : trigramsOf(value)) {
+            postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(id);
+            }
+        }
+
+    void remove(int id) {
+        String value = values.remove(id);
+        if (value == null) {
+            return;
+            }
+        for (String trigram : trigramsOf(value)) {
+            Set<Integer> ids = postings.get(trigram);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(trigram);
+                }
+            }
+        }
+
+    void clear() {
+        values.clear();
+        postings.clear();
+        }
+
+    int size() {
+        return values.size();
+        }
+
+    List<Integer> search(String like) {
+        Pattern pattern = LikePattern.toRegex(like);
+        return candidatesOf(like).stream()
+                .filter(id -> pattern.matcher(values.get(id)).matches())
+                .sorted()
+                .toList();
+        }
+
+    private Collection<Integer> candidatesOf(String like) {
+        Set<String> trigrams = new HashSet<>();
+        for (String literal : like.split("[%_]")) {
+            trigrams.addAll(trigramsOf(literal));
+            }
+        if (trigrams.isEmpty()) {
+            // too short to narrow down, every value has to be verified
+            return values.keySet();
+            }
+        List<Set<Integer>> lists = trigrams.stream()
+                .map(trigram -> postings.getOrDefault(trigram, Set.of()))
+                .sorted(Comparator.comparingInt(Set::size))
+                .toList();
+        Set<Integer> candidates = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(lists.get(i));
+            }
+        return candidates;
+        }
+
+    private static Set<String> trigramsOf(String value) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            trigrams.add(value.substring(i, i + GRAM));
+            }
+        return trigrams;
+        }
+    }
@@ -0,0 +1,154 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class AdaptiveLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long LEASE_TIMEOUT = TimeUnit.SECONDS.toNanos(60);
+
+    private long now;
+
+    @Test
+    void shouldRejectAtTheLimitUntilReleased() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10, LEASE_TIMEOUT);
+        AdaptiveLimiter.Permit first = limiter.tryAcquire(now).orElseThrow();
+        limiter.tryAcquire(now).orElseThrow();
+        boolean third = limiter.tryAcquire(now).isPresent();
+        limiter.release(first, now + MILLIS, false);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(third)
+                    .as("a request over the limit should be rejected")
+                    .isFalse();
+
+            softly.assertThat(limiter.tryAcquire(now).isPresent())
+                    .as("a released permit should admit another request")
+                    .isTrue();
+
+            softly.assertThat(limiter.rejected())
+                    .isEqualTo(1);
+        });
+    }
+
+    @Test
+    void shouldGrowWhileSaturatedAtSteadyLatency() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 2, 200, LEASE_TIMEOUT);
+        saturate(limiter, 10, 20);
+
+        assertSoftly(softly -> softly.assertThat(limiter.limit())
+                .as("a saturated limit should grow while latency holds")
+                .isGreaterThan(100));
+    }
+
+    @Test
+    void shouldNotGrowUnderLightLoad() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 2, 200, LEASE_TIMEOUT);
+        for (int i = 0; i < 1000; i++) {
+            AdaptiveLimiter.Permit permit = limiter.tryAcquire(now).orElseThrow();
+            now += MILLIS;
+            limiter.release(permit, now, false);
+        }
+
+        assertSoftly(softly -> softly.assertThat(limiter.limit())
+                .as("one request at a time says nothing about capacity")
+                .isEqualTo(20));
+    }
+
+    @Test
+    void shouldShrinkWhenLatencyRisesAndRecoverAfterwards() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 2, 200, LEASE_TIMEOUT);
+        saturate(limiter, 10, 50);
+        int healthy = limiter.limit();
+        saturate(limiter, 40, 1);
+        int throttled = limiter.limit();
+        saturate(limiter, 10, 30);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(throttled)
+                    .as("four times the latency should cut the limit well below %d", healthy)
+                    .isLessThan(healthy / 4);
+
+            softly.assertThat(limiter.limit())
+                    .as("the limit should recover with the latency")
+                    .isGreaterThan(healthy / 2);
+        });
+    }
+
+    @Test
+    void shouldBackOffOnFailuresDownToTheMinimum() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 2, 200, LEASE_TIMEOUT);
+        AdaptiveLimiter.Permit permit = limiter.tryAcquire(now).orElseThrow();
+        limiter.release(permit, now, true);
+        int afterOne = limiter.limit();
+        for (int i = 0; i < 100; i++) {
+            limiter.release(limiter.tryAcquire(now).orElseThrow(), now, true);
+        }
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(afterOne)
+                    .as("a failure should cut the limit by a tenth")
+                    .isEqualTo(18);
+
+            softly.assertThat(limiter.limit())
+                    .isEqualTo(2);
+        });
+    }
+
+    @Test
+    void shouldReclaimPermitsThatAreNeverReleased() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 10, TimeUnit.SECONDS.toNanos(1));
+        List<AdaptiveLimiter.Permit> lost = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            lost.add(limiter.tryAcquire(now).orElseThrow());
+        }
+        boolean beforeTimeout = limiter.tryAcquire(now + 999 * MILLIS).isPresent();
+        Optional<AdaptiveLimiter.Permit> afterTimeout = limiter.tryAcquire(now + 1000 * MILLIS);
+        int reclaimed = limiter.limit();
+        lost.forEach(permit -> limiter.release(permit, now + 2000 * MILLIS, false));
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(beforeTimeout)
+                    .isFalse();
+
+            softly.assertThat(afterTimeout)
+                    .as("permits held past the lease timeout should be reclaimed")
+                    .isPresent();
+
+            softly.assertThat(reclaimed)
+                    .as("reclaimed permits count as failures")
+                    .isLessThan(4);
+
+            softly.assertThat(limiter.inFlight())
+                    .as("releasing a reclaimed permit should change nothing")
+                    .isEqualTo(1);
+        });
+    }
+
+    /**
+     * Fills the limit, then releases every permit after the given latency.
+     */
+    private void saturate(AdaptiveLimiter limiter, long latencyMillis, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+            Optional<AdaptiveLimiter.Permit> permit;
+            while ((permit = limiter.tryAcquire(now)).isPresent()) {
+                permits.add(permit.get());
+            }
+            now += latencyMillis * MILLIS;
+            permits.forEach(held -> limiter.release(held, now, false));
+        }
+    }
+}
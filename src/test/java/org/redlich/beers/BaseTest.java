@@ -28,6 +28,8 @@ public abstract class BaseTest {
 
     static {
          System.setProperty(MongoDBDocumentConfigurations.HOST.get(), Database.INSTANCE.getConnectionString());
+         // off by default; BrewerNameIndexTest compares it with findByNameLike
+         System.setProperty("beers.brewer-name-index.enabled", "true");
     }
 
 }
@@ -0,0 +1,124 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+import static org.assertj.core.data.Offset.offset;
+
+class BeerColumnsTest {
+
+    private static final int BEERS = 5000;
+
+    private BeerColumns columns;
+
+    @BeforeEach
+    void fillColumns() {
+        columns = new BeerColumns();
+        for (int id = 1; id <= BEERS; id++) {
+            columns.put(id, id % 10, BeerType.values()[id % BeerType.values().length], id % 100 / 10.0);
+        }
+    }
+
+    @Test
+    void shouldFilterAndAggregate() {
+        BeerFilter filter = new BeerFilter(Set.of(BeerType.IPA, BeerType.STOUT), 2.0, 6.0, List.of(3, 7));
+        long expected = countMatching(filter);
+        assertSoftly(softly -> {
+
+            BeerColumns.Matches sequential = columns.scan(filter, 10, Integer.MAX_VALUE);
+            softly.assertThat(sequential.count())
+                    .as("the scan should count every beer matching all criteria")
+                    .isEqualTo(expected);
+            softly.assertThat(sequential.ids())
+                    .as("the scan should return up to the limit of matching ids")
+                    .hasSize((int) Math.min(10, expected));
+            softly.assertThat(sequential.minAbv()).isGreaterThanOrEqualTo(2.0);
+            softly.assertThat(sequential.maxAbv()).isLessThanOrEqualTo(6.0);
+
+            BeerColumns.Matches parallel = columns.scan(filter, 10, 1);
+            softly.assertThat(parallel.count())
+                    .as("a parallel scan should count the same beers")
+                    .isEqualTo(expected);
+            softly.assertThat(parallel.ids())
+                    .as("a parallel scan should return the same ids in the same order")
+                    .containsExactly(sequential.ids());
+            softly.assertThat(parallel.abvSum()).isCloseTo(sequential.abvSum(), offset(1e-6));
+
+            softly.assertThat(columns.scan(new BeerFilter(null, null, null, List.of()), 10, 1).count())
+                    .as("an empty brewer list should match nothing")
+                    .isZero();
+
+            softly.assertThat(columns.scan(new BeerFilter(null, null, null, null), 0, 1).count())
+                    .as("an empty filter should match every beer")
+                    .isEqualTo(BEERS);
+        });
+    }
+
+    @Test
+    void shouldApplyWrites() {
+        BeerFilter everything = new BeerFilter(null, null, null, null);
+        columns.remove(1);
+        columns.removeBrewer(2);
+        columns.put(BEERS + 1, 99, BeerType.GOSE, 4.2);
+        columns.put(3, 99, BeerType.GOSE, 4.2);
+        assertSoftly(softly -> {
+
+            softly.assertThat(columns.size())
+                    .as("removed beers and brewers should no longer be counted")
+                    .isEqualTo(BEERS - 1 - BEERS / 10 + 1);
+
+            softly.assertThat(columns.scan(everything, 0, Integer.MAX_VALUE).count())
+                    .isEqualTo(columns.size());
+
+            softly.assertThat(columns.scan(new BeerFilter(Set.of(BeerType.GOSE), null, null, List.of(99)), 10,
+                            Integer.MAX_VALUE).ids())
+                    .as("a put should insert a new beer and overwrite an existing one")
+                    .containsExactlyInAnyOrder(3, BEERS + 1);
+        });
+
+        columns.put(1, 99, null, 4.2);
+        assertSoftly(softly -> softly.assertThat(columns.scan(new BeerFilter(null, null, null, List.of(99)), 10,
+                        Integer.MAX_VALUE).ids())
+                .as("a removed beer put again should be searchable")
+                .contains(1));
+    }
+
+    @Test
+    void shouldCompactAfterManyRemovals() {
+        long before = columns.estimatedBytes();
+        for (int id = 1; id <= BEERS - 10; id++) {
+            columns.remove(id);
+        }
+        assertSoftly(softly -> {
+
+            softly.assertThat(columns.size())
+                    .isEqualTo(10);
+
+            softly.assertThat(columns.scan(new BeerFilter(null, null, null, null), 100, 1).ids())
+                    .as("compaction should keep the live beers")
+                    .containsExactlyInAnyOrder(IntStream.rangeClosed(BEERS - 9, BEERS).toArray());
+
+            softly.assertThat(columns.estimatedBytes())
+                    .as("compaction should not grow the columns")
+                    .isLessThanOrEqualTo(before);
+        });
+    }
+
+    private long countMatching(BeerFilter filter) {
+        long count = 0;
+        for (int id = 1; id <= BEERS; id++) {
+            BeerType type = BeerType.values()[id % BeerType.values().length];
+            double abv = id % 100 / 10.0;
+            if (filter.types().contains(type) && abv >= filter.minAbv() && abv <= filter.maxAbv()
+                    && filter.brewerIds().contains(id % 10)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
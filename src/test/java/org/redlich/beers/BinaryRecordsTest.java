@@ -0,0 +1,56 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class BinaryRecordsTest {
+
+    @Test
+    void shouldRoundTripRecords() throws IOException {
+        List<Object> records = List.of(
+                new BeerResponse(1, "Lunch", BeerType.IPA, 7, 7.0),
+                new BrewerResponse(7, "Maine Beer Company", "Freeport", null),
+                new BeerResponse(2, "Zoë", null, 7, 4.5));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Object record : records) {
+            BinaryRecords.write(out, record, buffer);
+        }
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        List<Object> read = new ArrayList<>();
+        for (Object record = BinaryRecords.read(in); record != null; record = BinaryRecords.read(in)) {
+            read.add(record);
+        }
+
+        assertSoftly(softly -> softly.assertThat(read)
+                .as("every record should decode to an equal value, nulls and non-ASCII names included")
+                .containsExactlyElementsOf(records));
+    }
+
+    @Test
+    void shouldNegotiateContentEncoding() {
+        assertSoftly(softly -> {
+
+            softly.assertThat(CompressionInterceptor.encodingOf("deflate, gzip"))
+                    .as("gzip should be preferred when both are accepted")
+                    .isEqualTo("gzip");
+
+            softly.assertThat(CompressionInterceptor.encodingOf("gzip;q=0, deflate"))
+                    .as("a coding with q=0 should be refused")
+                    .isEqualTo("deflate");
+
+            softly.assertThat(CompressionInterceptor.encodingOf("br, identity"))
+                    .as("no supported coding should leave the response uncompressed")
+                    .isNull();
+        });
+    }
+}
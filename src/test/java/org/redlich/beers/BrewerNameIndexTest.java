@@ -0,0 +1,97 @@
+package org.redlich.beers;
+
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+/**
+ * The index must answer a pattern with the brewers
+ * <code>findByNameLike</code> finds, since both answer the same LIKE
+ * patterns depending on the path.
+ */
+class BrewerNameIndexTest extends BaseTest {
+
+    private static final List<String> NAMES = List.of(
+            "Maine Beer Company",
+            "maine beer company",
+            "Allagash Brewing Company",
+            "Brewery Ommegang",
+            "Ale",
+            "A.B. Brewing",
+            "AxB Brewing",
+            "Brew (Pub)",
+            "A+ Brewing",
+            "Cash $ Brew",
+            "Star*Brew",
+            "Pipe|Brew",
+            "Back\\slash Brewing",
+            "100% Brewing",
+            "Under_score Ales");
+
+    private static final List<String> PATTERNS = List.of(
+            "%",
+            "%Brew%",
+            "%brew%",
+            "Maine%",
+            "maine%",
+            "%Company",
+            "_aine%",
+            "A_e",
+            "Ale%",
+            "%Ale",
+            "A.B.%",
+            "%(Pub)",
+            "A+%",
+            "%$%",
+            "Star*%",
+            "%|%",
+            "Back\\slash%",
+            "100%",
+            "Under_score%",
+            "[A-Z]%",
+            "^Ale",
+            "Ale$",
+            "Brewery Ommegang");
+
+    @Inject
+    BrewerService brewerService;
+
+    @Inject
+    BrewerRepository brewerRepository;
+
+    @Inject
+    BrewerNameIndex brewerNameIndex;
+
+    @BeforeEach
+    void addBrewers() {
+        brewerService.removeAll();
+        for (int i = 0; i < NAMES.size(); i++) {
+            brewerService.add(Brewer.builder().id(i + 1).name(NAMES.get(i)).city("Portland").state("ME").build());
+        }
+    }
+
+    @AfterEach
+    void removeBrewers() {
+        brewerService.removeAll();
+    }
+
+    @Test
+    void shouldMatchLikeTheRepository() {
+        assertSoftly(softly -> PATTERNS.forEach(pattern -> {
+            List<Integer> expected;
+            try (Stream<Brewer> brewers = brewerRepository.findByNameLike(pattern)) {
+                expected = brewers.map(Brewer::getId).toList();
+            }
+
+            softly.assertThat(brewerNameIndex.brewerIdsOf(pattern).orElseThrow())
+                    .as("brewers named like %s", pattern)
+                    .containsExactlyInAnyOrderElementsOf(expected);
+        }));
+    }
+}
@@ -8,12 +8,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
+import static org.redlich.beers.DataGenerator.createBeers;
 import static org.redlich.beers.DataGenerator.createBrewer;
 import static org.redlich.beers.DataGenerator.createBrewerWithoutName;
 import static org.redlich.beers.DataGenerator.createBrewers;
@@ -29,6 +31,9 @@ class BrewerServiceTest extends BaseTest {
     @Inject
     BrewerRepository brewerRepository;
 
+    @Inject
+    BeerService beerService;
+
     @BeforeEach
     @AfterEach
     void cleanDatabase() {
@@ -156,4 +161,58 @@ class BrewerServiceTest extends BaseTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldListBrewersByNameLikeAfterCursor() {
+
+        List<Brewer> brewersAAAA = validPersistedBrewers(5, i -> "AAAAAA");
+        validPersistedBrewers(3, i -> "BBBBBB");
+        brewersAAAA.sort(Comparator.comparing(Brewer::getId));
+
+        assertSoftly(softly -> {
+
+            var page1 = brewerService.listBrewersByNameLike("AAAAAA", null, 2);
+
+            softly.assertThat(page1)
+                    .as("the returned page 1 should contain the first 2 brewers")
+                    .containsExactlyElementsOf(brewersAAAA.subList(0, 2));
+
+            var page2 = brewerService.listBrewersByNameLike("AAAAAA",
+                    new KeysetCursor("AAAAAA", page1.get(1).getId()), 2);
+
+            softly.assertThat(page2)
+                    .as("brewers sharing a name should be paged by id")
+                    .containsExactlyElementsOf(brewersAAAA.subList(2, 4));
+
+            var page3 = brewerService.listBrewersByNameLike("AAAAAA",
+                    new KeysetCursor("AAAAAA", page2.get(1).getId()), 2);
+
+            softly.assertThat(page3)
+                    .as("the returned page 3 should contain the last brewer")
+                    .containsExactlyElementsOf(brewersAAAA.subList(4, 5));
+        });
+    }
+
+    @Test
+    void shouldEvictCachedBeersOfRemovedBrewer() {
+        var brewers = validPersistedBrewers(2);
+        var beers = createBeers(4, List.of(brewers.get(0)))
+                .stream().map(beerRepository::save).toList();
+
+        beers.forEach(beer -> beerService.findById(beer.getId()));
+        brewerService.findById(brewers.get(0).getId());
+
+        brewerService.remove(brewers.get(0).getId());
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(brewerService.findById(brewers.get(0).getId()))
+                    .as("the removed brewer should no longer be found")
+                    .isEmpty();
+
+            beers.forEach(beer -> softly.assertThat(beerService.findById(beer.getId()))
+                    .as("the beers of the removed brewer should no longer be found")
+                    .isEmpty());
+        });
+    }
+
+}
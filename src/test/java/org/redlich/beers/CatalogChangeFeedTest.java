@@ -0,0 +1,259 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class CatalogChangeFeedTest {
+
+    private static final long TIMEOUT_MILLIS = 5_000;
+
+    private CatalogChangeFeed feed;
+
+    private CatalogChangeFeed startFeed(String overflow) {
+        feed = new CatalogChangeFeed();
+        feed.catalogMetrics = new CatalogMetrics();
+        feed.replaySize = 4;
+        feed.bufferSize = 2;
+        feed.overflow = overflow;
+        feed.senders = 2;
+        feed.heartbeatSeconds = 0;
+        feed.start();
+        return feed;
+    }
+
+    @AfterEach
+    void stopFeed() {
+        feed.stop();
+    }
+
+    @Test
+    void shouldFanOutAndReplayMissedChanges() {
+        startFeed("disconnect");
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+        feed.subscribe(null, first);
+        feed.subscribe(null, second);
+
+        feed.beerSaved(beer(1));
+        feed.beerDeleted(2);
+        feed.beersDeleted();
+        eventually(() -> first.received.size() == 3 && second.received.size() == 3);
+
+        RecordingSink resumed = new RecordingSink();
+        feed.subscribe(first.received.get(0).id(), resumed);
+        feed.brewerDeleted(7);
+        eventually(() -> resumed.received.size() == 3);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(second.events())
+                    .as("every subscriber should get every change in order")
+                    .containsExactly("beer-saved", "beer-deleted", "beers-deleted");
+
+            softly.assertThat(first.received.get(0).data())
+                    .isEqualTo(BeerResponse.of(beer(1)));
+
+            softly.assertThat(resumed.events())
+                    .as("a resumed subscriber should get the missed changes, then live ones")
+                    .containsExactly("beer-deleted", "beers-deleted", "brewer-deleted");
+        });
+    }
+
+    @Test
+    void shouldPublishChangesOfOtherNodes() {
+        startFeed("disconnect");
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(null, sink);
+
+        feed.onChange(CatalogChange.beersSaved(List.of(beer(1), beer(2)), Map.of()));
+        feed.onChange(CatalogChange.remoteBeerSaved(beer(3)));
+        feed.onChange(CatalogChange.remoteBrewerRemoved(7));
+        feed.onChange(CatalogChange.remoteBeersStale());
+        eventually(() -> sink.received.size() == 5);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(sink.events())
+                    .as("changes of this node and of others should be published alike")
+                    .containsExactly("beer-saved", "beer-saved", "beer-saved", "brewer-deleted", CatalogChangeFeed.RESET);
+
+            softly.assertThat(sink.received.get(2).data())
+                    .isEqualTo(BeerResponse.of(beer(3)));
+
+            softly.assertThat(sink.received.get(3).data())
+                    .isEqualTo(Map.of("id", 7));
+        });
+    }
+
+    @Test
+    void shouldResetUnknownOrExpiredIds() {
+        startFeed("disconnect");
+        for (int id = 1; id <= 6; id++) {
+            feed.beerSaved(beer(id));
+        }
+        RecordingSink stranger = new RecordingSink();
+        RecordingSink expired = new RecordingSink();
+        RecordingSink all = new RecordingSink();
+        feed.subscribe("0123abcd-3", stranger);
+        feed.subscribe(null, all);
+        feed.beerDeleted(6);
+        eventually(() -> all.received.size() == 1);
+        String expiredId = all.received.get(0).id().replaceFirst("-\\d+$", "-1");
+        feed.subscribe(expiredId, expired);
+        eventually(() -> stranger.received.size() == 2 && !expired.received.isEmpty());
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(stranger.events())
+                    .as("an id of another feed should get a reset, then live changes")
+                    .containsExactly(CatalogChangeFeed.RESET, "beer-deleted");
+
+            softly.assertThat(expired.events())
+                    .as("an id no longer in the replay buffer should get a reset")
+                    .containsExactly(CatalogChangeFeed.RESET);
+
+            softly.assertThat(expired.received.get(0).id())
+                    .as("the reset should carry the current id to continue from")
+                    .isEqualTo(all.received.get(0).id());
+        });
+    }
+
+    @Test
+    void shouldDisconnectSlowSubscribers() {
+        startFeed("disconnect");
+        StalledSink stalled = new StalledSink();
+        RecordingSink fast = new RecordingSink();
+        ChangeSubscription slow = feed.subscribe(null, stalled);
+        feed.subscribe(null, fast);
+
+        // one change in flight and a buffer of two, the fourth overflows
+        for (int id = 1; id <= 4; id++) {
+            feed.beerSaved(beer(id));
+            eventually(() -> stalled.pending.size() == 1);
+        }
+        eventually(() -> fast.received.size() == 4);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(slow.isClosed())
+                    .as("a subscriber that falls behind should be disconnected")
+                    .isTrue();
+
+            softly.assertThat(stalled.closed)
+                    .isTrue();
+
+            softly.assertThat(fast.received)
+                    .as("a slow subscriber should not hold up the others")
+                    .hasSize(4);
+
+            softly.assertThat(feed.catalogMetrics.scrape())
+                    .contains("beers_changes_disconnected_total 1.0")
+                    .contains("beers_changes_subscribers 1.0");
+        });
+    }
+
+    @Test
+    void shouldDropOldestForSlowSubscribers() {
+        startFeed("drop-oldest");
+        StalledSink stalled = new StalledSink();
+        ChangeSubscription slow = feed.subscribe(null, stalled);
+        for (int id = 1; id <= 5; id++) {
+            feed.beerSaved(beer(id));
+            eventually(() -> stalled.pending.size() == 1);
+        }
+        stalled.release();
+        eventually(() -> stalled.sent.size() == 3);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(slow.isClosed())
+                    .isFalse();
+
+            softly.assertThat(stalled.sent.stream().map(change -> ((BeerResponse) change.data()).id()).toList())
+                    .as("the change in flight and the newest buffered ones should be kept")
+                    .containsExactly(1, 4, 5);
+
+            softly.assertThat(feed.catalogMetrics.scrape())
+                    .contains("beers_changes_dropped_total 2.0");
+        });
+    }
+
+    private static Beer beer(int id) {
+        return Beer.builder().id(id).name("Beer " + id).type(BeerType.IPA).brewerId(1).abv(6.5).build();
+    }
+
+    private static void eventually(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static final class RecordingSink implements ChangeSink {
+
+        final List<FeedEvent> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public CompletionStage<?> send(FeedEvent change) {
+            received.add(change);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        List<String> events() {
+            return received.stream().map(FeedEvent::event).toList();
+        }
+    }
+
+    /**
+     * Completes no send until released, like a client that stopped reading.
+     */
+    private static final class StalledSink implements ChangeSink {
+
+        final List<CompletableFuture<Void>> pending = new CopyOnWriteArrayList<>();
+
+        final List<FeedEvent> sent = new CopyOnWriteArrayList<>();
+
+        volatile boolean released;
+
+        volatile boolean closed;
+
+        @Override
+        public CompletionStage<?> send(FeedEvent change) {
+            sent.add(change);
+            if (released) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        void release() {
+            released = true;
+            pending.forEach(future -> future.complete(null));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+import static org.redlich.beers.DataGenerator.createBeer;
+import static org.redlich.beers.DataGenerator.createBrewer;
+
+/**
+ * Writes go straight to the collections, the way another node's writes
+ * arrive, and must reach the caches of this node through the change stream.
+ * Writes through the services come back as well, and must not be applied
+ * twice.
+ */
+class CatalogChangeListenerTest extends BaseTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @Inject
+    CatalogChangeListener listener;
+
+    @Inject
+    BeerService beerService;
+
+    @Inject
+    BrewerService brewerService;
+
+    @Inject
+    BrewerNameIndex brewerNameIndex;
+
+    @Inject
+    CatalogVersions catalogVersions;
+
+    @Inject
+    CatalogMetrics catalogMetrics;
+
+    @Inject
+    MongoDatabase database;
+
+    @BeforeEach
+    void startListener() {
+        cleanDatabase();
+        listener.start();
+        // without a saved token the stream starts when it is opened
+        eventually(listener::isFollowing);
+    }
+
+    @AfterEach
+    void stopListener() {
+        listener.stop();
+        cleanDatabase();
+    }
+
+    private void cleanDatabase() {
+        database.getCollection(BeerDocuments.COLLECTION).deleteMany(Filters.empty());
+        database.getCollection(BrewerDocuments.COLLECTION).deleteMany(Filters.empty());
+    }
+
+    @Test
+    void shouldApplyWritesOfOtherNodes() {
+        Brewer brewer = brewerService.add(createBrewer());
+        Beer beer = beerService.add(createBeer(List.of(brewer)));
+        double abv = beer.getAbv() + 1.0;
+
+        // load the caches, then change the catalog behind their back
+        Optional<Beer> cached = beerService.findById(beer.getId());
+        long versionBefore = catalogVersions.beer(beer.getId()).value();
+        database.getCollection(BeerDocuments.COLLECTION)
+                .updateOne(Filters.eq(BeerDocuments.ID, beer.getId()), Updates.set(BeerDocuments.ABV, abv));
+        brewerNameIndex.brewerIdsOf("%");
+        database.getCollection(BrewerDocuments.COLLECTION).insertOne(BrewerDocuments.toDocument(
+                Brewer.builder().id(brewer.getId() + 1).name("Remote Brewing").city("Reno").state("NV").build()));
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(cached.map(Beer::getAbv))
+                    .hasValue(beer.getAbv());
+
+            softly.assertThat(eventually(() -> beerService.findById(beer.getId())
+                            .filter(found -> found.getAbv() == abv).isPresent()))
+                    .as("a cached beer should be dropped once another node updates it")
+                    .isTrue();
+
+            softly.assertThat(catalogVersions.beer(beer.getId()).value())
+                    .as("the version of the beer should change")
+                    .isNotEqualTo(versionBefore);
+
+            softly.assertThat(eventually(() -> brewerNameIndex.brewerIdsOf("%Remote%")
+                            .orElse(List.of()).contains(brewer.getId() + 1)))
+                    .as("a brewer added by another node should be found by name")
+                    .isTrue();
+
+            softly.assertThat(catalogMetrics.scrape())
+                    .contains("beers_change_stream_lag_seconds ")
+                    .contains("beers_change_stream_events_total ");
+        });
+    }
+
+    @Test
+    void shouldSkipWritesOfThisNode() {
+        Brewer brewer = brewerService.add(createBrewer());
+        Beer beer = beerService.add(createBeer(List.of(brewer)));
+        long versionBefore = catalogVersions.beer(beer.getId()).value();
+        brewerNameIndex.brewerIdsOf("%");
+        // once this change of another node is applied, the writes above have come back
+        database.getCollection(BrewerDocuments.COLLECTION).insertOne(BrewerDocuments.toDocument(
+                Brewer.builder().id(brewer.getId() + 1).name("Remote Brewing").city("Reno").state("NV").build()));
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(eventually(() -> brewerNameIndex.brewerIdsOf("%Remote%")
+                            .orElse(List.of()).contains(brewer.getId() + 1)))
+                    .isTrue();
+
+            softly.assertThat(catalogVersions.beer(beer.getId()).value())
+                    .as("a write of this node should not be applied again when it comes back")
+                    .isEqualTo(versionBefore);
+
+            softly.assertThat(catalogMetrics.scrape())
+                    .contains("beers_change_stream_skipped_total ");
+        });
+    }
+
+    @Test
+    void shouldResumeFromSavedTokenAfterRestart() {
+        Brewer brewer = brewerService.add(createBrewer());
+        Beer beer = beerService.add(createBeer(List.of(brewer)));
+        rename(beer, "Seen");
+        // once the first rename is applied, the saved position is past it
+        boolean seen = eventually(() -> named(beer, "Seen"));
+        listener.stop();
+
+        rename(beer, "Missed");
+        listener.start();
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(seen)
+                    .isTrue();
+
+            softly.assertThat(eventually(() -> named(beer, "Missed")))
+                    .as("a write made while the listener was stopped should be replayed")
+                    .isTrue();
+        });
+    }
+
+    private void rename(Beer beer, String name) {
+        database.getCollection(BeerDocuments.COLLECTION)
+                .updateOne(Filters.eq(BeerDocuments.ID, beer.getId()), Updates.set(BeerDocuments.NAME, name));
+    }
+
+    private boolean named(Beer beer, String name) {
+        return beerService.findById(beer.getId()).map(Beer::getName).filter(name::equals).isPresent();
+    }
+
+    private static boolean eventually(Supplier<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.get()) {
+                return true;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return condition.get();
+    }
+}
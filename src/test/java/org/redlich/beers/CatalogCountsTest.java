@@ -0,0 +1,115 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class CatalogCountsTest {
+
+    private CatalogCounts counts;
+
+    @BeforeEach
+    void fillCounts() {
+        counts = new CatalogCounts();
+        counts.add(1, BeerType.IPA, 6.0);
+        counts.add(1, BeerType.IPA, 7.0);
+        counts.add(1, BeerType.STOUT, 8.0);
+        counts.add(2, BeerType.LAGER, 4.0);
+    }
+
+    @Test
+    void shouldCountBeersByTypeAndBrewer() {
+        CatalogStatsResponse stats = counts.toResponse("now");
+        assertSoftly(softly -> {
+
+            softly.assertThat(stats.beers())
+                    .as("every added beer should be counted")
+                    .isEqualTo(4);
+
+            softly.assertThat(stats.beersByType())
+                    .as("beers should be counted by type")
+                    .containsEntry(BeerType.IPA, 2L)
+                    .containsEntry(BeerType.STOUT, 1L)
+                    .containsEntry(BeerType.LAGER, 1L)
+                    .hasSize(3);
+
+            softly.assertThat(stats.brewers())
+                    .as("brewers should be ordered by id")
+                    .extracting(BrewerStatsResponse::brewerId)
+                    .containsExactly(1, 2);
+
+            BrewerStatsResponse first = stats.brewers().get(0);
+            softly.assertThat(first.averageAbv())
+                    .as("the average abv should cover every beer of the brewer")
+                    .isEqualTo(7.0);
+            softly.assertThat(first.minAbv()).isEqualTo(6.0);
+            softly.assertThat(first.maxAbv()).isEqualTo(8.0);
+        });
+    }
+
+    @Test
+    void shouldMarkExtremaStaleWhenRemovingThem() {
+        counts.remove(1, BeerType.STOUT, 8.0);
+        CatalogStatsResponse stats = counts.toResponse("now");
+        assertSoftly(softly -> {
+
+            softly.assertThat(stats.beersByType())
+                    .as("the removed beer's type should no longer be counted")
+                    .doesNotContainKey(BeerType.STOUT);
+
+            softly.assertThat(stats.brewers().get(0).averageAbv())
+                    .as("the average should be updated exactly")
+                    .isEqualTo(6.5);
+
+            softly.assertThat(stats.brewers().get(0).maxAbv())
+                    .as("a removed maximum cannot be recomputed from the counts")
+                    .isNull();
+
+            softly.assertThat(counts.staleBrewers())
+                    .containsExactly(1);
+        });
+
+        counts.extrema(1, 6.0, 7.0);
+        assertSoftly(softly -> {
+
+            softly.assertThat(counts.staleBrewers())
+                    .as("extrema read from the database should clear the stale mark")
+                    .isEmpty();
+
+            softly.assertThat(counts.toResponse("now").brewers().get(0).maxAbv())
+                    .isEqualTo(7.0);
+        });
+    }
+
+    @Test
+    void shouldRemoveBrewersAndClear() {
+        counts.removeBrewer(1);
+        assertSoftly(softly -> {
+
+            softly.assertThat(counts.toResponse("now").beers())
+                    .as("removing a brewer should remove its beers")
+                    .isEqualTo(1);
+
+            softly.assertThat(counts.toResponse("now").beersByType())
+                    .containsOnlyKeys(BeerType.LAGER);
+        });
+
+        counts.remove(2, BeerType.LAGER, 4.0);
+        assertSoftly(softly -> {
+
+            softly.assertThat(counts.toResponse("now").brewers())
+                    .as("a brewer without beers should not be reported")
+                    .isEmpty();
+
+            softly.assertThat(counts.staleBrewers())
+                    .isEmpty();
+        });
+
+        counts.add(3, BeerType.GOSE, 5.0);
+        counts.clear();
+        assertSoftly(softly -> softly.assertThat(counts.toResponse("now").beers())
+                .as("clearing should reset every count")
+                .isZero());
+    }
+}
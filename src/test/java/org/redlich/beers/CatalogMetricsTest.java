@@ -0,0 +1,63 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class CatalogMetricsTest {
+
+    private CatalogMetrics metrics;
+
+    private BeerRepository repository;
+
+    @BeforeEach
+    void instrumentStub() {
+        metrics = new CatalogMetrics();
+        Beer beer = Beer.builder().id(1).name("Lunch").type(BeerType.IPA).brewerId(1).abv(7.0).build();
+        BeerRepository stub = (BeerRepository) Proxy.newProxyInstance(BeerRepository.class.getClassLoader(),
+                new Class<?>[]{BeerRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.of(beer);
+                    case "findAll" -> Stream.of(beer, beer, beer);
+                    case "deleteAll" -> throw new IllegalStateException("not primary");
+                    default -> null;
+                });
+        repository = InstrumentedRepositories.instrument(BeerRepository.class, stub, metrics);
+    }
+
+    @Test
+    void shouldRecordCallsRowsAndErrors() {
+        repository.findById(1);
+        repository.findById(2);
+        try (Stream<Beer> beers = repository.findAll()) {
+            beers.forEach(beer -> {
+            });
+        }
+        assertThatThrownBy(repository::deleteAll).isInstanceOf(IllegalStateException.class);
+
+        String scrape = metrics.scrape();
+
+        assertSoftly(softly -> {
+            softly.assertThat(scrape)
+                    .contains("beers_repository_calls_total{repository=\"BeerRepository\",method=\"findById\"} 2")
+                    .contains("beers_repository_rows_total{repository=\"BeerRepository\",method=\"findById\"} 2");
+
+            softly.assertThat(scrape)
+                    .as("stream rows should be counted as they are consumed")
+                    .contains("beers_repository_rows_total{repository=\"BeerRepository\",method=\"findAll\"} 3");
+
+            softly.assertThat(scrape)
+                    .as("exceptions should pass through unwrapped and count as errors")
+                    .contains("beers_repository_errors_total{repository=\"BeerRepository\",method=\"deleteAll\"} 1");
+
+            softly.assertThat(scrape)
+                    .contains("beers_repository_duration_seconds_bucket{repository=\"BeerRepository\",method=\"findById\",le=\"+Inf\"} 2")
+                    .contains("beers_repository_duration_seconds_count{repository=\"BeerRepository\",method=\"findById\"} 2");
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class CatalogVersionsTest {
+
+    private static final BeerResponse BEER = new BeerResponse(1, "Lunch", BeerType.IPA, 1, 7.0);
+
+    @Test
+    void shouldTagTheSameContentAlikeOnEveryNode() {
+        CatalogVersions node = node();
+        CatalogVersions other = node();
+        // the other node has seen more changes, so its versions differ
+        other.beerChanged(2);
+        other.beersChanged();
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(node.beer(1).tagOf(BEER))
+                    .as("the tag of a beer should not depend on the node")
+                    .isEqualTo(other.beer(1).tagOf(BEER));
+
+            softly.assertThat(node.beers("brewer", "Maine%").tagOf(List.of(BEER)))
+                    .as("the tag of a list should not depend on the node")
+                    .isEqualTo(other.beers("brewer", "Maine%").tagOf(List.of(BEER)));
+
+            softly.assertThat(node.beer(1).tagOf(new BeerResponse(1, "Lunch", BeerType.IPA, 1, 7.5)))
+                    .as("other content should get another tag")
+                    .isNotEqualTo(node.beer(1).tagOf(BEER));
+        });
+    }
+
+    @Test
+    void shouldKnowTheTagUntilTheVersionChanges() {
+        CatalogVersions node = node();
+        var tag = node.beer(1).tagOf(BEER);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(node.beer(1).knownTag())
+                    .hasValue(tag);
+
+            softly.assertThat(node.beer(2).knownTag())
+                    .isEmpty();
+
+            node.beerChanged(1);
+            softly.assertThat(node.beer(1).knownTag())
+                    .as("a changed beer has to be read again")
+                    .isEmpty();
+        });
+    }
+
+    @Test
+    void shouldChangeTheBeersWhenAnotherNodeRemovesABrewer() {
+        CatalogVersions node = node();
+        long beer = node.beer(1).value();
+        long beers = node.beers().value();
+
+        node.onChange(CatalogChange.remoteBrewerRemoved(1));
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(node.beer(1).value())
+                    .as("the beers of the brewer went with it")
+                    .isNotEqualTo(beer);
+
+            softly.assertThat(node.beers().value())
+                    .isNotEqualTo(beers);
+        });
+    }
+
+    private static CatalogVersions node() {
+        CatalogVersions versions = new CatalogVersions();
+        versions.maximumSize = 100;
+        versions.start();
+        return versions;
+    }
+}
@@ -0,0 +1,199 @@
+package org.redlich.beers;
+
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorPublisherTest {
+
+    private DatabaseExecutor executor;
+
+    @BeforeEach
+    void startExecutor() {
+        executor = new DatabaseExecutor();
+        executor.enabled = true;
+        executor.maxConcurrent = 2;
+        executor.acquireTimeoutMillis = 5_000;
+        executor.queueSize = 1000;
+        executor.start();
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.stop();
+    }
+
+    @Test
+    void shouldEmitNoMoreThanRequested() throws Exception {
+        FakeCursor cursor = new FakeCursor(10, null);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new CursorPublisher<>(cursor::open, document -> document.getInteger("n"), executor, 4)
+                .subscribe(subscriber);
+
+        subscriber.request(3);
+        subscriber.awaitItems(3);
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        assertThat(subscriber.items)
+                .as("nothing past the demand should be emitted")
+                .containsExactly(0, 1, 2);
+        assertThat(subscriber.done).isNotDone();
+
+        subscriber.request(100);
+
+        assertThat(subscriber.done.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.items).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(cursor.closed).isTrue();
+    }
+
+    @Test
+    void shouldReadOffTheSubscriberThreadAndReleaseTheSlot() throws Exception {
+        FakeCursor cursor = new FakeCursor(1_000, null);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new CursorPublisher<>(cursor::open, document -> document.getInteger("n"), executor, 16)
+                .subscribe(subscriber);
+
+        subscriber.request(Long.MAX_VALUE);
+
+        assertThat(subscriber.done.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.items).hasSize(1_000);
+        assertThat(cursor.readBy)
+                .as("the cursor should be read by the database executor")
+                .doesNotContain(Thread.currentThread().getName());
+        assertThat(executor.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCloseTheCursorWhenCancelled() throws Exception {
+        FakeCursor cursor = new FakeCursor(1_000, null);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new CursorPublisher<>(cursor::open, document -> document.getInteger("n"), executor, 16)
+                .subscribe(subscriber);
+
+        subscriber.request(5);
+        subscriber.awaitItems(5);
+        subscriber.subscription.cancel();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!cursor.closed && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(cursor.closed).isTrue();
+        assertThat(subscriber.done).isNotDone();
+    }
+
+    @Test
+    void shouldSignalCursorErrors() {
+        FakeCursor cursor = new FakeCursor(5, new IllegalStateException("cursor lost"));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new CursorPublisher<>(cursor::open, document -> document.getInteger("n"), executor, 16)
+                .subscribe(subscriber);
+
+        subscriber.request(Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> subscriber.done.get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("cursor lost");
+        assertThat(subscriber.items).containsExactly(0, 1, 2, 3, 4);
+        assertThat(cursor.closed).isTrue();
+    }
+
+    /**
+     * A cursor over <code>{n: 0..count-1}</code> that fails after the last
+     * document when given a failure.
+     */
+    private static final class FakeCursor {
+
+        private final int count;
+
+        private final RuntimeException failure;
+
+        private final List<String> readBy = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private volatile boolean closed;
+
+        FakeCursor(int count, RuntimeException failure) {
+            this.count = count;
+            this.failure = failure;
+        }
+
+        @SuppressWarnings("unchecked")
+        MongoCursor<Document> open() {
+            return (MongoCursor<Document>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{MongoCursor.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "hasNext" -> {
+                            readBy.add(Thread.currentThread().getName());
+                            if (next.get() == count && failure != null) {
+                                throw failure;
+                            }
+                            yield next.get() < count;
+                        }
+                        case "next" -> new Document("n", next.getAndIncrement());
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<Integer> {
+
+        private final List<Integer> items = new CopyOnWriteArrayList<>();
+
+        private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            assertThat(subscribed.compareAndSet(false, true)).isTrue();
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(true);
+        }
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        void awaitItems(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (items.size() < count && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        }
+    }
+}
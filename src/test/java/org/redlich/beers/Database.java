@@ -2,22 +2,44 @@ package org.redlich.beers;
 
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
 import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.config.Storage;
 import de.flapdoodle.embed.mongo.distribution.Version;
 import de.flapdoodle.embed.mongo.transitions.Mongod;
 import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
 import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.bson.Document;
 
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The embedded mongod of the tests, started as a single-node replica set so
+ * that change streams are available. Test commands are enabled, so that the
+ * <code>failCommand</code> fail point can slow it down.
+ */
 public enum Database {
 
     INSTANCE;
 
+    private static final String REPLICA_SET = "rs0";
+
+    private static final long PRIMARY_TIMEOUT_MILLIS = 30_000;
+
     private final TransitionWalker.ReachedState<RunningMongodProcess> mongoRunningProcess;
 
     Database() {
         this.mongoRunningProcess = Mongod
                 .instance()
+                .withMongodArguments(Start.to(MongodArguments.class)
+                        .initializedWith(MongodArguments.defaults()
+                                .withUseNoJournal(false)
+                                .withReplication(Storage.of(REPLICA_SET, 0))
+                                .withParams(Map.of("enableTestCommands", "1"))))
                 .start(Version.Main.V7_0);
+        initiateReplicaSet();
     }
 
     public String getConnectionString() {
@@ -29,4 +51,24 @@ public enum Database {
                 serverAddress.getHost(),
                 serverAddress.getPort());
     }
+
+    private void initiateReplicaSet() {
+        String host = getConnectionString();
+        try (MongoClient client = MongoClients.create("mongodb://" + host + "/?directConnection=true")) {
+            // the member is named after the address clients connect to, so discovery finds it again
+            client.getDatabase("admin").runCommand(new Document("replSetInitiate", new Document("_id", REPLICA_SET)
+                    .append("members", List.of(new Document("_id", 0).append("host", host)))));
+            long deadline = System.currentTimeMillis() + PRIMARY_TIMEOUT_MILLIS;
+            while (!Boolean.TRUE.equals(client.getDatabase("admin").runCommand(new Document("hello", 1))
+                    .getBoolean("isWritablePrimary"))) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Replica set " + REPLICA_SET + " elected no primary");
+                }
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a primary", e);
+        }
+    }
 }
@@ -0,0 +1,142 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabaseExecutorTest {
+
+    private DatabaseExecutor executor;
+
+    @BeforeEach
+    void startExecutor() {
+        executor = new DatabaseExecutor();
+        executor.enabled = true;
+        executor.maxConcurrent = 4;
+        executor.acquireTimeoutMillis = 100;
+        executor.queueSize = 1000;
+        executor.streamLeaseMillis = 60_000;
+        executor.start();
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.stop();
+    }
+
+    @Test
+    void shouldCapConcurrentOperations() throws Exception {
+        executor.acquireTimeoutMillis = 10_000;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int value = i;
+            results.add(executor.submit(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(10);
+                running.decrementAndGet();
+                return value;
+            }).toCompletableFuture());
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        assertThat(peak.get())
+                .as("no more than max-concurrent operations should run at once")
+                .isLessThanOrEqualTo(4);
+        assertThat(executor.availablePermits()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldHoldSlotUntilStreamIsClosed() throws Exception {
+        Stream<Integer> stream = executor.submitStream(() -> Stream.of(1, 2, 3))
+                .toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(executor.availablePermits()).isEqualTo(3);
+        stream.close();
+        assertThat(executor.availablePermits()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldTakeBackSlotsOfStreamsThatAreNeverClosed() throws Exception {
+        executor.streamLeaseMillis = 100;
+        AtomicInteger closedCursors = new AtomicInteger();
+        List<Stream<Integer>> abandoned = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            abandoned.add(executor.submitStream(() -> Stream.of(1, 2, 3).onClose(closedCursors::incrementAndGet))
+                    .toCompletableFuture().get(5, TimeUnit.SECONDS));
+        }
+        sleep(150);
+
+        Object late = executor.submit(() -> (Object) "late").toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(closedCursors.get())
+                .as("a slot should only be taken back with the cursor that holds it")
+                .isEqualTo(4);
+        abandoned.forEach(Stream::close);
+
+        assertThat(late).isEqualTo("late");
+        assertThat(executor.reclaimedLeases()).isEqualTo(4);
+        assertThat(executor.availablePermits())
+                .as("closing a stream whose slot was taken back should not release it again")
+                .isEqualTo(4);
+    }
+
+    @Test
+    void shouldRejectWhenNoSlotFreesUp() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> await(release));
+        }
+        while (executor.availablePermits() > 0) {
+            Thread.onSpinWait();
+        }
+
+        CompletableFuture<Object> rejected = executor.submit(() -> (Object) "late").toCompletableFuture();
+
+        assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DatabaseBusyException.class);
+        release.countDown();
+    }
+
+    @Test
+    void shouldPassExceptionsThroughUnwrapped() {
+        CompletableFuture<Object> failed = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        }).toCompletableFuture();
+
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+                .hasCauseExactlyInstanceOf(IllegalStateException.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Object await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,65 @@
+package org.redlich.beers;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class FieldsetTest {
+
+    private static final BeerResponse BEER = new BeerResponse(7, "Lunch", BeerType.IPA, 3, 7.0);
+
+    @Test
+    void shouldSelectRequestedFieldsInRecordOrder() {
+        Fieldset<BeerResponse> fields = Fieldset.parse("abv, name", BeerDocuments.RESPONSE_FIELDS,
+                BeerDocuments::fieldOf);
+        assertSoftly(softly -> {
+
+            softly.assertThat(fields.isAll())
+                    .isFalse();
+
+            softly.assertThat(fields.select(BEER))
+                    .as("the selected properties should follow the record order")
+                    .containsExactly(Map.entry("name", "Lunch"), Map.entry("abv", 7.0));
+
+            softly.assertThat(fields.projection().toBsonDocument())
+                    .as("the projection should fetch only the selected fields and leave out _id")
+                    .isEqualTo(Document.parse("{\"name\": 1, \"abv\": 1, \"_id\": 0}").toBsonDocument());
+        });
+    }
+
+    @Test
+    void shouldMapPropertiesToDocumentFields() {
+        Fieldset<BeerResponse> fields = Fieldset.parse("id,brewerId", BeerDocuments.RESPONSE_FIELDS,
+                BeerDocuments::fieldOf);
+        assertSoftly(softly -> softly.assertThat(fields.projection().toBsonDocument())
+                .as("id and brewerId should be projected as _id and brewer_id")
+                .isEqualTo(Document.parse("{\"_id\": 1, \"brewer_id\": 1}").toBsonDocument()));
+    }
+
+    @Test
+    void shouldSelectEverythingWithoutFields() {
+        assertSoftly(softly -> {
+
+            softly.assertThat(Fieldset.parse(null, BeerDocuments.RESPONSE_FIELDS, BeerDocuments::fieldOf).isAll())
+                    .as("no fields should select every property")
+                    .isTrue();
+
+            softly.assertThat(Fieldset.parse("state,city,name,id", BrewerDocuments.RESPONSE_FIELDS,
+                            BrewerDocuments::fieldOf).isAll())
+                    .as("listing every property should select the record itself")
+                    .isTrue();
+        });
+    }
+
+    @Test
+    void shouldRejectUnknownFields() {
+        assertThatThrownBy(() -> Fieldset.parse("name,color", BeerDocuments.RESPONSE_FIELDS, BeerDocuments::fieldOf))
+                .as("unknown properties should be rejected")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("color");
+    }
+}
@@ -0,0 +1,169 @@
+package org.redlich.beers;
+
+import com.mongodb.client.model.changestream.OperationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class LocalWritesTest {
+
+    private static final String BEERS = BeerDocuments.COLLECTION;
+
+    private LocalWrites localWrites;
+
+    @BeforeEach
+    void startTracking() {
+        localWrites = new LocalWrites();
+        localWrites.echoTimeoutMillis = 10_000;
+        localWrites.track(true);
+    }
+
+    @Test
+    void shouldRecognizeOwnWritesAndSkipWhatTheySuperseded() {
+        Beer first = beer(1, "First");
+        Beer second = beer(1, "Second");
+        Beer remote = beer(1, "Remote");
+        localWrites.saving(BEERS, 1, first);
+        localWrites.saving(BEERS, 1, second);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.INSERT, 1, first))
+                    .isEqualTo(LocalWrites.Origin.OWN);
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.REPLACE, 1, remote))
+                    .as("a change of another node between two writes of this node")
+                    .isEqualTo(LocalWrites.Origin.SUPERSEDED);
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.REPLACE, 1, beer(1, "Second")))
+                    .as("a write is recognized by its content")
+                    .isEqualTo(LocalWrites.Origin.OWN);
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.REPLACE, 1, remote))
+                    .as("nothing of this node is pending anymore")
+                    .isEqualTo(LocalWrites.Origin.REMOTE);
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.REPLACE, 1, second))
+                    .as("a write is taken only once")
+                    .isEqualTo(LocalWrites.Origin.REMOTE);
+
+            softly.assertThat(localWrites.drainStale(System.nanoTime())).isEmpty();
+        });
+    }
+
+    @Test
+    void shouldReadAgainWhatAFailedWriteSuperseded() {
+        Beer failed = beer(1, "Failed");
+        localWrites.saving(BEERS, 1, failed);
+
+        assertThat(localWrites.originOf(BEERS, OperationType.DELETE, 1, null))
+                .isEqualTo(LocalWrites.Origin.SUPERSEDED);
+
+        localWrites.saveFailed(BEERS, 1, failed);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(localWrites.drainStale(System.nanoTime()))
+                    .containsExactly(new LocalWrites.Key(BEERS, 1));
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.INSERT, 1, failed))
+                    .isEqualTo(LocalWrites.Origin.REMOTE);
+        });
+    }
+
+    @Test
+    void shouldReadAgainWhenADeleteOfAnotherNodeWasTakenForOurs() {
+        localWrites.deleting(BEERS, List.of(1, 2));
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.DELETE, 1, null))
+                    .isEqualTo(LocalWrites.Origin.OWN);
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.DELETE, 2, null))
+                    .isEqualTo(LocalWrites.Origin.OWN);
+        });
+
+        // ours found beer 2 gone already
+        localWrites.deleteMissed(BEERS, List.of(2));
+
+        assertThat(localWrites.drainStale(System.nanoTime()))
+                .containsExactly(new LocalWrites.Key(BEERS, 2));
+    }
+
+    @Test
+    void shouldTakeTheDeletesOfAnEmptyingUntilItsFenceCloses() {
+        localWrites.deletingAll(BEERS);
+        localWrites.deletedAll(BEERS);
+        Beer remote = beer(3, "Remote");
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.DELETE, 1, null))
+                    .isEqualTo(LocalWrites.Origin.OWN);
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.INSERT, 3, remote))
+                    .isEqualTo(LocalWrites.Origin.REMOTE);
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.DELETE, 3, null))
+                    .as("saved after the emptying began")
+                    .isEqualTo(LocalWrites.Origin.REMOTE);
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.DELETE, 2, null))
+                    .isEqualTo(LocalWrites.Origin.OWN);
+        });
+
+        localWrites.drainStale(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(localWrites.echoTimeoutMillis));
+
+        assertThat(localWrites.originOf(BEERS, OperationType.DELETE, 4, null))
+                .as("the fence is closed after the echo timeout")
+                .isEqualTo(LocalWrites.Origin.REMOTE);
+    }
+
+    @Test
+    void shouldReadAgainWhatDidNotComeBackInTime() {
+        Beer beer = beer(1, "Lost");
+        localWrites.saving(BEERS, 1, beer);
+        localWrites.deleting(BEERS, List.of(2));
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(localWrites.drainStale(System.nanoTime()))
+                    .isEmpty();
+
+            softly.assertThat(localWrites.drainStale(
+                            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(localWrites.echoTimeoutMillis)))
+                    .containsExactlyInAnyOrder(new LocalWrites.Key(BEERS, 1), new LocalWrites.Key(BEERS, 2));
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.INSERT, 1, beer))
+                    .as("a write that comes back late is applied as another node's")
+                    .isEqualTo(LocalWrites.Origin.REMOTE);
+        });
+    }
+
+    @Test
+    void shouldTrackNothingWhileTheStreamIsNotFollowed() {
+        localWrites.track(false);
+        Beer beer = beer(1, "Untracked");
+        localWrites.saving(BEERS, 1, beer);
+        localWrites.deleting(BEERS, List.of(1));
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.INSERT, 1, beer))
+                    .isEqualTo(LocalWrites.Origin.REMOTE);
+
+            softly.assertThat(localWrites.originOf(BEERS, OperationType.DELETE, 1, null))
+                    .isEqualTo(LocalWrites.Origin.REMOTE);
+        });
+    }
+
+    private static Beer beer(int id, String name) {
+        return Beer.builder().id(id).name(name).type(BeerType.ALE).brewerId(1).abv(5.5).build();
+    }
+}
@@ -0,0 +1,47 @@
+package org.redlich.beers;
+
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class QueryPlanReportTest extends BaseTest {
+
+    @Inject
+    IndexProvisioner indexProvisioner;
+
+    @Inject
+    QueryPlanReport queryPlanReport;
+
+    @BeforeEach
+    void provisionIndexes() {
+        indexProvisioner.provision(Beer.class);
+        indexProvisioner.provision(Brewer.class);
+    }
+
+    @Test
+    void shouldDeclareQueryShapeForEveryRepositoryMethod() {
+        assertSoftly(softly -> Stream.of(BeerRepository.class, BrewerRepository.class)
+                .forEach(repository -> Arrays.stream(repository.getDeclaredMethods())
+                        .map(Method::getName)
+                        .distinct()
+                        .forEach(method -> softly.assertThat(QueryShapes.of(repository, method))
+                                .as("%s.%s should declare its query shape in QueryShapes",
+                                        repository.getSimpleName(), method)
+                                .isPresent())));
+    }
+
+    @Test
+    void shouldNotScanCollectionForIndexedMethods() {
+        assertThat(queryPlanReport.explainAll())
+                .as("every repository method not declared as a scan should be served by an index")
+                .noneMatch(QueryPlanResponse::unexpectedScan);
+    }
+
+}
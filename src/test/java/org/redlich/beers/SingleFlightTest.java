@@ -0,0 +1,158 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 200;
+
+    @Test
+    void shouldCoalesceConcurrentCallsUnderLoad() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>();
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            Callable<String> read = () -> {
+                start.await();
+                return flight.execute(1, id -> {
+                    queries.incrementAndGet();
+                    // a slow query, so the callers overlap
+                    sleep(200);
+                    return "Beer " + id;
+                });
+            };
+            List<Future<String>> submitted = IntStream.range(0, CALLERS).mapToObj(i -> callers.submit(read)).toList();
+            start.countDown();
+            List<String> results = new ArrayList<>(CALLERS);
+            for (Future<String> result : submitted) {
+                results.add(result.get(10, TimeUnit.SECONDS));
+            }
+
+            assertSoftly(softly -> {
+
+                softly.assertThat(results)
+                        .as("every caller should get the shared result")
+                        .containsOnly("Beer 1");
+
+                softly.assertThat(queries.get())
+                        .as("%d concurrent callers should run far fewer queries", CALLERS)
+                        .isLessThanOrEqualTo(CALLERS / 20);
+
+                softly.assertThat(flight.calls() + flight.shared())
+                        .isEqualTo(CALLERS);
+
+                softly.assertThat(flight.coalescingRatio())
+                        .isGreaterThanOrEqualTo(0.95);
+            });
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRunAgainOnceTheCallCompleted() {
+        SingleFlight<Integer, Integer> flight = new SingleFlight<>();
+        AtomicInteger queries = new AtomicInteger();
+
+        flight.execute(1, id -> queries.incrementAndGet());
+        int second = flight.execute(1, id -> queries.incrementAndGet());
+
+        assertSoftly(softly -> softly.assertThat(second)
+                .as("a completed call should not be served to later callers")
+                .isEqualTo(2));
+    }
+
+    @Test
+    void shouldShareFailuresAndRecover() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> leader = callers.submit(() -> flight.execute(1, id -> {
+                running.countDown();
+                await(fail);
+                throw new IllegalStateException("not primary");
+            }));
+            running.await();
+            Future<?> follower = callers.submit(() -> flight.execute(1, id -> "unused"));
+            while (flight.shared() == 0) {
+                Thread.onSpinWait();
+            }
+            fail.countDown();
+
+            assertThatThrownBy(follower::get)
+                    .as("a caller sharing a failed call should get its exception")
+                    .hasCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(leader::get)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+            assertSoftly(softly -> softly.assertThat(flight.execute(1, id -> "Beer " + id))
+                    .as("a failed call should be released like a completed one")
+                    .isEqualTo("Beer 1"));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldNotJoinForgottenCalls() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> before = callers.submit(() -> flight.execute(1, id -> {
+                running.countDown();
+                await(release);
+                return "before the write";
+            }));
+            running.await();
+            flight.forget(1);
+            String after = flight.execute(1, id -> "after the write");
+            release.countDown();
+
+            assertSoftly(softly -> {
+
+                softly.assertThat(after)
+                        .as("a caller arriving after a write should not join the call started before it")
+                        .isEqualTo("after the write");
+
+                softly.assertThat(before.get(10, TimeUnit.SECONDS))
+                        .isEqualTo("before the write");
+            });
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class SlowQueryLogTest {
+
+    private SlowQueryLog slowQueryLog;
+
+    @BeforeEach
+    void startLog() {
+        slowQueryLog = new SlowQueryLog();
+        slowQueryLog.thresholdMillis = 50;
+        slowQueryLog.explainSampleRate = 0;
+        slowQueryLog.top = 2;
+        slowQueryLog.start();
+    }
+
+    @AfterEach
+    void stopLog() {
+        slowQueryLog.stop();
+    }
+
+    @Test
+    void shouldKeepTheSlowestShapesWithTheirFilters() {
+        slowQueryLog.record(BeerRepository.class, "findById", new Object[]{1}, millis(10));
+        slowQueryLog.record(BrewerRepository.class, "findByNameLike",
+                new Object[]{"Maine%", KeysetCursor.pageable(5)}, millis(300));
+        slowQueryLog.record(BrewerRepository.class, "findByNameLike",
+                new Object[]{"Allagash%", KeysetCursor.pageable(5)}, millis(100));
+        slowQueryLog.record(BeerRepository.class, "findByBrewerIdIn",
+                new Object[]{List.of(1, 2), KeysetCursor.pageable(5)}, millis(200));
+        slowQueryLog.record(BeerRepository.class, "deleteByBrewerId", new Object[]{1}, millis(60));
+
+        List<SlowQueryResponse> slowest = slowQueryLog.slowest();
+
+        assertSoftly(softly -> {
+            softly.assertThat(slowest)
+                    .as("only the top shapes by worst latency should be listed, slowest first")
+                    .extracting(SlowQueryResponse::method)
+                    .containsExactly("BrewerRepository.findByNameLike", "BeerRepository.findByBrewerIdIn");
+
+            SlowQueryResponse byName = slowest.get(0);
+            softly.assertThat(byName.slowCalls()).isEqualTo(2);
+            softly.assertThat(byName.maxMillis()).isEqualTo(300.0);
+            softly.assertThat(byName.meanMillis()).isEqualTo(200.0);
+            softly.assertThat(byName.filter())
+                    .as("the filter of the last slow call should be kept")
+                    .contains("Allagash");
+            softly.assertThat(byName.sort()).contains("name");
+            softly.assertThat(byName.plan()).isNull();
+        });
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,72 @@
+package org.redlich.beers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    void fillIndex() {
+        index = new TrigramIndex();
+        index.put(1, "Maine Beer Company");
+        index.put(2, "Allagash Brewing Company");
+        index.put(3, "Brewery Ommegang");
+        index.put(4, "Ale");
+    }
+
+    @Test
+    void shouldMatchLikePatterns() {
+        assertSoftly(softly -> {
+
+            softly.assertThat(index.search("%Brew%"))
+                    .as("an unanchored pattern should match anywhere in the name")
+                    .containsExactly(2, 3);
+
+            softly.assertThat(index.search("Maine%"))
+                    .as("a prefix pattern should only match at the start")
+                    .containsExactly(1);
+
+            softly.assertThat(index.search("%Company"))
+                    .as("a suffix pattern should only match at the end")
+                    .containsExactly(1, 2);
+
+            softly.assertThat(index.search("A_e"))
+                    .as("a pattern without trigrams should verify every name")
+                    .containsExactly(4);
+
+            softly.assertThat(index.search("Brewery Ommegang"))
+                    .as("a pattern without wildcards should match the whole name")
+                    .containsExactly(3);
+
+            softly.assertThat(index.search("%brew%"))
+                    .as("matching should be case-sensitive like the LIKE query")
+                    .isEmpty();
+        });
+    }
+
+    @Test
+    void shouldFollowRenamesAndRemovals() {
+        index.put(1, "Maine Brewing");
+        index.remove(3);
+
+        assertSoftly(softly -> {
+
+            softly.assertThat(index.search("%Brew%"))
+                    .as("the renamed and removed brewers should be reflected")
+                    .containsExactly(1, 2);
+
+            softly.assertThat(index.search("%Beer%"))
+                    .as("the old name should no longer match")
+                    .isEmpty();
+
+            softly.assertThat(index.size())
+                    .as("the removed brewer should no longer be indexed")
+                    .isEqualTo(3);
+        });
+    }
+
+}